@@ -1,9 +1,13 @@
 package com.bdl.config.annotation.processor;
 
 import com.google.common.base.Function;
-import com.google.common.base.Predicate;
+import com.google.common.base.Optional;
 import com.google.common.base.Throwables;
-import com.google.common.collect.FluentIterable;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.SetMultimap;
 
 import com.bdl.annotation.processing.model.FieldMetadata;
 import com.bdl.config.Config;
@@ -13,6 +17,7 @@ import com.sun.source.util.Trees;
 import java.io.IOException;
 import java.io.Writer;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.annotation.Nullable;
@@ -44,7 +49,7 @@ abstract class ConfigAnnotationProcessor extends AbstractProcessor {
 
   private Messager messager;
   private Elements elements;
-  private Trees trees;
+  @Nullable private Trees trees;
 
   protected ConfigAnnotationProcessor(VisitorFactory visitorFactory) {
     this.visitorFactory = visitorFactory;
@@ -55,30 +60,49 @@ abstract class ConfigAnnotationProcessor extends AbstractProcessor {
     super.init(processingEnv);
     messager = processingEnv.getMessager();
     elements = processingEnv.getElementUtils();
-    trees = Trees.instance(processingEnv);
+    try {
+      trees = Trees.instance(processingEnv);
+    } catch (IllegalArgumentException ex) {
+      // Not javac's own environment, as when Gradle wraps it for incremental processing. Field
+      // initializers cannot be read, so they are not checked against @Nullable.
+      trees = null;
+    }
   }
 
   @Override
   public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
-    List<ConfigMetadata> foundConfigs = FluentIterable.from(roundEnv.getElementsAnnotatedWith(Config.class))
-    .filter(new Predicate<Element>() {
-      @Override
-      public boolean apply(@Nullable Element input) {
-        return isStaticField(input);
+    // Both of these cache what they find, so that each class and annotation type is read once.
+    FieldInitializationGrabber grabber = new FieldInitializationGrabber(trees, elements);
+    MetaAnnotationCache metaAnnotations = new MetaAnnotationCache(elements);
+    List<ConfigMetadata> foundConfigs = Lists.newArrayList();
+    // The class declaring each config, by the config's fully qualified name.
+    Map<String, Element> declaringClasses = Maps.newHashMap();
+    for (Element element : roundEnv.getElementsAnnotatedWith(Config.class)) {
+      if (!isStaticField(element)) {
+        continue;
       }
-    }).transform(new Function<Element, ConfigMetadata>() {
-          @Nullable
-          @Override
-          public ConfigMetadata apply(@Nullable Element input) {
-            return ConfigMetadata.from(
-                elements,
-                FieldMetadata.from(input),
-                new FieldInitializationGrabber(trees, elements));
-          }
-        }).toList();
+      FieldMetadata field = FieldMetadata.from(element);
+      ConfigMetadata config = ConfigMetadata.from(metaAnnotations, field);
+      // Whether a config has a default is taken from @Nullable alone, so that clean and
+      // incremental builds generate the same code. Initializers that can be read are checked.
+      Optional<String> initializer = grabber.findInitializer(field);
+      if (config.hasDefault()
+          && initializer.isPresent()
+          && initializer.get().contains("noDefault")) {
+        messager.printMessage(
+            Diagnostic.Kind.ERROR,
+            String.format(
+                "Config %s has no default value, so it must be marked @Nullable.",
+                config.fullyQualifiedPathName()),
+            element);
+        continue;
+      }
+      foundConfigs.add(config);
+      declaringClasses.put(config.fullyQualifiedPathName(), element.getEnclosingElement());
+    }
 
     if (foundConfigs.isEmpty()) {
-      return true;
+      return false;
     }
 
     ConfigPackageTree tree = new ConfigPackageTree();
@@ -90,7 +114,16 @@ abstract class ConfigAnnotationProcessor extends AbstractProcessor {
     try {
       messager.printMessage(
           Diagnostic.Kind.NOTE, String.format("Found %s configs.", foundConfigs.size()));
-      tree.visit(visitorFactory.get(processingEnv, messager));
+      OriginatingElementsVisitor originatingElements =
+          new OriginatingElementsVisitor(declaringClasses);
+      tree.visit(originatingElements);
+      afterVisit(
+          tree.visit(
+              visitorFactory.get(
+                  processingEnv,
+                  messager,
+                  new JavaFileObjectWriterFunction(
+                      processingEnv, originatingElements.elementsByPackage))));
     } catch (Exception ex) {
       messager.printMessage(
           Diagnostic.Kind.ERROR,
@@ -99,26 +132,67 @@ abstract class ConfigAnnotationProcessor extends AbstractProcessor {
               + "\n"
               + Throwables.getStackTraceAsString(ex));
     }
-    return true;
+    // Other processors (e.g. for the other DI framework, or the registry) handle @Config too, so
+    // the annotation is not claimed.
+    return false;
   }
 
+  /**
+   * Called once all of the files for a round have been written, with the packages of the
+   * top-level (root) files.
+   */
+  protected void afterVisit(Set<String> rootPackages) throws IOException {}
+
   static boolean isStaticField(Element element) {
     return element.getKind() == ElementKind.FIELD
         && element.getModifiers().contains(Modifier.STATIC);
   }
 
-  protected static class JavaFileObjectWriterFunction implements Function<String, Writer> {
+  /**
+   * Collects the classes declaring the configs bound in each package, so that each generated file
+   * names them as its originating elements, as incremental builds require.
+   */
+  private static class OriginatingElementsVisitor implements ConfigPackageTree.Visitor<String> {
+
+    private final Map<String, Element> declaringClasses;
+    private final SetMultimap<String, Element> elementsByPackage;
+
+    private OriginatingElementsVisitor(Map<String, Element> declaringClasses) {
+      this.declaringClasses = declaringClasses;
+      this.elementsByPackage = LinkedHashMultimap.create();
+    }
+
+    @Override
+    public Set<String> visit(
+        Set<String> childOutputs, String packageName, Set<ConfigMetadata> configs) {
+      for (ConfigMetadata config : configs) {
+        elementsByPackage.put(
+            packageName, declaringClasses.get(config.fullyQualifiedPathName()));
+      }
+      return ImmutableSet.of();
+    }
+  }
+
+  /** Creates each source file with the originating elements of the configs in its package. */
+  private static class JavaFileObjectWriterFunction implements Function<String, Writer> {
 
     private final ProcessingEnvironment env;
+    private final SetMultimap<String, Element> originatingElements;
 
-    protected JavaFileObjectWriterFunction(ProcessingEnvironment env) {
+    private JavaFileObjectWriterFunction(
+        ProcessingEnvironment env, SetMultimap<String, Element> originatingElements) {
       this.env = env;
+      this.originatingElements = originatingElements;
     }
 
     @Override
     public Writer apply(String input) {
+      int lastDot = input.lastIndexOf('.');
+      Set<Element> origins =
+          originatingElements.get(lastDot < 0 ? "" : input.substring(0, lastDot));
       try {
-        JavaFileObject jfo = env.getFiler().createSourceFile(input);
+        JavaFileObject jfo =
+            env.getFiler().createSourceFile(input, origins.toArray(new Element[origins.size()]));
         return jfo.openWriter();
       } catch (IOException ex) {
         throw new RuntimeException(ex);
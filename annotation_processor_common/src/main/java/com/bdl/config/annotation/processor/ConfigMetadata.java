@@ -1,24 +1,28 @@
 package com.bdl.config.annotation.processor;
 
 import com.google.auto.value.AutoValue;
+import com.google.common.base.Joiner;
 import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ComparisonChain;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 
 import com.bdl.annotation.processing.model.AnnotationMetadata;
-import com.bdl.annotation.processing.model.ClassMetadata;
 import com.bdl.annotation.processing.model.FieldMetadata;
 import com.bdl.annotation.processing.model.Imports;
 import com.bdl.annotation.processing.model.TypeMetadata;
 import com.bdl.annotation.processing.model.UsesTypes;
 import com.bdl.annotation.processing.model.ValueMetadata;
+import com.bdl.annotation.processing.model.Visibility;
 import com.bdl.config.Config;
+import com.bdl.config.ConfigDescription;
 import com.bdl.config.Configurable;
 
+import java.util.List;
 import java.util.Set;
 
 import javax.inject.Qualifier;
-import javax.lang.model.element.TypeElement;
 import javax.lang.model.util.Elements;
 
 /**
@@ -47,15 +51,29 @@ abstract class ConfigMetadata implements Comparable<ConfigMetadata>, UsesTypes {
 
   abstract boolean hasDefault();
 
+  /** Returns the type of the config's value, boxed for primitive-specialized Configurables. */
   TypeMetadata type() {
+    Optional<PrimitiveConfigurable> primitive = primitive();
+    if (primitive.isPresent()) {
+      return primitive.get().boxedType();
+    }
     return field().type().params().get(0);
   }
 
+  /** Returns the primitive specialization of the field's Configurable type, if any. */
+  Optional<PrimitiveConfigurable> primitive() {
+    return PrimitiveConfigurable.forFieldType(field().type());
+  }
+
   @Override
   public Set<TypeMetadata> getAllTypes() {
     ImmutableSet.Builder<TypeMetadata> allTypes = ImmutableSet.builder();
-    allTypes.addAll(field().type().params().get(0).getAllTypes());
+    allTypes.addAll(type().getAllTypes());
     allTypes.add(field().containingClass());
+    if (isPrivate()) {
+      // The field's declared type appears in the generated ConfigAccessor.
+      allTypes.addAll(field().type().getAllTypes());
+    }
     if (qualifier().isPresent()) {
       allTypes.addAll(qualifier().get().getAllTypes());
     }
@@ -74,6 +92,105 @@ abstract class ConfigMetadata implements Comparable<ConfigMetadata>, UsesTypes {
         "%s.%s", field().containingClass().rawType().toString(imports), field().name());
   }
 
+  /** Returns {@code true} if the Configurable field is private, and so cannot be read directly. */
+  boolean isPrivate() {
+    return field().modifiers().visibility() == Visibility.PRIVATE;
+  }
+
+  /**
+   * Returns the binary name of the class declaring the field (as from {@link Class#getName()}), so
+   * that the class can be loaded at runtime without guessing which dots separate nested classes.
+   */
+  String binaryClassName() {
+    TypeMetadata containingType = field().containingClass();
+    return String.format(
+        "%s%s%s",
+        containingType.packagePrefix(),
+        containingType.nestingPrefix().replace('.', '$'),
+        containingType.name());
+  }
+
+  /** Returns the config's description, as the generated code creates it at runtime. */
+  ConfigDescription description(Imports imports) {
+    TypeMetadata containingType = field().containingClass();
+    ConfigDescription.Builder description =
+        ConfigDescription.builder()
+            .packageName(containingType.packageName())
+            .className(containingType.nestingPrefix() + containingType.name())
+            .fieldName(field().name())
+            .type(type().toString(imports))
+            .hasDefault(hasDefault());
+    ValueMetadata nameValue = configAnnotation().value("name");
+    if (nameValue != null) {
+      description.specifiedName(nameValue.value());
+    }
+    ValueMetadata descriptionValue = configAnnotation().value("desc");
+    if (descriptionValue != null) {
+      description.description(descriptionValue.value());
+    }
+    return description.build();
+  }
+
+  /** Returns the name of the generated {@code ConfigDescription} constant for the config. */
+  String descriptionName() {
+    return String.format("configDescription_%s", name());
+  }
+
+  /**
+   * Returns the declaration of the config's {@code ConfigDescription} constant, as Java source. The
+   * description is created without a builder, and its fully qualified name is a string literal.
+   */
+  String descriptionDeclaration(Imports imports) {
+    ConfigDescription description = description(imports);
+    List<String> arguments =
+        ImmutableList.of(
+            quote(description.packageName()),
+            quote(description.className()),
+            quote(description.fieldName()),
+            quote(description.fullyQualifiedFieldName()),
+            quote(description.type()),
+            description.specifiedName().isPresent()
+                ? quote(description.specifiedName().get())
+                : "null",
+            description.description().isPresent() ? quote(description.description().get()) : "null",
+            String.valueOf(description.hasDefault()));
+    return String.format(
+        "  /** Describes config %s (%s). */\n"
+            + "  private static final ConfigDescription %s =\n"
+            + "      ConfigDescription.create(\n"
+            + "          %s);\n",
+        name(),
+        fieldReference(imports),
+        descriptionName(),
+        Joiner.on(",\n          ").join(arguments));
+  }
+
+  private static String quote(String value) {
+    return String.format("\"%s\"", value);
+  }
+
+  /** Returns the name of the generated {@code ConfigAccessor} field for a private config. */
+  String accessorName() {
+    return String.format("configAccessor_%s", name());
+  }
+
+  /**
+   * Returns an expression evaluating to the Configurable itself: the field, or the generated {@code
+   * ConfigAccessor}'s resolution of it if the field is private.
+   */
+  String configurableExpression(Imports imports) {
+    return isPrivate() ? accessorName() + ".configurable()" : fieldReference(imports);
+  }
+
+  /** Returns an expression reading the config's current value from the Configurable. */
+  String valueExpression(Imports imports) {
+    Optional<PrimitiveConfigurable> primitive = primitive();
+    return String.format(
+        "%s.%s()",
+        configurableExpression(imports),
+        primitive.isPresent() ? primitive.get().getterName() : "get");
+  }
+
   /**
    * Returns the name of the config. This is equal to the field name unless a specified name is
    * given.
@@ -85,18 +202,35 @@ abstract class ConfigMetadata implements Comparable<ConfigMetadata>, UsesTypes {
 
   @Override
   public int compareTo(ConfigMetadata that) {
-    return String.CASE_INSENSITIVE_ORDER.compare(
-        fullyQualifiedPathName(), that.fullyQualifiedPathName());
+    // Names differing only in case are ordered case-sensitively, so that generated files do not
+    // depend on the order in which the compiler presents the configs.
+    return ComparisonChain.start()
+        .compare(
+            fullyQualifiedPathName(), that.fullyQualifiedPathName(), String.CASE_INSENSITIVE_ORDER)
+        .compare(fullyQualifiedPathName(), that.fullyQualifiedPathName())
+        .result();
+  }
+
+  static ConfigMetadata from(Elements elements, FieldMetadata field) {
+    return from(new MetaAnnotationCache(elements), field);
   }
 
-  static ConfigMetadata from(
-      Elements elements, FieldMetadata field, FieldInitializationGrabber grabber) {
+  /**
+   * Returns the metadata for the given field, looking up the meta-annotations of its annotations in
+   * the given cache, so that each annotation type is looked up once for all of the fields it marks.
+   */
+  static ConfigMetadata from(MetaAnnotationCache metaAnnotations, FieldMetadata field) {
     Builder config = ConfigMetadata.builder().field(field);
     boolean foundQualifier = false;
     boolean foundBindingAnnotation = false;
 
-    String initializer = grabber.findInitializer(field);
-    config.hasDefault(!initializer.contains("noDefault"));
+    // A config has no default if and only if its field is marked @Nullable. Initializers cannot
+    // always be read, so they are only checked against this (see ConfigAnnotationProcessor).
+    boolean nullable = false;
+    for (AnnotationMetadata annotation : field.annotations()) {
+      nullable |= annotation.type().name().equals("Nullable");
+    }
+    config.hasDefault(!nullable);
 
     for (AnnotationMetadata annotation : field.annotations()) {
       TypeMetadata annotationType = annotation.type();
@@ -105,33 +239,22 @@ abstract class ConfigMetadata implements Comparable<ConfigMetadata>, UsesTypes {
         continue;
       }
 
-      String annotationTypeName =
-          String.format(
-              "%s%s%s",
-              annotationType.packagePrefix(),
-              annotationType.nestingPrefix(),
-              annotationType.name());
-      System.out.printf("Annotation Type Name: %s\n", annotationTypeName);
-      TypeElement annotationTypeElement = elements.getTypeElement(annotationTypeName);
-      System.out.printf("Annotation Type Element: %s\n", annotationTypeElement);
-      ClassMetadata annotationClazz = ClassMetadata.fromElement(annotationTypeElement);
-      for (AnnotationMetadata metaAnnotation : annotationClazz.annotations()) {
-        if (metaAnnotation.type().equals(QUALIFIER_TYPE)) {
-          Preconditions.checkArgument(
-              !foundQualifier,
-              "Field %s has more than one Qualifier annotation (not including @Config).",
-              config.build().fullyQualifiedPathName());
-          foundQualifier = true;
-          config.qualifier(annotation);
-        }
-        if (metaAnnotation.type().equals(BINDING_ANNOTATION_TYPE)) {
-          Preconditions.checkArgument(
-              !foundBindingAnnotation,
-              "Field %s has more than one BindingAnnotation annotation (not including @Config).",
-              config.build().fullyQualifiedPathName());
-          foundBindingAnnotation = true;
-          config.bindingAnnotation(annotation);
-        }
+      Set<TypeMetadata> metaAnnotationTypes = metaAnnotations.metaAnnotationTypes(annotationType);
+      if (metaAnnotationTypes.contains(QUALIFIER_TYPE)) {
+        Preconditions.checkArgument(
+            !foundQualifier,
+            "Field %s has more than one Qualifier annotation (not including @Config).",
+            config.build().fullyQualifiedPathName());
+        foundQualifier = true;
+        config.qualifier(annotation);
+      }
+      if (metaAnnotationTypes.contains(BINDING_ANNOTATION_TYPE)) {
+        Preconditions.checkArgument(
+            !foundBindingAnnotation,
+            "Field %s has more than one BindingAnnotation annotation (not including @Config).",
+            config.build().fullyQualifiedPathName());
+        foundBindingAnnotation = true;
+        config.bindingAnnotation(annotation);
       }
     }
     return config.build();
@@ -158,7 +281,8 @@ abstract class ConfigMetadata implements Comparable<ConfigMetadata>, UsesTypes {
     ConfigMetadata build() {
       ConfigMetadata config = autoBuild();
       Preconditions.checkArgument(
-          config.field().type().rawType().equals(CONFIGURABLE_TYPE.rawType()),
+          config.field().type().rawType().equals(CONFIGURABLE_TYPE.rawType())
+              || config.primitive().isPresent(),
           "The given field is not a Configurable type, was %s",
           config.field().type().toString(Imports.empty()));
       return config;
@@ -49,8 +49,13 @@ class ConfigPackageTree {
     return common;
   }
 
-  <T> void visit(Visitor<T> visitor) {
-    root.visit(visitor);
+  /**
+   * Visits every node, children before parents.
+   *
+   * @return the output of visiting the root node, e.g. the packages of the top-level modules.
+   */
+  <T> Set<T> visit(Visitor<T> visitor) {
+    return root.visit(visitor);
   }
 
   private static class Node {
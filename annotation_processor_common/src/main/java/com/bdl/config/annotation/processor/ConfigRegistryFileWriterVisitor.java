@@ -0,0 +1,236 @@
+package com.bdl.config.annotation.processor;
+
+import com.google.common.base.Function;
+import com.google.common.base.Joiner;
+import com.google.common.base.Throwables;
+import com.google.common.collect.FluentIterable;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
+
+import com.bdl.annotation.processing.model.Imports;
+import com.bdl.annotation.processing.model.TypeMetadata;
+import com.bdl.config.ConfigDescription;
+import com.bdl.config.ConfigNameIndex;
+import com.bdl.config.ConfigRegistry;
+import com.bdl.config.ConfigSupplier;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.Messager;
+import javax.tools.Diagnostic;
+
+/**
+ * Implementation of {@link ConfigPackageTree.Visitor} that writes out {@code ConfigRegistry}
+ * classes, from which a {@code Configuration} can be built without an injector.
+ *
+ * <p>Each registry holds a {@link ConfigNameIndex} of the configs in its package and subpackages,
+ * built here so that the index need not be built at runtime.
+ *
+ * @author Ben Leitner
+ */
+class ConfigRegistryFileWriterVisitor implements ConfigPackageTree.Visitor<String> {
+
+  static final String REGISTRY_CLASS_NAME = "GeneratedConfigRegistry";
+
+  /** Generated array initializers are wrapped before this column. */
+  private static final int LINE_LENGTH = 100;
+
+  private final Messager messager;
+  private final Function<String, Writer> writerFunction;
+  /**
+   * The configs of each registry written so far, in the order of its {@code configSuppliers()}:
+   * those of its child registries, then its own.
+   */
+  private final Map<String, List<ConfigDescription>> registryDescriptions;
+
+  ConfigRegistryFileWriterVisitor(Messager messager, Function<String, Writer> writerFunction) {
+    this.messager = messager;
+    this.writerFunction = writerFunction;
+    this.registryDescriptions = Maps.newHashMap();
+  }
+
+  @Override
+  public Set<String> visit(
+      Set<String> childOutputs, String packageName, Set<ConfigMetadata> configs) {
+    if (configs.isEmpty() && childOutputs.size() < 2) {
+      return childOutputs;
+    }
+
+    List<String> orderedChildPackages =
+        FluentIterable.from(childOutputs).toSortedList(Ordering.natural());
+    List<ConfigMetadata> orderedConfigs =
+        FluentIterable.from(configs).toSortedList(Ordering.<ConfigMetadata>natural());
+
+    ImmutableSet.Builder<TypeMetadata> referencedTypes =
+        ImmutableSet.<TypeMetadata>builder()
+            .add(TypeMetadata.from(ConfigDescription.class))
+            .add(TypeMetadata.from(ConfigNameIndex.class))
+            .add(TypeMetadata.from(ConfigRegistry.class))
+            .add(TypeMetadata.from(ConfigSupplier.class))
+            .add(TypeMetadata.from(ArrayList.class))
+            .add(TypeMetadata.from(List.class));
+    for (ConfigMetadata config : configs) {
+      if (!config.isPrivate()) {
+        referencedTypes.add(config.field().containingClass());
+      }
+    }
+
+    Imports imports = Imports.create(packageName, referencedTypes.build());
+
+    List<ConfigDescription> descriptions = Lists.newArrayList();
+    for (String childPackage : orderedChildPackages) {
+      descriptions.addAll(registryDescriptions.get(childPackage));
+    }
+    for (ConfigMetadata config : orderedConfigs) {
+      descriptions.add(config.description(imports));
+    }
+    registryDescriptions.put(packageName, descriptions);
+
+    try {
+      Writer writer =
+          writerFunction.apply(PackageNameUtil.append(packageName, REGISTRY_CLASS_NAME));
+      writeClassOpening(writer, imports, packageName);
+      writeNameIndex(writer, ConfigNameIndex.of(descriptions));
+      for (ConfigMetadata config : orderedConfigs) {
+        writeLine(writer, "");
+        writer.write(config.descriptionDeclaration(imports));
+      }
+      writeConfigSuppliersMethod(writer, imports, orderedChildPackages, orderedConfigs);
+      writeNameIndexMethod(writer);
+      writeClassClosing(writer);
+
+      writer.close();
+    } catch (IOException ex) {
+      messager.printMessage(Diagnostic.Kind.ERROR, Throwables.getStackTraceAsString(ex));
+    }
+
+    return ImmutableSet.of(packageName);
+  }
+
+  private void writeClassOpening(Writer writer, Imports imports, String packageName)
+      throws IOException {
+    writeLine(writer, "package %s;", packageName);
+    String previous = null;
+    for (String importString : imports.getImports()) {
+      if (ImportUtil.needsNewLine(previous, importString)) {
+        writeLine(writer, "");
+      }
+      previous = importString;
+      writeLine(writer, "import %s;", importString);
+    }
+    writeLine(writer, "");
+    writeLine(
+        writer,
+        "/** Registry of the configs in the %s package, for use without injection. */",
+        packageName);
+    writeLine(writer, "public final class %s implements ConfigRegistry {", REGISTRY_CLASS_NAME);
+  }
+
+  private void writeNameIndex(Writer writer, ConfigNameIndex index) throws IOException {
+    writeLine(writer, "");
+    writeLine(
+        writer, "  /** Index of the config names, in the order of {@link #configSuppliers()}. */");
+    writeLine(writer, "  private static final ConfigNameIndex NAME_INDEX =");
+    writeLine(writer, "      new ConfigNameIndex(");
+    List<String> keys = Lists.newArrayList();
+    for (String key : index.keys()) {
+      keys.add(String.format("\"%s\"", key));
+    }
+    writeArray(writer, "String[]", keys, ",");
+    writeArray(writer, "int[]", intStrings(index.displacements()), ",");
+    writeArray(writer, "int[]", intStrings(index.values()), ",");
+    List<String> ambiguousSlots = Lists.newArrayList();
+    for (int[] slots : index.ambiguousSlots()) {
+      ambiguousSlots.add(String.format("{%s}", Joiner.on(", ").join(intStrings(slots))));
+    }
+    writeArray(writer, "int[][]", ambiguousSlots, ",");
+    writeArray(writer, "int[]", intStrings(index.fullNameKeys()), ");");
+  }
+
+  /** Writes an array creation expression, wrapping its elements to the line length. */
+  private void writeArray(Writer writer, String type, List<String> elements, String terminator)
+      throws IOException {
+    StringBuilder line = new StringBuilder("          new ").append(type).append(" {");
+    for (int i = 0; i < elements.size(); i++) {
+      String element = elements.get(i) + (i < elements.size() - 1 ? "," : "");
+      if (i > 0 && line.length() + element.length() + 1 > LINE_LENGTH) {
+        writeLine(writer, "%s", line);
+        line = new StringBuilder("              ").append(element);
+      } else {
+        line.append(i > 0 ? " " : "").append(element);
+      }
+    }
+    line.append("}").append(terminator);
+    writeLine(writer, "%s", line);
+  }
+
+  private static List<String> intStrings(int[] values) {
+    List<String> strings = Lists.newArrayListWithCapacity(values.length);
+    for (int value : values) {
+      strings.add(String.valueOf(value));
+    }
+    return strings;
+  }
+
+  private void writeConfigSuppliersMethod(
+      Writer writer, Imports imports, List<String> childPackages, List<ConfigMetadata> configs)
+      throws IOException {
+    writeLine(writer, "");
+    writeLine(writer, "  @Override");
+    writeLine(writer, "  public List<ConfigSupplier> configSuppliers() {");
+    writeLine(writer, "    List<ConfigSupplier> suppliers = new ArrayList<>();");
+    for (String childPackage : childPackages) {
+      writeLine(
+          writer,
+          "    suppliers.addAll(new %s.%s().configSuppliers());",
+          childPackage,
+          REGISTRY_CLASS_NAME);
+    }
+    for (ConfigMetadata config : configs) {
+      writeConfigSupplier(writer, imports, config);
+    }
+    writeLine(writer, "    return suppliers;");
+    writeLine(writer, "  }");
+  }
+
+  private void writeConfigSupplier(Writer writer, Imports imports, ConfigMetadata config)
+      throws IOException {
+    if (config.isPrivate()) {
+      // Private fields can only be read reflectively.
+      writeLine(
+          writer,
+          "    suppliers.add(ConfigSupplier.reflective(%s));",
+          config.descriptionName());
+    } else {
+      writeLine(
+          writer,
+          "    suppliers.add(ConfigSupplier.simple(%s, %s));",
+          config.descriptionName(),
+          config.fieldReference(imports));
+    }
+  }
+
+  private void writeNameIndexMethod(Writer writer) throws IOException {
+    writeLine(writer, "");
+    writeLine(writer, "  @Override");
+    writeLine(writer, "  public ConfigNameIndex nameIndex() {");
+    writeLine(writer, "    return NAME_INDEX;");
+    writeLine(writer, "  }");
+  }
+
+  private void writeClassClosing(Writer writer) throws IOException {
+    writeLine(writer, "}");
+  }
+
+  private void writeLine(Writer writer, String template, Object... params) throws IOException {
+    writer.write(String.format(template, params));
+    writer.write("\n");
+  }
+}
@@ -1,70 +1,76 @@
 package com.bdl.config.annotation.processor;
 
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
 import com.bdl.annotation.processing.model.FieldMetadata;
 
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.Tree;
 import com.sun.source.tree.VariableTree;
-import com.sun.source.util.TreePath;
-import com.sun.source.util.TreePathScanner;
 import com.sun.source.util.Trees;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Map;
 
-import javax.lang.model.element.Element;
-import javax.lang.model.element.ElementKind;
+import javax.annotation.Nullable;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.util.Elements;
 
 /**
  * A class to find the initialization string for a given field.
  *
+ * <p>Initializers can only be read from source, so none is found when the compiler's trees are not
+ * available (as when Gradle wraps the processing environment for incremental processing), or for a
+ * field of a class loaded from a class file (as are unchanged classes in an incremental build).
+ *
+ * <p>The first lookup in a class reads the initializers of all of its fields from the class's tree,
+ * and holds them for the lookups that follow.
+ *
  * @author Ben Leitner
  */
 class FieldInitializationGrabber {
 
-  private final Trees trees;
+  @Nullable private final Trees trees;
   private final Elements elements;
+  /** The initializers of the fields of each class read so far, by class name and field name. */
+  private final Map<String, Map<String, String>> initializersByClass;
 
-  FieldInitializationGrabber(Trees trees, Elements elements) {
+  FieldInitializationGrabber(@Nullable Trees trees, Elements elements) {
     this.trees = trees;
     this.elements = elements;
+    this.initializersByClass = Maps.newHashMap();
   }
 
-  String findInitializer(FieldMetadata field) {
-    TypeElement typeElement =
-        elements.getTypeElement(field.containingClass().fullyQualifiedPathName());
-    for (Element element : typeElement.getEnclosedElements()) {
-      if (element.getKind() == ElementKind.FIELD
-          && element.getSimpleName().toString().equals(field.name())) {
-        VariableTree tree = new FieldScanner().scan(element, trees);
-        return tree.getInitializer().toString();
-      }
+  /** Returns the field's initializer as source, or absent if it cannot be read. */
+  Optional<String> findInitializer(FieldMetadata field) {
+    String className = field.containingClass().fullyQualifiedPathName();
+    Map<String, String> initializers = initializersByClass.get(className);
+    if (initializers == null) {
+      initializers = readInitializers(className);
+      initializersByClass.put(className, initializers);
     }
-    throw new IllegalArgumentException(String.format("Could not find field element for %s", field));
+    return Optional.fromNullable(initializers.get(field.name()));
   }
 
-  private static class FieldScanner extends TreePathScanner<List<VariableTree>, Trees> {
-    private List<VariableTree> variableTrees = new ArrayList<>();
-
-    VariableTree scan(Element fieldElement, Trees trees) {
-      assert fieldElement.getKind() == ElementKind.FIELD;
-
-      List<VariableTree> variableElement = this.scan(trees.getPath(fieldElement), trees);
-      assert variableElement.size() == 1;
-
-      return variableElement.get(0);
+  private Map<String, String> readInitializers(String className) {
+    TypeElement typeElement = elements.getTypeElement(className);
+    if (typeElement == null) {
+      throw new IllegalArgumentException(String.format("Could not find class %s", className));
     }
-
-    @Override
-    public List<VariableTree> scan(TreePath treePath, Trees trees) {
-      super.scan(treePath, trees);
-      return this.variableTrees;
+    ClassTree classTree = trees == null ? null : trees.getTree(typeElement);
+    if (classTree == null) {
+      return ImmutableMap.of();
     }
-
-    @Override
-    public List<VariableTree> visitVariable(VariableTree variableTree, Trees trees) {
-      this.variableTrees.add(variableTree);
-      return super.visitVariable(variableTree, trees);
+    ImmutableMap.Builder<String, String> initializers = ImmutableMap.builder();
+    for (Tree member : classTree.getMembers()) {
+      if (member instanceof VariableTree) {
+        VariableTree variable = (VariableTree) member;
+        if (variable.getInitializer() != null) {
+          initializers.put(variable.getName().toString(), variable.getInitializer().toString());
+        }
+      }
     }
+    return initializers.build();
   }
 }
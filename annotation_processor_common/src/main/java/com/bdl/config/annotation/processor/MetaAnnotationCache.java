@@ -0,0 +1,55 @@
+package com.bdl.config.annotation.processor;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+
+import com.bdl.annotation.processing.model.AnnotationMetadata;
+import com.bdl.annotation.processing.model.ClassMetadata;
+import com.bdl.annotation.processing.model.TypeMetadata;
+
+import java.util.Map;
+import java.util.Set;
+
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+
+/**
+ * Finds the meta-annotations (such as {@code @Qualifier}) of annotation types, looking each type up
+ * only once however many fields it annotates.
+ *
+ * @author Ben Leitner
+ */
+class MetaAnnotationCache {
+
+  private final Elements elements;
+  private final Map<TypeMetadata, Set<TypeMetadata>> metaAnnotationTypes;
+
+  MetaAnnotationCache(Elements elements) {
+    this.elements = elements;
+    this.metaAnnotationTypes = Maps.newHashMap();
+  }
+
+  /** Returns the types of the annotations on the given annotation type. */
+  Set<TypeMetadata> metaAnnotationTypes(TypeMetadata annotationType) {
+    Set<TypeMetadata> types = metaAnnotationTypes.get(annotationType);
+    if (types == null) {
+      types = lookUp(annotationType);
+      metaAnnotationTypes.put(annotationType, types);
+    }
+    return types;
+  }
+
+  private Set<TypeMetadata> lookUp(TypeMetadata annotationType) {
+    String annotationTypeName =
+        String.format(
+            "%s%s%s",
+            annotationType.packagePrefix(), annotationType.nestingPrefix(), annotationType.name());
+    TypeElement annotationTypeElement = elements.getTypeElement(annotationTypeName);
+    ImmutableSet.Builder<TypeMetadata> types = ImmutableSet.builder();
+    for (AnnotationMetadata metaAnnotation :
+        ClassMetadata.fromElement(annotationTypeElement).annotations()) {
+      types.add(metaAnnotation.type());
+    }
+    return types.build();
+  }
+}
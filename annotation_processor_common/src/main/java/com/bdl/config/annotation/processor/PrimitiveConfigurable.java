@@ -0,0 +1,61 @@
+package com.bdl.config.annotation.processor;
+
+import com.google.common.base.Optional;
+
+import com.bdl.annotation.processing.model.TypeMetadata;
+import com.bdl.config.BooleanConfigurable;
+import com.bdl.config.DoubleConfigurable;
+import com.bdl.config.IntConfigurable;
+import com.bdl.config.LongConfigurable;
+
+/**
+ * The primitive-specialized Configurable types, with the information needed to write unboxed
+ * bindings for them.
+ *
+ * @author Ben Leitner
+ */
+enum PrimitiveConfigurable {
+  INT(IntConfigurable.class, Integer.class, "int", "getInt"),
+  LONG(LongConfigurable.class, Long.class, "long", "getLong"),
+  DOUBLE(DoubleConfigurable.class, Double.class, "double", "getDouble"),
+  BOOLEAN(BooleanConfigurable.class, Boolean.class, "boolean", "getBoolean");
+
+  private final TypeMetadata configurableType;
+  private final TypeMetadata boxedType;
+  private final String primitiveName;
+  private final String getterName;
+
+  PrimitiveConfigurable(
+      Class<?> configurableClass, Class<?> boxedClass, String primitiveName, String getterName) {
+    this.configurableType = TypeMetadata.from(configurableClass).rawType();
+    this.boxedType = TypeMetadata.from(boxedClass);
+    this.primitiveName = primitiveName;
+    this.getterName = getterName;
+  }
+
+  /** The boxed type of the config's value, as bound for the generic {@code Configurable} API. */
+  TypeMetadata boxedType() {
+    return boxedType;
+  }
+
+  /** The name of the primitive type held by the config, e.g. {@code int}. */
+  String primitiveName() {
+    return primitiveName;
+  }
+
+  /** The name of the unboxed getter, common to the Configurable and {@code Configuration}. */
+  String getterName() {
+    return getterName;
+  }
+
+  /** Returns the primitive specialization for the given field type, if it is one. */
+  static Optional<PrimitiveConfigurable> forFieldType(TypeMetadata fieldType) {
+    TypeMetadata rawType = fieldType.rawType();
+    for (PrimitiveConfigurable primitive : values()) {
+      if (primitive.configurableType.equals(rawType)) {
+        return Optional.of(primitive);
+      }
+    }
+    return Optional.absent();
+  }
+}
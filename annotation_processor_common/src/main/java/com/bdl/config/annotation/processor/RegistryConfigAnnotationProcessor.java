@@ -0,0 +1,58 @@
+package com.bdl.config.annotation.processor;
+
+import com.google.common.base.Function;
+import com.google.common.collect.Ordering;
+
+import com.bdl.config.ConfigRegistry;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Set;
+
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedSourceVersion;
+import javax.lang.model.SourceVersion;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Annotation processor for generating {@code ConfigRegistry} classes, and the service file listing
+ * the top-level ones for {@code Configuration.fromRegistry}.
+ *
+ * @author Ben Leitner
+ */
+@SupportedAnnotationTypes("com.bdl.config.Config")
+@SupportedSourceVersion(SourceVersion.RELEASE_7)
+public class RegistryConfigAnnotationProcessor extends ConfigAnnotationProcessor {
+
+  static final String SERVICE_FILE = "META-INF/services/" + ConfigRegistry.class.getName();
+
+  public RegistryConfigAnnotationProcessor() {
+    super(new VisitorFactory() {
+      @Override
+      public ConfigPackageTree.Visitor<String> get(
+          ProcessingEnvironment env, Messager messager, Function<String, Writer> writerFunction) {
+        return new ConfigRegistryFileWriterVisitor(messager, writerFunction);
+      }
+    });
+  }
+
+  @Override
+  protected void afterVisit(Set<String> rootPackages) throws IOException {
+    if (rootPackages.isEmpty()) {
+      return;
+    }
+    FileObject serviceFile =
+        processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE);
+    try (Writer writer = serviceFile.openWriter()) {
+      for (String rootPackage : Ordering.natural().sortedCopy(rootPackages)) {
+        writer.write(
+            PackageNameUtil.append(
+                rootPackage, ConfigRegistryFileWriterVisitor.REGISTRY_CLASS_NAME));
+        writer.write("\n");
+      }
+    }
+  }
+}
@@ -1,5 +1,9 @@
 package com.bdl.config.annotation.processor;
 
+import com.google.common.base.Function;
+
+import java.io.Writer;
+
 import javax.annotation.processing.Messager;
 import javax.annotation.processing.ProcessingEnvironment;
 
@@ -10,5 +14,10 @@ import javax.annotation.processing.ProcessingEnvironment;
  */
 interface VisitorFactory {
 
-  ConfigPackageTree.Visitor<String> get(ProcessingEnvironment env, Messager messager);
+  /**
+   * Returns a visitor writing its files with the given function, which creates each source file
+   * with the right originating elements.
+   */
+  ConfigPackageTree.Visitor<String> get(
+      ProcessingEnvironment env, Messager messager, Function<String, Writer> writerFunction);
 }
@@ -3,6 +3,8 @@ package com.bdl.config.annotation.processor;
 import com.bdl.config.Config;
 import com.bdl.config.Configurable;
 
+import javax.annotation.Nullable;
+
 /**
  * Container class with some @Config fields for testing.
  *
@@ -22,6 +24,7 @@ class ConfigContainer {
   public static final Configurable<Boolean> publicBoolean = Configurable.flag(true);
 
   @Config
+  @Nullable
   private static final Configurable<String> noDefaultString =
       Configurable.noDefaultFlag(String.class);
 }
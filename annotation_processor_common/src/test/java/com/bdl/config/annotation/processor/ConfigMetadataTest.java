@@ -1,12 +1,11 @@
 package com.bdl.config.annotation.processor;
 
 import static com.google.common.truth.Truth.assertThat;
-import static org.mockito.Matchers.isA;
-import static org.mockito.Mockito.when;
 
 import com.google.inject.BindingAnnotation;
 import com.google.testing.compile.CompilationRule;
 
+import com.bdl.annotation.processing.model.AnnotationMetadata;
 import com.bdl.annotation.processing.model.FieldMetadata;
 import com.bdl.annotation.processing.model.Modifiers;
 import com.bdl.annotation.processing.model.TypeMetadata;
@@ -16,11 +15,9 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.Mock;
-import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
-import org.mockito.stubbing.Answer;
 
+import javax.annotation.Nullable;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.TypeElement;
@@ -43,24 +40,10 @@ public class ConfigMetadataTest {
   @Rule public final CompilationRule compilation = new CompilationRule();
 
   private Elements elements;
-  @Mock private FieldInitializationGrabber grabber;
 
   @Before
   public void before() {
     elements = compilation.getElements();
-    when(grabber.findInitializer(isA(FieldMetadata.class)))
-        .thenAnswer(
-            new Answer<String>() {
-              @Override
-              public String answer(InvocationOnMock invocation) throws Throwable {
-                FieldMetadata field = (FieldMetadata) invocation.getArguments()[0];
-                if (field.name().toLowerCase().contains("nodefault")) {
-                  return "Configurable.noDefault(Foo.class)";
-                }
-                return "Configurable.value(\"foo\")";
-              }
-            });
-
     TypeMetadata bindingAnnotationType = TypeMetadata.from(BindingAnnotation.class);
     System.out.println(bindingAnnotationType);
   }
@@ -80,8 +63,7 @@ public class ConfigMetadataTest {
   @Test
   public void testFromRealField_privateString() {
     ConfigMetadata config =
-        ConfigMetadata.from(
-            elements, FieldMetadata.from(elementForField("privateString")), grabber);
+        ConfigMetadata.from(elements, FieldMetadata.from(elementForField("privateString")));
     assertThat(config)
         .isEqualTo(
             ConfigMetadata.builder()
@@ -102,8 +84,7 @@ public class ConfigMetadataTest {
   @Test
   public void testFromRealField_packageInteger() {
     ConfigMetadata config =
-        ConfigMetadata.from(
-            elements, FieldMetadata.from(elementForField("packageInteger")), grabber);
+        ConfigMetadata.from(elements, FieldMetadata.from(elementForField("packageInteger")));
     assertThat(config)
         .isEqualTo(
             ConfigMetadata.builder()
@@ -126,8 +107,7 @@ public class ConfigMetadataTest {
   @Test
   public void testFromRealField_publicBoolean() {
     ConfigMetadata config =
-        ConfigMetadata.from(
-            elements, FieldMetadata.from(elementForField("publicBoolean")), grabber);
+        ConfigMetadata.from(elements, FieldMetadata.from(elementForField("publicBoolean")));
     assertThat(config)
         .isEqualTo(
             ConfigMetadata.builder()
@@ -152,8 +132,7 @@ public class ConfigMetadataTest {
   @Test
   public void testFromRealField_noDefaultString() {
     ConfigMetadata config =
-        ConfigMetadata.from(
-            elements, FieldMetadata.from(elementForField("noDefaultString")), grabber);
+        ConfigMetadata.from(elements, FieldMetadata.from(elementForField("noDefaultString")));
     assertThat(config)
         .isEqualTo(
             ConfigMetadata.builder()
@@ -164,6 +143,10 @@ public class ConfigMetadataTest {
                         .type(TypeUtils.configOf(TypeMetadata.STRING))
                         .name("noDefaultString")
                         .addAnnotation(Annotations.configMetadata())
+                        .addAnnotation(
+                            AnnotationMetadata.builder()
+                                .setType(TypeMetadata.from(Nullable.class))
+                                .build())
                         .build())
                 .configAnnotation(Annotations.configMetadata())
                 .hasDefault(false)
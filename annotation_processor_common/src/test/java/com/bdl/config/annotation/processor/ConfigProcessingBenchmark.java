@@ -0,0 +1,131 @@
+package com.bdl.config.annotation.processor;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Measures the time taken to process a synthetic codebase of 20,000 configs, in 200 classes spread
+ * over 20 packages, with {@link RegistryConfigAnnotationProcessor}. This is a benchmark rather than
+ * a test, and is run by hand:
+ *
+ * <pre>
+ *   java -cp [test classpath] com.bdl.config.annotation.processor.ConfigProcessingBenchmark [rounds]
+ * </pre>
+ *
+ * <p>The configs mix visibilities, configs without defaults and qualifier annotations, so that
+ * every part of reading a config's metadata is exercised. Each round runs javac with {@code
+ * -proc:only}, so the time is that of parsing, entering and processing the sources, without
+ * generating class files.
+ *
+ * @author Ben Leitner
+ */
+public final class ConfigProcessingBenchmark {
+
+  private static final int PACKAGES = 20;
+  private static final int CLASSES_PER_PACKAGE = 10;
+  private static final int CONFIGS_PER_CLASS = 100;
+  private static final String ROOT_PACKAGE = "com.bdl.config.benchmark";
+
+  private ConfigProcessingBenchmark() {
+    // No instantiation
+  }
+
+  public static void main(String[] args) throws Exception {
+    int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    if (compiler == null) {
+      throw new IllegalStateException("The benchmark must be run on a JDK to compile its configs.");
+    }
+    Path root = Files.createTempDirectory("config-processing-benchmark");
+    List<File> sources = writeSources(root.resolve("src"));
+
+    System.out.printf(
+        "Processing %d configs in %d classes.%n",
+        PACKAGES * CLASSES_PER_PACKAGE * CONFIGS_PER_CLASS, PACKAGES * CLASSES_PER_PACKAGE);
+    for (int round = 0; round < rounds; round++) {
+      Path output = Files.createDirectories(root.resolve("out" + round));
+      long start = System.nanoTime();
+      process(compiler, sources, output);
+      System.out.printf("Round %d: %.1f ms%n", round, (System.nanoTime() - start) / 1e6);
+    }
+  }
+
+  private static void process(JavaCompiler compiler, List<File> sources, Path output)
+      throws IOException {
+    try (StandardJavaFileManager fileManager =
+        compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+      Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjectsFromFiles(sources);
+      List<String> options =
+          ImmutableList.of(
+              "-proc:only",
+              "-cp",
+              System.getProperty("java.class.path"),
+              "-s",
+              output.toString(),
+              "-d",
+              output.toString());
+      JavaCompiler.CompilationTask task =
+          compiler.getTask(null, fileManager, null, options, null, units);
+      task.setProcessors(ImmutableList.of(new RegistryConfigAnnotationProcessor()));
+      if (!task.call()) {
+        throw new IllegalStateException("Unable to process benchmark configs.");
+      }
+    }
+  }
+
+  private static List<File> writeSources(Path root) throws IOException {
+    List<File> sources = Lists.newArrayList();
+    for (int p = 0; p < PACKAGES; p++) {
+      String packageName = String.format("%s.p%d", ROOT_PACKAGE, p);
+      Path packageDir = root.resolve(packageName.replace('.', File.separatorChar));
+      Files.createDirectories(packageDir);
+      for (int c = 0; c < CLASSES_PER_PACKAGE; c++) {
+        String className = "Holder" + c;
+        Path source = packageDir.resolve(className + ".java");
+        try (Writer writer = Files.newBufferedWriter(source, StandardCharsets.UTF_8)) {
+          writer.write(String.format("package %s;%n%n", packageName));
+          writer.write(String.format("import com.bdl.config.Config;%n"));
+          writer.write(String.format("import com.bdl.config.Configurable;%n"));
+          writer.write(String.format("import javax.inject.Named;%n%n"));
+          writer.write(String.format("class %s {%n", className));
+          for (int i = 0; i < CONFIGS_PER_CLASS; i++) {
+            writeConfig(writer, String.format("config_%d_%d_%d", p, c, i), i);
+          }
+          writer.write(String.format("}%n"));
+        }
+        sources.add(source.toFile());
+      }
+    }
+    return sources;
+  }
+
+  private static void writeConfig(Writer writer, String name, int index) throws IOException {
+    String[] visibilities = {"", "public ", "private "};
+    writer.write(String.format("  @Config(desc = \"Benchmark config %s\")%n", name));
+    if (index % 7 == 0) {
+      writer.write(String.format("  @Named(\"%s\")%n", name));
+    }
+    if (index % 10 == 0) {
+      writer.write(String.format("  @javax.annotation.Nullable%n"));
+    }
+    writer.write(
+        String.format(
+            "  %sstatic final Configurable<String> %s =%n      %s;%n",
+            visibilities[index % visibilities.length],
+            name,
+            index % 10 == 0 ? "Configurable.noDefault(String.class)" : "Configurable.value(\"x\")"));
+  }
+}
@@ -0,0 +1,126 @@
+package com.bdl.config.annotation.processor;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+import com.google.common.io.Resources;
+
+import com.bdl.annotation.processing.model.AnnotationMetadata;
+import com.bdl.annotation.processing.model.FieldMetadata;
+import com.bdl.annotation.processing.model.Modifiers;
+import com.bdl.annotation.processing.model.TypeMetadata;
+import com.bdl.annotation.processing.model.ValueMetadata;
+import com.bdl.annotation.processing.model.Visibility;
+import com.bdl.config.Config;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * Tests for the combined functionality of {@link ConfigPackageTree} and {@link
+ * ConfigRegistryFileWriterVisitor}.
+ *
+ * @author Ben Leitner
+ */
+@RunWith(JUnit4.class)
+public class ConfigRegistryTest {
+
+  private static final TypeMetadata CONFIG_TYPE = TypeMetadata.from(Config.class);
+  private static final javax.annotation.processing.Messager DO_NOTHING_MESSAGER =
+      new Auto_Messager_Impl();
+
+  @Test
+  public void testRegistryOutput() throws Exception {
+    ConfigPackageTree tree = new ConfigPackageTree();
+    AnnotationMetadata plainConfig = AnnotationMetadata.builder().setType(CONFIG_TYPE).build();
+    tree.addConfig(
+        DO_NOTHING_MESSAGER,
+        config("com.bdl.config.things", "Thing1", "flag1", Visibility.PACKAGE_LOCAL, plainConfig));
+    tree.addConfig(
+        DO_NOTHING_MESSAGER,
+        config("com.bdl.config.things", "Thing2", "flag2", Visibility.PUBLIC, plainConfig));
+    tree.addConfig(
+        DO_NOTHING_MESSAGER,
+        config(
+            "com.bdl.config.others",
+            "OtherThingA",
+            "otherFlag",
+            Visibility.PRIVATE,
+            AnnotationMetadata.builder()
+                .setType(CONFIG_TYPE)
+                .putValue("name", ValueMetadata.create("other_flag"))
+                .putValue("desc", ValueMetadata.create("Another flag."))
+                .build()));
+    tree.pullPublicAndPrivateConfigsUp();
+
+    final Map<String, Writer> writerMap = Maps.newHashMap();
+    ConfigRegistryFileWriterVisitor visitor =
+        new ConfigRegistryFileWriterVisitor(
+            DO_NOTHING_MESSAGER,
+            new Function<String, Writer>() {
+              @Override
+              public Writer apply(@Nullable String input) {
+                StringWriter writer = new StringWriter();
+                writerMap.put(input + ".txt", writer);
+                return writer;
+              }
+            });
+
+    assertThat(tree.visit(visitor)).containsExactly("com.bdl.config");
+    assertThat(writerMap.keySet())
+        .containsExactly(
+            "com.bdl.config.GeneratedConfigRegistry.txt",
+            "com.bdl.config.things.GeneratedConfigRegistry.txt");
+
+    for (Map.Entry<String, Writer> entry : writerMap.entrySet()) {
+      URL resource =
+          Preconditions.checkNotNull(
+              getClass().getClassLoader().getResource(entry.getKey()),
+              "Could not find resource %s",
+              entry.getKey());
+      String file = Resources.toString(resource, Charsets.UTF_8);
+
+      assertThat(normalize(entry.getValue().toString())).isEqualTo(normalize(file));
+    }
+  }
+
+  private static ConfigMetadata config(
+      String packageName,
+      String className,
+      String fieldName,
+      Visibility visibility,
+      AnnotationMetadata configAnnotation) {
+    return ConfigMetadata.builder()
+        .field(
+            FieldMetadata.builder()
+                .containingClass(
+                    TypeMetadata.builder().setPackageName(packageName).setName(className).build())
+                .name(fieldName)
+                .type(
+                    TypeMetadata.builder()
+                        .setPackageName("com.bdl.config")
+                        .setName("Configurable")
+                        .addParam(TypeMetadata.STRING)
+                        .build())
+                .modifiers(Modifiers.visibility(visibility))
+                .build())
+        .configAnnotation(configAnnotation)
+        .hasDefault(true)
+        .build();
+  }
+
+  private static String normalize(String input) {
+    return input.replace("\r\n", "\n");
+  }
+}
@@ -1,5 +1,9 @@
 package com.bdl.config.annotation.processor;
 
+import com.google.common.base.Function;
+
+import java.io.Writer;
+
 import javax.annotation.processing.Messager;
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.annotation.processing.SupportedAnnotationTypes;
@@ -18,9 +22,9 @@ public class DaggerConfigAnnotationProcessor extends ConfigAnnotationProcessor {
   public DaggerConfigAnnotationProcessor() {
     super(new VisitorFactory() {
       @Override
-      public ConfigPackageTree.Visitor<String> get(ProcessingEnvironment env, Messager messager) {
-        return new DaggerModuleFileWriterVisitor(
-            messager, new JavaFileObjectWriterFunction(env));
+      public ConfigPackageTree.Visitor<String> get(
+          ProcessingEnvironment env, Messager messager, Function<String, Writer> writerFunction) {
+        return new DaggerModuleFileWriterVisitor(messager, writerFunction);
       }
     });
   }
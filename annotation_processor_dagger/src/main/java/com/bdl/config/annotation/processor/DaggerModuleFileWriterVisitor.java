@@ -3,6 +3,7 @@ package com.bdl.config.annotation.processor;
 import com.google.common.base.Function;
 import com.google.common.base.Joiner;
 import com.google.common.base.Optional;
+import com.google.common.base.Supplier;
 import com.google.common.base.Throwables;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableSet;
@@ -11,12 +12,12 @@ import com.google.common.collect.Ordering;
 import com.bdl.annotation.processing.model.AnnotationMetadata;
 import com.bdl.annotation.processing.model.Imports;
 import com.bdl.annotation.processing.model.TypeMetadata;
-import com.bdl.annotation.processing.model.ValueMetadata;
 import com.bdl.annotation.processing.model.Visibility;
 import com.bdl.config.ConfigDescription;
-import com.bdl.config.ConfigException;
+import com.bdl.config.ConfigAccessor;
 import com.bdl.config.ConfigSupplier;
 import com.bdl.config.ConfigValue;
+import com.bdl.config.Configurable;
 import com.bdl.config.Configuration;
 
 import dagger.Module;
@@ -61,10 +62,11 @@ class DaggerModuleFileWriterVisitor implements ConfigPackageTree.Visitor<String>
     ImmutableSet.Builder<TypeMetadata> referencedTypes =
         ImmutableSet.<TypeMetadata>builder()
             .add(TypeMetadata.from(ConfigDescription.class))
-            .add(TypeMetadata.from(ConfigException.class))
             .add(TypeMetadata.from(ConfigSupplier.class))
             .add(TypeMetadata.from(ConfigValue.class))
+            .add(TypeMetadata.from(Configurable.class))
             .add(TypeMetadata.from(Configuration.class))
+            .add(TypeMetadata.from(Supplier.class))
             .add(TypeMetadata.from(Module.class))
             .add(TypeMetadata.from(Provides.class))
             .add(TypeMetadata.from(IntoSet.class));
@@ -75,6 +77,12 @@ class DaggerModuleFileWriterVisitor implements ConfigPackageTree.Visitor<String>
         break;
       }
     }
+    for (ConfigMetadata config : configs) {
+      if (config.isPrivate()) {
+        referencedTypes.add(TypeMetadata.from(ConfigAccessor.class));
+        break;
+      }
+    }
     for (ConfigMetadata config : configs) {
       referencedTypes.addAll(config.getAllTypes());
     }
@@ -88,6 +96,7 @@ class DaggerModuleFileWriterVisitor implements ConfigPackageTree.Visitor<String>
       for (ConfigMetadata config : orderedConfigs) {
         writeConfigSupplierBinding(writer, imports, config);
         writeConfigValueBinding(writer, imports, config);
+        writeLiveBindings(writer, imports, config);
       }
       writeClassClosing(writer);
 
@@ -135,6 +144,8 @@ class DaggerModuleFileWriterVisitor implements ConfigPackageTree.Visitor<String>
   private void writeConfigSupplierBinding(Writer writer, Imports imports, ConfigMetadata config)
       throws IOException {
     writeLine(writer, "");
+    writer.write(config.descriptionDeclaration(imports));
+    writeLine(writer, "");
     writeLine(
         writer,
         "  /** Adds a ConfigSupplier for config %s (%s) to the set multibinder. */",
@@ -143,34 +154,16 @@ class DaggerModuleFileWriterVisitor implements ConfigPackageTree.Visitor<String>
     writeLine(writer, "  @Provides");
     writeLine(writer, "  @IntoSet");
     writeLine(writer, "  public static ConfigSupplier provideConfigSupplier_%s() {", config.name());
-    writeLine(writer, "    ConfigDescription description = ConfigDescription.builder()");
-    TypeMetadata containingType = config.field().containingClass();
-    writeLine(writer, "        .packageName(\"%s\")", containingType.packageName());
-    writeLine(
-        writer,
-        "        .className(\"%s%s\")",
-        containingType.nestingPrefix(),
-        containingType.name());
-    writeLine(writer, "        .fieldName(\"%s\")", config.field().name());
-    writeLine(writer, "        .type(\"%s\")", config.type().toString(imports));
-    ValueMetadata nameValue = config.configAnnotation().value("name");
-    if (nameValue != null) {
-      writeLine(writer, "        .specifiedName(\"%s\")", nameValue.value());
-    }
-    ValueMetadata descriptionValue = config.configAnnotation().value("desc");
-    if (descriptionValue != null) {
-      writeLine(writer, "        .description(\"%s\")", descriptionValue.value());
-    }
-    writeLine(writer, "        .build();");
 
     if (config.field().modifiers().visibility() == Visibility.PRIVATE) {
       // Must use a reflective supplier
-      writeLine(writer, "    return ConfigSupplier.reflective(description);");
+      writeLine(writer, "    return ConfigSupplier.reflective(%s);", config.descriptionName());
     } else {
       // Either public or protected/package-local and we are in the same package, so direct access ok.
       writeLine(
           writer,
-          "    return ConfigSupplier.simple(description, %s);",
+          "    return ConfigSupplier.simple(%s, %s);",
+          config.descriptionName(),
           config.fieldReference(imports));
     }
     writeLine(writer, "  }");
@@ -179,6 +172,25 @@ class DaggerModuleFileWriterVisitor implements ConfigPackageTree.Visitor<String>
   private void writeConfigValueBinding(Writer writer, Imports imports, ConfigMetadata config)
       throws IOException {
     writeLine(writer, "");
+    if (config.isPrivate()) {
+      // Private fields can't be read directly, so resolve the field once and hold on to it.
+      writeLine(
+          writer,
+          "  /** Resolves the private config %s (%s) on first use. */",
+          config.name(),
+          config.fieldReference(imports));
+      writeLine(
+          writer,
+          "  private static final ConfigAccessor<%s> %s =",
+          config.field().type().toString(imports),
+          config.accessorName());
+      writeLine(
+          writer,
+          "      ConfigAccessor.forField(\"%s\", \"%s\");",
+          config.binaryClassName(),
+          config.field().name());
+      writeLine(writer, "");
+    }
     Optional<AnnotationMetadata> qualifier = config.qualifier();
     writeLine(
         writer,
@@ -193,20 +205,61 @@ class DaggerModuleFileWriterVisitor implements ConfigPackageTree.Visitor<String>
     if (!config.hasDefault()) {
       writeLine(writer, "  @Nullable"); // in case the config is null.
     }
+    Optional<PrimitiveConfigurable> primitive = config.primitive();
+    // The Configuration is unused, but depending on it ensures that it has been built (and so any
+    // arguments applied) before the config is first read.
     writeLine(
         writer,
         "  public static %s provideConfigValue_%s(Configuration configuration) {",
-        config.type().toString(imports),
+        primitive.isPresent() ? primitive.get().primitiveName() : config.type().toString(imports),
         config.name());
-    writeLine(writer, "    try {");
+    writeLine(writer, "    return %s;", config.valueExpression(imports));
+    writeLine(writer, "  }");
+  }
+
+  /**
+   * Writes bindings of the Configurable itself, and of a Supplier backed by it, so that long-lived
+   * objects can read the config's current value on each use without a lookup.
+   */
+  private void writeLiveBindings(Writer writer, Imports imports, ConfigMetadata config)
+      throws IOException {
+    Optional<AnnotationMetadata> qualifier = config.qualifier();
+    String annotation =
+        qualifier.isPresent()
+            ? qualifier.get().toString(imports)
+            : String.format("@ConfigValue(\"%s\")", config.name());
+    String annotationName =
+        qualifier.isPresent() ? qualifier.get().type().name() : "ConfigValue";
+    String type = config.type().toString(imports);
+
+    writeLine(writer, "");
+    writeLine(
+        writer,
+        "  /** Binds a Supplier of the current value of the config with a %s annotation. */",
+        annotationName);
+    writeLine(writer, "  @Provides");
+    writeLine(writer, "  %s", annotation);
+    writeLine(
+        writer,
+        "  public static Supplier<%s> provideSupplier_%s(Configuration configuration) {",
+        type,
+        config.name());
+    writeLine(writer, "    return %s;", config.configurableExpression(imports));
+    writeLine(writer, "  }");
+
+    writeLine(writer, "");
     writeLine(
         writer,
-        "      return (%s) configuration.get(\"%s\");",
-        config.type().toString(imports),
-        config.fullyQualifiedPathName());
-    writeLine(writer, "    } catch (ConfigException ex) {");
-    writeLine(writer, "      throw ex.wrap();");
-    writeLine(writer, "    }");
+        "  /** Binds the Configurable of the config with a %s annotation. */",
+        annotationName);
+    writeLine(writer, "  @Provides");
+    writeLine(writer, "  %s", annotation);
+    writeLine(
+        writer,
+        "  public static Configurable<%s> provideConfigurable_%s(Configuration configuration) {",
+        type,
+        config.name());
+    writeLine(writer, "    return %s;", config.configurableExpression(imports));
     writeLine(writer, "  }");
   }
 
@@ -11,6 +11,7 @@ import com.bdl.annotation.processing.model.TypeMetadata;
 import com.bdl.annotation.processing.model.ValueMetadata;
 import com.bdl.annotation.processing.model.Visibility;
 import com.bdl.config.Config;
+import com.bdl.config.IntConfigurable;
 import com.google.common.base.Charsets;
 import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
@@ -65,6 +66,24 @@ public class DaggerModulesTest {
                     .build())
             .hasDefault(true)
             .build());
+    tree.addConfig(
+        DO_NOTHING_MESSAGER,
+        ConfigMetadata.builder()
+            .field(
+                FieldMetadata.builder()
+                    .containingClass(
+                        TypeMetadata.builder()
+                            .setPackageName("com.bdl.config.things")
+                            .setName("Thing1")
+                            .addParam(simpleTypeParam("T"))
+                            .build())
+                    .name("flag3")
+                    .type(TypeMetadata.from(IntConfigurable.class))
+                    .modifiers(Modifiers.visibility(Visibility.PACKAGE_LOCAL))
+                    .build())
+            .configAnnotation(AnnotationMetadata.builder().setType(CONFIG_TYPE).build())
+            .hasDefault(true)
+            .build());
     tree.addConfig(
         DO_NOTHING_MESSAGER,
         ConfigMetadata.builder()
@@ -1,7 +1,11 @@
 package com.bdl.config.annotation.processor;
 
+import com.google.common.base.Function;
+
 import com.sun.source.util.Trees;
 
+import java.io.Writer;
+
 import javax.annotation.processing.Messager;
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.annotation.processing.SupportedAnnotationTypes;
@@ -25,9 +29,9 @@ public class GuiceConfigAnnotationProcessor extends ConfigAnnotationProcessor {
   public GuiceConfigAnnotationProcessor() {
     super(new VisitorFactory() {
       @Override
-      public ConfigPackageTree.Visitor<String> get(ProcessingEnvironment env, Messager messager) {
-        return new GuiceModuleFileWriterVisitor(
-            messager, new JavaFileObjectWriterFunction(env));
+      public ConfigPackageTree.Visitor<String> get(
+          ProcessingEnvironment env, Messager messager, Function<String, Writer> writerFunction) {
+        return new GuiceModuleFileWriterVisitor(messager, writerFunction);
       }
     });
   }
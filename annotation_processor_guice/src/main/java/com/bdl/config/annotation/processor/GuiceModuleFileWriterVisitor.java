@@ -1,29 +1,33 @@
 package com.bdl.config.annotation.processor;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
+import com.google.common.base.Supplier;
 import com.google.common.base.Throwables;
 import com.google.common.collect.FluentIterable;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Ordering;
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
+import com.google.inject.TypeLiteral;
 import com.google.inject.multibindings.Multibinder;
 
 import com.bdl.annotation.processing.model.AnnotationMetadata;
 import com.bdl.annotation.processing.model.Imports;
 import com.bdl.annotation.processing.model.TypeMetadata;
-import com.bdl.annotation.processing.model.ValueMetadata;
-import com.bdl.annotation.processing.model.Visibility;
+import com.bdl.config.ConfigAccessor;
+import com.bdl.config.ConfigBindings;
 import com.bdl.config.ConfigDescription;
-import com.bdl.config.ConfigException;
 import com.bdl.config.ConfigSupplier;
-import com.bdl.config.ConfigValue;
+import com.bdl.config.Configs;
+import com.bdl.config.Configurable;
 import com.bdl.config.Configuration;
 
 import java.io.IOException;
 import java.io.Writer;
-import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -33,16 +37,38 @@ import javax.tools.Diagnostic;
 /**
  * Implementation of {@link ConfigPackageTree.Visitor} that writes out Guice Module files.
  *
+ * <p>Configs are bound with provider instances from {@link ConfigBindings}, rather than with
+ * {@code @Provides} methods, so that Guice has no methods to scan for them. Only configs with their
+ * own binding annotation still use {@code @Provides} methods, since the annotation cannot be
+ * created at runtime. A package with more configs than fit in one module has them split among
+ * package-private shard modules, each holding a bounded number, which its module installs.
+ *
  * @author Ben Leitner
  */
 class GuiceModuleFileWriterVisitor implements ConfigPackageTree.Visitor<String> {
 
+  static final String MODULE_CLASS_NAME = "ConfigGuiceModule";
+
+  /**
+   * The most configs written to one module class, keeping each well clear of the limits on the size
+   * of a method and of a class's constant pool.
+   */
+  static final int MAX_CONFIGS_PER_MODULE = 250;
+
   private final Messager messager;
   private final Function<String, Writer> writerFunction;
+  private final int maxConfigsPerModule;
 
   GuiceModuleFileWriterVisitor(Messager messager, Function<String, Writer> writerFunction) {
+    this(messager, writerFunction, MAX_CONFIGS_PER_MODULE);
+  }
+
+  @VisibleForTesting
+  GuiceModuleFileWriterVisitor(
+      Messager messager, Function<String, Writer> writerFunction, int maxConfigsPerModule) {
     this.messager = messager;
     this.writerFunction = writerFunction;
+    this.maxConfigsPerModule = maxConfigsPerModule;
   }
 
   @Override
@@ -57,34 +83,34 @@ class GuiceModuleFileWriterVisitor implements ConfigPackageTree.Visitor<String>
     List<ConfigMetadata> orderedConfigs =
         FluentIterable.from(configs).toSortedList(Ordering.<ConfigMetadata>natural());
 
-    ImmutableSet.Builder<TypeMetadata> referencedTypes =
-        ImmutableSet.<TypeMetadata>builder()
-            .add(TypeMetadata.from(ConfigDescription.class))
-            .add(TypeMetadata.from(ConfigException.class))
-            .add(TypeMetadata.from(ConfigSupplier.class))
-            .add(TypeMetadata.from(ConfigValue.class))
-            .add(TypeMetadata.from(Configuration.class))
-            .add(TypeMetadata.from(AbstractModule.class))
-            .add(TypeMetadata.from(Provides.class))
-            .add(TypeMetadata.from(Multibinder.class));
-    for (ConfigMetadata config : configs) {
-      referencedTypes.addAll(config.getAllTypes());
-    }
-
-    Imports imports = Imports.create(packageName, referencedTypes.build());
-
     try {
-      Writer writer =
-          writerFunction.apply(PackageNameUtil.append(packageName, "ConfigGuiceModule"));
-      writeClassOpening(writer, imports, packageName);
-      writeConfigureMethod(writer, orderedChildPackages, orderedConfigs);
-      for (ConfigMetadata config : orderedConfigs) {
-        writeConfigSupplierBinding(writer, imports, config);
-        writeConfigValueBinding(writer, imports, config);
+      if (orderedConfigs.size() <= maxConfigsPerModule) {
+        writeModule(
+            packageName,
+            MODULE_CLASS_NAME,
+            orderedChildPackages,
+            ImmutableList.<String>of(),
+            orderedConfigs);
+      } else {
+        List<String> shards = Lists.newArrayList();
+        for (List<ConfigMetadata> shardConfigs :
+            Lists.partition(orderedConfigs, maxConfigsPerModule)) {
+          String shard = String.format("%sShard%d", MODULE_CLASS_NAME, shards.size());
+          writeModule(
+              packageName,
+              shard,
+              ImmutableList.<String>of(),
+              ImmutableList.<String>of(),
+              shardConfigs);
+          shards.add(shard);
+        }
+        writeModule(
+            packageName,
+            MODULE_CLASS_NAME,
+            orderedChildPackages,
+            shards,
+            ImmutableList.<ConfigMetadata>of());
       }
-      writeClassClosing(writer);
-
-      writer.close();
     } catch (IOException ex) {
       messager.printMessage(Diagnostic.Kind.ERROR, Throwables.getStackTraceAsString(ex));
     }
@@ -92,8 +118,66 @@ class GuiceModuleFileWriterVisitor implements ConfigPackageTree.Visitor<String>
     return ImmutableSet.of(packageName);
   }
 
-  private void writeClassOpening(Writer writer, Imports imports, String packageName)
+  /**
+   * Writes one module class, installing the modules of the child packages and the package's own
+   * shards, and binding the given configs.
+   */
+  private void writeModule(
+      String packageName,
+      String className,
+      List<String> childPackages,
+      List<String> shards,
+      List<ConfigMetadata> configs)
       throws IOException {
+    Imports imports = Imports.create(packageName, referencedTypes(configs));
+    Writer writer = writerFunction.apply(PackageNameUtil.append(packageName, className));
+    writeClassOpening(writer, imports, packageName, className);
+    writeConfigureMethod(writer, childPackages, shards, configs);
+    for (ConfigMetadata config : configs) {
+      writeConfigBinding(writer, imports, config);
+      if (config.bindingAnnotation().isPresent()) {
+        writeConfigValueBinding(writer, imports, config);
+        writeLiveBindings(writer, imports, config);
+      }
+    }
+    writeClassClosing(writer);
+
+    writer.close();
+  }
+
+  private Set<TypeMetadata> referencedTypes(List<ConfigMetadata> configs) {
+    ImmutableSet.Builder<TypeMetadata> referencedTypes =
+        ImmutableSet.<TypeMetadata>builder().add(TypeMetadata.from(AbstractModule.class));
+    if (configs.isEmpty()) {
+      return referencedTypes.build();
+    }
+    referencedTypes
+        .add(TypeMetadata.from(ConfigDescription.class))
+        .add(TypeMetadata.from(ConfigSupplier.class))
+        .add(TypeMetadata.from(Multibinder.class));
+    for (ConfigMetadata config : configs) {
+      if (config.isPrivate()) {
+        referencedTypes.add(TypeMetadata.from(ConfigAccessor.class));
+      }
+      if (config.bindingAnnotation().isPresent()) {
+        referencedTypes
+            .add(TypeMetadata.from(Configurable.class))
+            .add(TypeMetadata.from(Configuration.class))
+            .add(TypeMetadata.from(Supplier.class))
+            .add(TypeMetadata.from(Provides.class));
+      } else {
+        referencedTypes
+            .add(TypeMetadata.from(ConfigBindings.class))
+            .add(TypeMetadata.from(Configs.class))
+            .add(TypeMetadata.from(TypeLiteral.class));
+      }
+      referencedTypes.addAll(config.getAllTypes());
+    }
+    return referencedTypes.build();
+  }
+
+  private void writeClassOpening(
+      Writer writer, Imports imports, String packageName, String className) throws IOException {
     writeLine(writer, "package %s;", packageName);
     String previous = null;
     for (String importString : imports.getImports()) {
@@ -104,13 +188,23 @@ class GuiceModuleFileWriterVisitor implements ConfigPackageTree.Visitor<String>
       writeLine(writer, "import %s;", importString);
     }
     writeLine(writer, "");
-    writeLine(writer, "/** Guice module for binding configs in the %s package. */", packageName);
-
-    writeLine(writer, "public class ConfigGuiceModule extends AbstractModule {");
+    if (className.equals(MODULE_CLASS_NAME)) {
+      writeLine(writer, "/** Guice module for binding configs in the %s package. */", packageName);
+      writeLine(writer, "public class %s extends AbstractModule {", className);
+    } else {
+      writeLine(
+          writer,
+          "/** Guice module for binding some of the configs in the %s package. */",
+          packageName);
+      writeLine(writer, "class %s extends AbstractModule {", className);
+    }
   }
 
   private void writeConfigureMethod(
-      Writer writer, Iterable<String> childPackages, Collection<ConfigMetadata> configs)
+      Writer writer,
+      List<String> childPackages,
+      List<String> shards,
+      List<ConfigMetadata> configs)
       throws IOException {
     writeLine(writer, "");
     writeLine(writer, "  @Override");
@@ -118,7 +212,16 @@ class GuiceModuleFileWriterVisitor implements ConfigPackageTree.Visitor<String>
     boolean needsNewLine = false;
     for (String childPackage : childPackages) {
       needsNewLine = true;
-      writeLine(writer, "    install(new %s.ConfigGuiceModule());", childPackage);
+      writeLine(writer, "    install(new %s.%s());", childPackage, MODULE_CLASS_NAME);
+    }
+    if (!shards.isEmpty()) {
+      if (needsNewLine) {
+        writeLine(writer, "");
+      }
+      needsNewLine = true;
+      for (String shard : shards) {
+        writeLine(writer, "    install(new %s());", shard);
+      }
     }
     if (!configs.isEmpty()) {
       if (needsNewLine) {
@@ -128,89 +231,148 @@ class GuiceModuleFileWriterVisitor implements ConfigPackageTree.Visitor<String>
           writer,
           "    Multibinder<ConfigSupplier> supplierBinder = Multibinder.newSetBinder(binder(), ConfigSupplier.class);");
       for (ConfigMetadata config : configs) {
-        writeLine(writer, "    bindConfigSupplier_%s(supplierBinder);", config.name());
+        writeLine(writer, "    bindConfig_%s(supplierBinder);", config.name());
       }
     }
     writeLine(writer, "  }");
   }
 
-  private void writeConfigSupplierBinding(Writer writer, Imports imports, ConfigMetadata config)
+  /**
+   * Writes the method binding the config's ConfigSupplier to the set multibinder and, unless the
+   * config has its own binding annotation, its value, Supplier and Configurable.
+   */
+  private void writeConfigBinding(Writer writer, Imports imports, ConfigMetadata config)
       throws IOException {
     writeLine(writer, "");
+    writer.write(config.descriptionDeclaration(imports));
+    if (config.isPrivate()) {
+      // Private fields can't be read directly, so resolve the field once and hold on to it.
+      writeLine(writer, "");
+      writeLine(
+          writer,
+          "  /** Resolves the private config %s (%s) on first use. */",
+          config.name(),
+          config.fieldReference(imports));
+      writeLine(
+          writer,
+          "  private static final ConfigAccessor<%s> %s =",
+          config.field().type().toString(imports),
+          config.accessorName());
+      writeLine(
+          writer,
+          "      ConfigAccessor.forField(\"%s\", \"%s\");",
+          config.binaryClassName(),
+          config.field().name());
+    }
+    boolean bindsValues = !config.bindingAnnotation().isPresent();
+    writeLine(writer, "");
     writeLine(
         writer,
-        "  /** Binds a ConfigSupplier for config %s (%s) to the set multibinder. */",
+        bindsValues
+            ? "  /** Binds the ConfigSupplier and the values of config %s (%s). */"
+            : "  /** Binds a ConfigSupplier for config %s (%s) to the set multibinder. */",
         config.name(),
         config.fieldReference(imports));
-    TypeMetadata containingType = config.field().containingClass();
     writeLine(
         writer,
-        "  private void bindConfigSupplier_%s(Multibinder<ConfigSupplier> binder) {",
+        "  private void bindConfig_%s(Multibinder<ConfigSupplier> supplierBinder) {",
         config.name());
-    writeLine(writer, "    ConfigDescription description = ConfigDescription.builder()");
-    writeLine(writer, "        .packageName(\"%s\")", containingType.packageName());
-    writeLine(
-        writer,
-        "        .className(\"%s%s\")",
-        containingType.nestingPrefix(),
-        containingType.name());
-    writeLine(writer, "        .fieldName(\"%s\")", config.field().name());
-    // TODO: pass in imports
-    writeLine(writer, "        .type(\"%s\")", config.type().toString(imports));
-    ValueMetadata nameValue = config.configAnnotation().value("name");
-    if (nameValue != null) {
-      writeLine(writer, "        .specifiedName(\"%s\")", nameValue.value());
-    }
-    ValueMetadata descriptionValue = config.configAnnotation().value("desc");
-    if (descriptionValue != null) {
-      writeLine(writer, "        .description(\"%s\")", descriptionValue.value());
-    }
-    writeLine(writer, "        .build();");
-    writeLine(writer, "    binder.addBinding().toInstance(");
-
-    if (config.field().modifiers().visibility() == Visibility.PRIVATE) {
+    writeLine(writer, "    supplierBinder.addBinding().toInstance(");
+    if (config.isPrivate()) {
       // Must use a reflective supplier
-      writeLine(writer, "        ConfigSupplier.reflective(description));");
+      writeLine(writer, "        ConfigSupplier.reflective(%s));", config.descriptionName());
     } else {
       // Either public or protected/package-local and we are in the same package, so direct access ok.
       writeLine(
           writer,
-          "        ConfigSupplier.simple(description, %s));",
+          "        ConfigSupplier.simple(%s, %s));",
+          config.descriptionName(),
           config.fieldReference(imports));
     }
+    if (bindsValues) {
+      writeLine(writer, "    ConfigBindings.bindConfig(");
+      writeLine(writer, "        binder(),");
+      writeLine(writer, "        Configs.configValue(\"%s\"),", config.name());
+      writeLine(writer, "        %s,", typeLiteral(imports, config.type()));
+      writeLine(
+          writer,
+          "        %s);",
+          config.isPrivate() ? config.accessorName() : config.fieldReference(imports));
+    }
     writeLine(writer, "  }");
   }
 
+  /** Returns an expression for the TypeLiteral of the given type. */
+  private static String typeLiteral(Imports imports, TypeMetadata type) {
+    if (type.params().isEmpty()) {
+      return String.format("TypeLiteral.get(%s.class)", type.toString(imports));
+    }
+    // Parameterized types can only be captured by subclassing.
+    return String.format("new TypeLiteral<%s>() {}", type.toString(imports));
+  }
+
   private void writeConfigValueBinding(Writer writer, Imports imports, ConfigMetadata config)
       throws IOException {
+    AnnotationMetadata bindingAnnotation = config.bindingAnnotation().get();
     writeLine(writer, "");
-    Optional<AnnotationMetadata> bindingAnnotation = config.bindingAnnotation();
     writeLine(
         writer,
         "  /** Binds the type of the config with a %s annotation to the Configurable's value. */",
-        bindingAnnotation.isPresent() ? bindingAnnotation.get().type().name() : "ConfigValue");
+        bindingAnnotation.type().name());
     writeLine(writer, "  @Provides");
-    if (bindingAnnotation.isPresent()) {
-      // TODO: imports and references
-      writeLine(writer, "  %s", bindingAnnotation.get().toString(imports));
-    } else {
-      writeLine(writer, "  @ConfigValue(\"%s\")", config.name());
-    }
+    writeLine(writer, "  %s", bindingAnnotation.toString(imports));
 
+    Optional<PrimitiveConfigurable> primitive = config.primitive();
+    // The Configuration is unused, but depending on it ensures that it has been built (and so any
+    // arguments applied) before the config is first read.
     writeLine(
         writer,
         "  %s provideConfigValue_%s(Configuration configuration) {",
-        config.type().toString(imports),
+        primitive.isPresent() ? primitive.get().primitiveName() : config.type().toString(imports),
+        config.name());
+    writeLine(writer, "    return %s;", config.valueExpression(imports));
+    writeLine(writer, "  }");
+  }
+
+  /**
+   * Writes bindings of the Configurable itself, and of a Supplier backed by it, so that long-lived
+   * objects can read the config's current value on each use without a lookup.
+   */
+  private void writeLiveBindings(Writer writer, Imports imports, ConfigMetadata config)
+      throws IOException {
+    AnnotationMetadata bindingAnnotation = config.bindingAnnotation().get();
+    String annotation = bindingAnnotation.toString(imports);
+    String annotationName = bindingAnnotation.type().name();
+    String type = config.type().toString(imports);
+
+    writeLine(writer, "");
+    writeLine(
+        writer,
+        "  /** Binds a Supplier of the current value of the config with a %s annotation. */",
+        annotationName);
+    writeLine(writer, "  @Provides");
+    writeLine(writer, "  %s", annotation);
+    writeLine(
+        writer,
+        "  Supplier<%s> provideSupplier_%s(Configuration configuration) {",
+        type,
         config.name());
-    writeLine(writer, "    try {");
+    writeLine(writer, "    return %s;", config.configurableExpression(imports));
+    writeLine(writer, "  }");
+
+    writeLine(writer, "");
     writeLine(
         writer,
-        "      return (%s) configuration.get(\"%s\");",
-        config.type().toString(imports),
-        config.fullyQualifiedPathName());
-    writeLine(writer, "    } catch (ConfigException ex) {");
-    writeLine(writer, "      throw ex.wrap();");
-    writeLine(writer, "    }");
+        "  /** Binds the Configurable of the config with a %s annotation. */",
+        annotationName);
+    writeLine(writer, "  @Provides");
+    writeLine(writer, "  %s", annotation);
+    writeLine(
+        writer,
+        "  Configurable<%s> provideConfigurable_%s(Configuration configuration) {",
+        type,
+        config.name());
+    writeLine(writer, "    return %s;", config.configurableExpression(imports));
     writeLine(writer, "  }");
   }
 
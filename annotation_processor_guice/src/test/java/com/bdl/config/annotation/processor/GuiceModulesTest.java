@@ -10,6 +10,7 @@ import com.bdl.annotation.processing.model.TypeMetadata;
 import com.bdl.annotation.processing.model.ValueMetadata;
 import com.bdl.annotation.processing.model.Visibility;
 import com.bdl.config.Config;
+import com.bdl.config.IntConfigurable;
 import com.google.common.base.Charsets;
 import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
@@ -59,6 +60,24 @@ public class GuiceModulesTest {
             .configAnnotation(AnnotationMetadata.builder().setType(CONFIG_TYPE).build())
             .hasDefault(true)
             .build());
+    tree.addConfig(
+        DO_NOTHING_MESSAGER,
+        ConfigMetadata.builder()
+            .field(
+                FieldMetadata.builder()
+                    .containingClass(
+                        TypeMetadata.builder()
+                            .setPackageName("com.bdl.config.things")
+                            .setName("Thing1")
+                            .addParam(simpleTypeParam("T"))
+                            .build())
+                    .name("flag3")
+                    .type(TypeMetadata.from(IntConfigurable.class))
+                    .modifiers(Modifiers.visibility(Visibility.PACKAGE_LOCAL))
+                    .build())
+            .configAnnotation(AnnotationMetadata.builder().setType(CONFIG_TYPE).build())
+            .hasDefault(true)
+            .build());
     tree.addConfig(
         DO_NOTHING_MESSAGER,
         ConfigMetadata.builder()
@@ -243,6 +262,66 @@ public class GuiceModulesTest {
     }
   }
 
+  /** Tests that a package with more configs than fit in one module has them split into shards. */
+  @Test
+  public void testWriteShardedModules() throws Exception {
+    ConfigPackageTree tree = new ConfigPackageTree();
+    for (String name : new String[] {"shardFlag1", "shardFlag2", "shardFlag3"}) {
+      tree.addConfig(
+          DO_NOTHING_MESSAGER,
+          ConfigMetadata.builder()
+              .field(
+                  FieldMetadata.builder()
+                      .containingClass(
+                          TypeMetadata.builder()
+                              .setPackageName("com.bdl.config.sharded")
+                              .setName("Sharded")
+                              .build())
+                      .name(name)
+                      .type(configOf(TypeMetadata.STRING))
+                      .modifiers(Modifiers.visibility(Visibility.PACKAGE_LOCAL))
+                      .build())
+              .configAnnotation(AnnotationMetadata.builder().setType(CONFIG_TYPE).build())
+              .hasDefault(true)
+              .build());
+    }
+
+    tree.pullPublicAndPrivateConfigsUp();
+
+    final Map<String, Writer> writerMap = Maps.newHashMap();
+
+    GuiceModuleFileWriterVisitor guiceVisitor =
+        new GuiceModuleFileWriterVisitor(
+            DO_NOTHING_MESSAGER,
+            new Function<String, Writer>() {
+              @Override
+              public Writer apply(@Nullable String input) {
+                StringWriter writer = new StringWriter();
+                writerMap.put(input + ".txt", writer);
+                return writer;
+              }
+            },
+            2);
+
+    tree.visit(guiceVisitor);
+    assertThat(writerMap.keySet())
+        .containsExactly(
+            "com.bdl.config.sharded.ConfigGuiceModule.txt",
+            "com.bdl.config.sharded.ConfigGuiceModuleShard0.txt",
+            "com.bdl.config.sharded.ConfigGuiceModuleShard1.txt");
+
+    for (Map.Entry<String, Writer> entry : writerMap.entrySet()) {
+      URL resource =
+          Preconditions.checkNotNull(
+              getClass().getClassLoader().getResource(entry.getKey()),
+              "Could not find resource %s",
+              entry.getKey());
+      String file = Resources.toString(resource, Charsets.UTF_8);
+
+      assertThat(normalize(entry.getValue().toString())).isEqualTo(normalize(file));
+    }
+  }
+
   private static TypeMetadata configOf(TypeMetadata type) {
     return TypeMetadata.builder()
         .setPackageName("com.bdl.config")
@@ -0,0 +1,83 @@
+package com.bdl.config;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures concurrent reads of a single shared config, as when a popular config is read from every
+ * request thread.
+ *
+ * <p>The {@code legacy*} benchmarks reproduce the old read path, which stored to the read marker on
+ * every {@code get()}, to give the "before" numbers. Run once with {@code -t 1} and once with the
+ * default (all available processors) to see how each read path scales.
+ *
+ * @author Ben Leitner
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(Threads.MAX)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigurableReadBenchmark {
+
+  private Configurable<String> value;
+  private Configurable<String> flag;
+  private IntConfigurable intFlag;
+  private LegacyReadMarkingConfig<String> legacyFlag;
+
+  @Setup
+  public void setUp() {
+    value = Configurable.value("foo");
+    flag = Configurable.flag("foo");
+    intFlag = Configurable.intFlag(5);
+    legacyFlag = new LegacyReadMarkingConfig<>("foo");
+  }
+
+  @Benchmark
+  public String legacyFlagGet() {
+    return legacyFlag.get();
+  }
+
+  @Benchmark
+  public String valueGet() {
+    return value.get();
+  }
+
+  @Benchmark
+  public String flagGet() {
+    return flag.get();
+  }
+
+  @Benchmark
+  public int intFlagGetInt() {
+    return intFlag.getInt();
+  }
+
+  /** A copy of the read path before the read latch: a plain store on every read. */
+  private static final class LegacyReadMarkingConfig<T> {
+    private volatile T value;
+    private boolean read;
+
+    private LegacyReadMarkingConfig(T value) {
+      this.value = value;
+    }
+
+    T get() {
+      read = true;
+      return value;
+    }
+  }
+}
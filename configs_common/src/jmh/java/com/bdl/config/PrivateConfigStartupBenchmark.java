@@ -0,0 +1,198 @@
+package com.bdl.config;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+/**
+ * Measures the startup cost of resolving 10,000 private configs, spread over 100 classes, through
+ * {@link ReflectiveConfigSupplier}: eagerly, lazily, and lazily followed by a parallel warm-up.
+ *
+ * <p>The holder classes are generated and compiled into a temporary directory once per trial. Each
+ * invocation runs in a fresh class loader, so that every holder class is loaded and initialized
+ * cold, as at startup.
+ *
+ * @author Ben Leitner
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PrivateConfigStartupBenchmark {
+
+  private static final int CLASSES = 100;
+  private static final int CONFIGS_PER_CLASS = 100;
+  private static final String HOLDER_PACKAGE = "com.bdl.config.benchmark";
+
+  @Param({"eager", "lazy", "warmUp"})
+  public String mode;
+
+  private URL[] classpath;
+  private URLClassLoader loader;
+  private Method trial;
+  /** The Configuration built by the invocation, from the invocation's class loader. */
+  private Object configuration;
+
+  @Setup(Level.Trial)
+  public void compileHolders() throws IOException {
+    List<URL> urls = Lists.newArrayList(writeAndCompileHolders().toUri().toURL());
+    for (String entry : Splitter.on(File.pathSeparatorChar).split(classpathString())) {
+      urls.add(new File(entry).toURI().toURL());
+    }
+    classpath = urls.toArray(new URL[urls.size()]);
+  }
+
+  @Setup(Level.Invocation)
+  public void newClassLoader() throws Exception {
+    // The parent is the loader above the application's, so that this library and the holders are
+    // both loaded afresh, and see each other.
+    loader = new URLClassLoader(classpath, ClassLoader.getSystemClassLoader().getParent());
+    trial = Class.forName(Trial.class.getName(), true, loader).getMethod("run", String.class);
+  }
+
+  @TearDown(Level.Invocation)
+  public void checkAndCloseClassLoader() throws Exception {
+    // Check that every config really was resolved (or is resolvable, if lazy).
+    String last = Joiner.on('.').join(HOLDER_PACKAGE, holderName(CLASSES - 1), fieldName(0));
+    Object value =
+        configuration.getClass().getMethod("get", String.class).invoke(configuration, last);
+    if (!"0".equals(value)) {
+      throw new IllegalStateException("Resolved the wrong config for " + last);
+    }
+    configuration = null;
+    loader.close();
+  }
+
+  @Benchmark
+  public Object resolve() throws Exception {
+    configuration = trial.invoke(null, mode);
+    return configuration;
+  }
+
+  private static Path writeAndCompileHolders() throws IOException {
+    Path root = Files.createTempDirectory("config-startup-benchmark");
+    Path packageDir = root.resolve(HOLDER_PACKAGE.replace('.', File.separatorChar));
+    Files.createDirectories(packageDir);
+    List<String> sources = Lists.newArrayList();
+    for (int i = 0; i < CLASSES; i++) {
+      Path source = packageDir.resolve(holderName(i) + ".java");
+      try (Writer writer = Files.newBufferedWriter(source, StandardCharsets.UTF_8)) {
+        writer.write(String.format("package %s;%n%n", HOLDER_PACKAGE));
+        writer.write(String.format("class %s {%n", holderName(i)));
+        for (int j = 0; j < CONFIGS_PER_CLASS; j++) {
+          writer.write(
+              String.format(
+                  "  private static final com.bdl.config.Configurable<String> %s ="
+                      + " com.bdl.config.Configurable.value(\"%d\");%n",
+                  fieldName(j), j));
+        }
+        writer.write(String.format("}%n"));
+      }
+      sources.add(source.toString());
+    }
+
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    if (compiler == null) {
+      throw new IllegalStateException("The benchmark must be run on a JDK to compile its configs.");
+    }
+    List<String> compilerArgs =
+        Lists.newArrayList("-proc:none", "-cp", classpathString(), "-d", root.toString());
+    compilerArgs.addAll(sources);
+    if (compiler.run(null, null, null, compilerArgs.toArray(new String[compilerArgs.size()]))
+        != 0) {
+      throw new IllegalStateException("Unable to compile benchmark configs.");
+    }
+    return root;
+  }
+
+  private static String classpathString() {
+    return System.getProperty("java.class.path");
+  }
+
+  private static String holderName(int index) {
+    return "Holder" + index;
+  }
+
+  private static String fieldName(int index) {
+    return "config" + index;
+  }
+
+  /** A single invocation, loaded into (and run from) a fresh class loader. */
+  public static final class Trial {
+
+    private Trial() {
+      // No instantiation
+    }
+
+    /** Builds a Configuration of all of the holders' configs in the given mode. */
+    public static Object run(String mode) throws Exception {
+      List<ConfigSupplier> suppliers = Lists.newArrayList();
+      for (int i = 0; i < CLASSES; i++) {
+        for (int j = 0; j < CONFIGS_PER_CLASS; j++) {
+          suppliers.add(
+              ConfigSupplier.reflective(
+                  ConfigDescription.builder()
+                      .packageName(HOLDER_PACKAGE)
+                      .className(holderName(i))
+                      .fieldName(fieldName(j))
+                      .type("String")
+                      .build()));
+        }
+      }
+
+      ExecutorService executor =
+          Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+      try {
+        ConfigMap.Builder builder = ConfigMap.builder();
+        if (!mode.equals("eager")) {
+          builder.resolveLazily();
+        }
+        for (ConfigSupplier supplier : suppliers) {
+          builder.addConfigurable(supplier);
+        }
+        Configuration configuration = new Configuration(builder.build());
+        if (mode.equals("warmUp")) {
+          configuration.warmUp(executor).get();
+        }
+        return configuration;
+      } finally {
+        // Let the pool finish before the invocation's class loader is closed.
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+      }
+    }
+  }
+}
@@ -0,0 +1,177 @@
+package com.bdl.config;
+
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableList;
+
+import com.bdl.config.ConfigChangeListener.ListenerRegistration;
+
+/**
+ * A {@link Configurable} specialized for {@code boolean} values. Each state of the config also holds
+ * its value unboxed, so {@link #getBoolean()} can be called on hot paths without unboxing.
+ *
+ * @author Ben Leitner
+ */
+public final class BooleanConfigurable extends Configurable<Boolean> {
+
+  /** A parser that converts strings directly into {@code boolean} values. */
+  public interface BooleanParser {
+    boolean parse(String input);
+  }
+
+  /** A predicate on {@code boolean} values. */
+  public interface BooleanPredicate {
+    boolean apply(boolean value);
+  }
+
+  /** A listener for changes to a {@link BooleanConfigurable}. */
+  public interface BooleanChangeListener {
+
+    /** Notifies the listener that a change has occurred */
+    void onConfigurationChange(boolean newValue);
+  }
+
+  private BooleanConfigurable(
+      boolean defaultValue,
+      Predicate<? super Boolean> predicate,
+      Function<String, Boolean> parser,
+      boolean readOnlyAfterRead) {
+    super(Boolean.class, defaultValue, predicate, parser, readOnlyAfterRead);
+  }
+
+  /** Returns the value of this config without boxing. */
+  public boolean getBoolean() {
+    return ((BooleanState) readState()).booleanValue;
+  }
+
+  /**
+   * Sets the config to a new value.
+   *
+   * @return the prior value held by the config.
+   * @throws ConfigException if an error occurs, as for {@link #setValue(Object)}.
+   */
+  public boolean setBoolean(boolean value) throws ConfigException {
+    return setValue(value);
+  }
+
+  @Override
+  State<Boolean> newState(Boolean value, long version, boolean read) {
+    return new BooleanState(value, version, read);
+  }
+
+  /** Registers a listener to the configurable. */
+  public ListenerRegistration registerBooleanListener(BooleanChangeListener listener) {
+    return registerBooleanListener(listener, false);
+  }
+
+  /**
+   * Registers a listener to the configurable, including firing an initial event to sent the current
+   * value.
+   */
+  public ListenerRegistration registerBooleanListener(
+      final BooleanChangeListener listener, boolean listen) {
+    return registerListener(
+        new ConfigChangeListener<Boolean>() {
+          @Override
+          public void onConfigurationChange(Boolean newValue) {
+            listener.onConfigurationChange(newValue);
+          }
+        },
+        listen);
+  }
+
+  /** A config state that also holds the value unboxed. */
+  private static final class BooleanState extends State<Boolean> {
+    private final boolean booleanValue;
+
+    private BooleanState(Boolean value, long version, boolean read) {
+      super(value, version, read);
+      this.booleanValue = value;
+    }
+  }
+
+  /** Builder class for {@link BooleanConfigurable}s. */
+  public static final class Builder {
+    private boolean defaultValue;
+    private BooleanParser parser;
+    private ImmutableList.Builder<BooleanPredicate> predicates;
+    private boolean readOnlyAfterRead;
+
+    Builder() {
+      predicates = ImmutableList.builder();
+    }
+
+    public Builder withDefaultValue(boolean defaultValue) {
+      this.defaultValue = defaultValue;
+      return this;
+    }
+
+    public Builder withPredicate(BooleanPredicate predicate) {
+      predicates.add(Preconditions.checkNotNull(predicate, "Predicate cannot be null."));
+      return this;
+    }
+
+    public Builder withParser(BooleanParser parser) {
+      Preconditions.checkState(this.parser == null, "Parser already set to %s", this.parser);
+      this.parser = Preconditions.checkNotNull(parser, "Parser cannot be null.");
+      return this;
+    }
+
+    /** Indicates that the Configurable should not be writable once its value has been read. */
+    public Builder makeReadOnlyAfterRead() {
+      this.readOnlyAfterRead = true;
+      return this;
+    }
+
+    public BooleanConfigurable build() {
+      ImmutableList<BooleanPredicate> built = predicates.build();
+      Predicate<? super Boolean> predicate = Predicates.alwaysTrue();
+      if (!built.isEmpty()) {
+        predicate = new AllOf(built);
+      }
+      return new BooleanConfigurable(
+          defaultValue,
+          predicate,
+          new BoxingParser(parser == null ? Parsers.PRIMITIVE_BOOLEAN_PARSER : parser),
+          readOnlyAfterRead);
+    }
+  }
+
+  /**
+   * Adapts a list of {@link BooleanPredicate}s to the boxed predicate used by {@link Configurable}.
+   */
+  private static final class AllOf implements Predicate<Boolean> {
+    private final ImmutableList<BooleanPredicate> predicates;
+
+    private AllOf(ImmutableList<BooleanPredicate> predicates) {
+      this.predicates = predicates;
+    }
+
+    @Override
+    public boolean apply(Boolean input) {
+      boolean value = input;
+      for (BooleanPredicate predicate : predicates) {
+        if (!predicate.apply(value)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /** Adapts a {@link BooleanParser} to the boxed parser used by {@link Configurable}. */
+  private static final class BoxingParser implements Function<String, Boolean> {
+    private final BooleanParser parser;
+
+    private BoxingParser(BooleanParser parser) {
+      this.parser = parser;
+    }
+
+    @Override
+    public Boolean apply(String input) {
+      return parser.parse(input);
+    }
+  }
+}
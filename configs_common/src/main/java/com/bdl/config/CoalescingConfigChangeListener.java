@@ -0,0 +1,73 @@
+package com.bdl.config;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A {@link ConfigChangeListener} that delivers changes to another listener on an {@link Executor}.
+ * Changes that arrive while a delivery is pending are coalesced, so a slow listener only ever sees
+ * the latest value and never stalls the thread that changed the config.
+ *
+ * @author Ben Leitner
+ */
+final class CoalescingConfigChangeListener<T> implements ConfigChangeListener<T>, Runnable {
+
+  /** Marker for "no pending value", since null is a legal config value. */
+  private static final Object NONE = new Object();
+
+  private final ConfigChangeListener<? super T> delegate;
+  private final Executor executor;
+  private final AtomicReference<Object> pending;
+  private final AtomicBoolean scheduled;
+  private volatile boolean active;
+
+  CoalescingConfigChangeListener(ConfigChangeListener<? super T> delegate, Executor executor) {
+    this.delegate = delegate;
+    this.executor = executor;
+    this.pending = new AtomicReference<>(NONE);
+    this.scheduled = new AtomicBoolean(false);
+    this.active = true;
+  }
+
+  @Override
+  public void onConfigurationChange(T newValue) {
+    pending.set(newValue);
+    if (scheduled.compareAndSet(false, true)) {
+      try {
+        executor.execute(this);
+      } catch (RejectedExecutionException ex) {
+        scheduled.set(false);
+        throw ex;
+      }
+    }
+  }
+
+  /** Drains the latest pending value to the delegate. Only one drain runs at a time. */
+  @Override
+  public void run() {
+    do {
+      Object value = pending.getAndSet(NONE);
+      try {
+        if (value != NONE && active) {
+          deliver(value);
+        }
+      } finally {
+        scheduled.set(false);
+      }
+      // A change that arrived after the getAndSet above either sees scheduled == false and
+      // schedules a new drain itself, or is picked up here.
+    } while (pending.get() != NONE && scheduled.compareAndSet(false, true));
+  }
+
+  @SuppressWarnings("unchecked") // Only values of type T are ever made pending.
+  private void deliver(Object value) {
+    delegate.onConfigurationChange((T) value);
+  }
+
+  /** Stops delivery of any further changes, including one that is already pending. */
+  void cancel() {
+    active = false;
+  }
+}
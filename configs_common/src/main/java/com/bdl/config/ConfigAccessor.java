@@ -0,0 +1,50 @@
+package com.bdl.config;
+
+/**
+ * Gives generated modules access to a private {@link Configurable} field. The field is found by
+ * reflection on first use and held from then on, so reading the config through the accessor does
+ * no lookup of any kind. The held Configurable is safely published, so an accessor may be shared
+ * freely between threads.
+ *
+ * @param <C> The declared type of the Configurable field.
+ * @author Ben Leitner
+ */
+public final class ConfigAccessor<C extends Configurable<?>> {
+
+  private final String binaryClassName;
+  private final String fieldName;
+  private volatile C configurable;
+
+  private ConfigAccessor(String binaryClassName, String fieldName) {
+    this.binaryClassName = binaryClassName;
+    this.fieldName = fieldName;
+  }
+
+  /**
+   * Creates an accessor for a static Configurable field.
+   *
+   * @param binaryClassName the binary name of the class declaring the field, as from {@link
+   *     Class#getName()}.
+   * @param fieldName the name of the field.
+   */
+  public static <C extends Configurable<?>> ConfigAccessor<C> forField(
+      String binaryClassName, String fieldName) {
+    return new ConfigAccessor<>(binaryClassName, fieldName);
+  }
+
+  /**
+   * Returns the Configurable held in the field.
+   *
+   * @throws LinkageError if the field cannot be found or read.
+   */
+  @SuppressWarnings("unchecked") // Generated code declares C as the field's type.
+  public C configurable() {
+    C result = configurable;
+    if (result == null) {
+      // Racing threads resolve the same field, so whichever result is kept is correct.
+      result = (C) ReflectiveConfigSupplier.resolve(binaryClassName, fieldName);
+      configurable = result;
+    }
+    return result;
+  }
+}
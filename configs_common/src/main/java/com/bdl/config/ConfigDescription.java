@@ -5,14 +5,25 @@ import com.google.auto.value.AutoValue;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Optional;
 
+import javax.annotation.Nullable;
+
 /**
  * Data class for Configurable metadata.
  *
+ * <p>Generated modules and registries hold each config's description in a constant made with
+ * {@link #create}, which is given the fully qualified name as a (so interned) string literal.
+ *
  * @author Benjaming Leitner
  */
 @AutoValue
 public abstract class ConfigDescription {
 
+  /**
+   * Cached on first use, if not given to {@link #create}. Strings are safely published, so a race
+   * at worst computes the name twice.
+   */
+  private String fullyQualifiedFieldName;
+
   public abstract String packageName();
 
   public abstract String className();
@@ -25,6 +36,9 @@ public abstract class ConfigDescription {
 
   public abstract Optional<String> description();
 
+  /** Returns {@code false} if the Configurable was declared without a default value. */
+  public abstract boolean hasDefault();
+
   /**
    * Returns the name of the config. This is equal to the field name unless a specified name is
    * given.
@@ -42,17 +56,66 @@ public abstract class ConfigDescription {
     return s.toString();
   }
 
-  public String fullyQualifiedFieldName() {
+  /**
+   * Returns the binary name of the class declaring the field (as from {@link Class#getName()}),
+   * with {@code $} separating nested class names.
+   */
+  public String binaryClassName() {
     StringBuilder s = new StringBuilder();
     if (!packageName().isEmpty()) {
       s.append(packageName()).append(".");
     }
-    s.append(className()).append(".").append(fieldName());
+    s.append(className().replace('.', '$'));
     return s.toString();
   }
 
+  public String fullyQualifiedFieldName() {
+    String name = fullyQualifiedFieldName;
+    if (name == null) {
+      StringBuilder s = new StringBuilder();
+      if (!packageName().isEmpty()) {
+        s.append(packageName()).append(".");
+      }
+      s.append(className()).append(".").append(fieldName());
+      name = s.toString();
+      fullyQualifiedFieldName = name;
+    }
+    return name;
+  }
+
+  /**
+   * Creates a description, for generated code. The fully qualified field name must be as computed
+   * by {@link #fullyQualifiedFieldName()}.
+   */
+  public static ConfigDescription create(
+      String packageName,
+      String className,
+      String fieldName,
+      String fullyQualifiedFieldName,
+      String type,
+      @Nullable String specifiedName,
+      @Nullable String description,
+      boolean hasDefault) {
+    Builder builder =
+        builder()
+            .packageName(packageName)
+            .className(className)
+            .fieldName(fieldName)
+            .type(type)
+            .hasDefault(hasDefault);
+    if (specifiedName != null) {
+      builder.specifiedName(specifiedName);
+    }
+    if (description != null) {
+      builder.description(description);
+    }
+    ConfigDescription configDescription = builder.build();
+    configDescription.fullyQualifiedFieldName = fullyQualifiedFieldName;
+    return configDescription;
+  }
+
   public static Builder builder() {
-    return new AutoValue_ConfigDescription.Builder();
+    return new AutoValue_ConfigDescription.Builder().hasDefault(true);
   }
 
   @AutoValue.Builder
@@ -69,6 +132,8 @@ public abstract class ConfigDescription {
 
     public abstract Builder description(String description);
 
+    public abstract Builder hasDefault(boolean hasDefault);
+
     public abstract ConfigDescription build();
   }
 }
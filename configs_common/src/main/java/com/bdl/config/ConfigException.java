@@ -1,6 +1,11 @@
 package com.bdl.config;
 
 import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+import java.util.List;
+import java.util.Map;
 
 /**
  * Base exception class for exceptions that may arise when working with configs.
@@ -56,6 +61,11 @@ public class ConfigException extends Exception {
     InvalidConfigSyntaxException(String arg) {
       super(String.format("Invalid config syntax: %s", arg));
     }
+
+    /** @param position where the argument was found, e.g. as {@code [file]:[line]} */
+    InvalidConfigSyntaxException(String arg, String position) {
+      super(String.format("Invalid config syntax at %s: %s", position, arg));
+    }
   }
 
   /** An exception thrown when a config is not recognized */
@@ -155,6 +165,44 @@ public class ConfigException extends Exception {
     }
   }
 
+  /**
+   * An exception reporting every argument that could not be applied to the configs, whether
+   * malformed, naming no config or giving a config an invalid value. No argument is applied if any
+   * is reported.
+   */
+  public static class InvalidConfigArgumentsException extends ConfigException {
+
+    /** For serialization, derived by casting the start of the class name into numbers. */
+    private static final long serialVersionUID = 914221129431514L;
+
+    private final ImmutableMap<String, ConfigException> failures;
+
+    InvalidConfigArgumentsException(Map<String, ConfigException> failures) {
+      super(
+          String.format(
+              "%d config argument(s) could not be applied:%n  %s",
+              failures.size(), Joiner.on(String.format("%n  ")).join(messages(failures.values()))));
+      this.failures = ImmutableMap.copyOf(failures);
+    }
+
+    private static List<String> messages(Iterable<ConfigException> failures) {
+      List<String> messages = Lists.newArrayList();
+      for (ConfigException failure : failures) {
+        messages.add(failure.getMessage());
+      }
+      return messages;
+    }
+
+    /**
+     * Returns the failure to apply each argument, by the name of its config (or, for a malformed
+     * argument, by the argument itself, or by its {@code [file]:[line]} if read from a file).
+     * Malformed arguments come first, then the rest in the order in which they were given.
+     */
+    public Map<String, ConfigException> getFailures() {
+      return failures;
+    }
+  }
+
   /**
    * An exception thrown when an attempt is made to update a {@link Configurable} to an incompatible
    * value.
@@ -168,6 +216,13 @@ public class ConfigException extends Exception {
               newValue, oldValue));
     }
 
+    TypeMismatchException(String name, Class<?> requestedType, Class<?> actualType) {
+      super(
+          String.format(
+              "Config \"%s\" has type %s, but was requested as %s.",
+              name, actualType.getName(), requestedType.getName()));
+    }
+
     TypeMismatchException(Throwable cause) {
       super("A configuration type mismatch has occurred.", cause);
     }
@@ -0,0 +1,172 @@
+package com.bdl.config;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import com.bdl.config.ConfigException.ExternalConfigLoadException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads config assignments from a file in a single pass, handing each config's name and value
+ * straight to an {@link AssignmentSink}. The file holds one assignment per line, as {@code
+ * --[config_name]=[config_value]} (or {@code --[config_name]} for a boolean config), following the
+ * rules for arguments. Blank lines and lines starting with {@code #} or {@code //} are skipped, as
+ * is leading and trailing whitespace.
+ *
+ * <p>The whole file is decoded at once in the given charset, from a memory-mapped buffer if it is
+ * large, and then scanned without building a string per line: the only strings created are the
+ * names and values themselves.
+ *
+ * @author Ben Leitner
+ */
+final class ConfigFileParser {
+
+  /** Files at least this large are memory-mapped rather than read onto the heap. */
+  private static final long MAPPING_THRESHOLD = 1 << 20;
+
+  /** Receives the assignments read from a file. */
+  interface AssignmentSink {
+
+    /** Adds a config assignment, with a {@code null} value if none was given. */
+    void addConfig(String name, String value);
+
+    /** Reports a malformed config assignment, and where in the file it was found. */
+    void addMalformed(String assignment, String position);
+  }
+
+  private final Charset charset;
+
+  ConfigFileParser(Charset charset) {
+    this.charset = charset;
+  }
+
+  /**
+   * Reads the configs in the given file into the sink. Malformed lines are reported to the sink
+   * with their {@code [file]:[line]} positions.
+   *
+   * @throws java.nio.file.NoSuchFileException if the file does not exist.
+   * @throws ExternalConfigLoadException if the file is too large, or is not valid in this parser's
+   *     charset.
+   */
+  void parse(Path file, AssignmentSink sink) throws IOException, ExternalConfigLoadException {
+    CharBuffer chars;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new ExternalConfigLoadException(String.format("%s is too large to read.", file));
+      }
+      ByteBuffer bytes;
+      if (size >= MAPPING_THRESHOLD) {
+        bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      } else {
+        bytes = ByteBuffer.allocate((int) size);
+        while (bytes.hasRemaining() && channel.read(bytes) >= 0) {
+          // Keep reading until the buffer is full or the file ends.
+        }
+        bytes.flip();
+      }
+      chars =
+          charset
+              .newDecoder()
+              .onMalformedInput(CodingErrorAction.REPORT)
+              .onUnmappableCharacter(CodingErrorAction.REPORT)
+              .decode(bytes);
+    } catch (CharacterCodingException ex) {
+      throw new ExternalConfigLoadException(
+          String.format("%s is not valid %s.", file, charset.name()), ex);
+    }
+    parse(chars, file.toString(), sink);
+  }
+
+  /**
+   * Reads the configs in the given characters, from the named source, into the sink.
+   *
+   * <p>Lines are scanned by hand rather than matched against a pattern, but accept exactly what
+   * {@link ConfigProcessor} accepts in arguments: one or more dashes, a name of word characters
+   * not starting with a digit, and optionally {@code =} and a value. As with arguments, lines not
+   * starting with a dash are ignored, and a line of {@code --} ends the configs.
+   */
+  @VisibleForTesting
+  static void parse(CharBuffer buffer, String source, AssignmentSink sink) {
+    CharBuffer chars = buffer.slice();
+    int limit = chars.limit();
+    int lineNumber = 0;
+    int next = 0;
+    while (next < limit) {
+      lineNumber++;
+      int start = next;
+      int end = start;
+      while (end < limit && chars.get(end) != '\n') {
+        end++;
+      }
+      next = end + 1;
+
+      // Trim as String.trim() does, which also drops any '\r' before the '\n'.
+      while (start < end && chars.get(start) <= ' ') {
+        start++;
+      }
+      while (end > start && chars.get(end - 1) <= ' ') {
+        end--;
+      }
+      if (start == end || chars.get(start) == '#' || startsWith(chars, start, end, "//")) {
+        continue;
+      }
+      if (chars.get(start) != '-') {
+        continue;
+      }
+      if (end - start == 2 && chars.get(start + 1) == '-') {
+        return;
+      }
+
+      int nameStart = start + 1;
+      while (nameStart < end && chars.get(nameStart) == '-') {
+        nameStart++;
+      }
+      int nameEnd = nameStart;
+      if (nameEnd < end && isNameStart(chars.get(nameEnd))) {
+        nameEnd++;
+        while (nameEnd < end && isNamePart(chars.get(nameEnd))) {
+          nameEnd++;
+        }
+      }
+      if (nameEnd == nameStart || (nameEnd < end && chars.get(nameEnd) != '=')) {
+        sink.addMalformed(
+            chars.subSequence(start, end).toString(),
+            String.format("%s:%d", source, lineNumber));
+        continue;
+      }
+      sink.addConfig(
+          chars.subSequence(nameStart, nameEnd).toString(),
+          nameEnd < end ? chars.subSequence(nameEnd + 1, end).toString() : null);
+    }
+  }
+
+  private static boolean startsWith(CharBuffer chars, int start, int end, String prefix) {
+    if (end - start < prefix.length()) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length(); i++) {
+      if (chars.get(start + i) != prefix.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isNameStart(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+  }
+
+  private static boolean isNamePart(char c) {
+    return isNameStart(c) || (c >= '0' && c <= '9');
+  }
+}
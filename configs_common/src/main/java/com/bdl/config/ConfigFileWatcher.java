@@ -0,0 +1,387 @@
+package com.bdl.config;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import com.bdl.config.ConfigException.InvalidConfigArgumentsException;
+import com.bdl.config.ConfigException.InvalidConfigSyntaxException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps a {@link Configuration} up to date with a set of config files, reloading them as they
+ * change.
+ *
+ * <p>Each watched path is either a config file, in the format read for {@code --config_file}, or
+ * a {@code conf.d}-style directory, every file of which (other than hidden files and backups
+ * ending in {@code ~}) is a config file. The files are applied in the order in which they were
+ * added, a directory's files in the order of their names, with a later value for a config
+ * replacing an earlier one. The files may not name other sources of configs.
+ *
+ * <p>Changes are found with a {@link WatchService}. A burst of changes, such as an editor's save or
+ * a deployment rewriting several files, is handled once it has been quiet for the debounce
+ * interval. Only the files that changed are read again, and the resulting configs are compared
+ * with those last applied: only the configs whose values differ are updated, all at once as for
+ * {@link Configuration#updateAll(Map)}, and configs that are unchanged notify no listeners. A
+ * config that is no longer in any file is reset to its default.
+ *
+ * <p>If the changed files are malformed, or set a config that does not exist or to a value that
+ * is not valid, nothing is changed and the failure is reported to the {@link FailureHandler}. The
+ * next change is then compared with the configs applied before the failure, and a file that could
+ * not be read keeps its previous configs until it changes again.
+ *
+ * @author Ben Leitner
+ */
+public final class ConfigFileWatcher implements Closeable {
+
+  private static final Logger logger = Logger.getLogger(ConfigFileWatcher.class.getName());
+
+  private static final long DEFAULT_DEBOUNCE_MILLIS = 200;
+
+  /** Handles the failure to apply changed config files. */
+  public interface FailureHandler {
+
+    /**
+     * Notifies the handler that the given changed files could not be applied, so that no config
+     * was changed.
+     */
+    void onReloadFailure(Set<Path> changedFiles, Exception failure);
+  }
+
+  private final Configuration configuration;
+  private final ImmutableList<Path> paths;
+  private final long debounceMillis;
+  private final FailureHandler failureHandler;
+  private final ConfigFileParser parser;
+  private final WatchService watchService;
+  /** The directory watched by each key, which is the path itself or, for a file, its parent. */
+  private final Map<WatchKey, Path> watchedDirectories;
+
+  // Only read and written by the thread that builds the watcher and then by the watching thread.
+  /** The configs last read from each file, whether or not they could be applied. */
+  private Map<Path, Map<String, String>> configsByFile;
+  /** The configs of all the files, as last applied to the configuration. */
+  private Map<String, String> appliedConfigs;
+
+  private ConfigFileWatcher(Builder builder) throws IOException, ConfigException {
+    this.configuration = builder.configuration;
+    this.paths = builder.paths.build();
+    Preconditions.checkState(!paths.isEmpty(), "No files to watch");
+    this.debounceMillis = builder.debounceMillis;
+    this.failureHandler = builder.failureHandler;
+    this.parser = new ConfigFileParser(StandardCharsets.UTF_8);
+    this.configsByFile = ImmutableMap.of();
+    this.appliedConfigs = ImmutableMap.of();
+
+    this.watchService = paths.get(0).getFileSystem().newWatchService();
+    this.watchedDirectories = Maps.newHashMap();
+    try {
+      for (Path path : paths) {
+        Path directory = Files.isDirectory(path) ? path : path.getParent();
+        watchedDirectories.put(
+            directory.register(
+                watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE),
+            directory);
+      }
+      // Watch before the first load, so that no change made during it is missed.
+      Exception failure = reload(currentFiles());
+      if (failure instanceof ConfigException) {
+        throw (ConfigException) failure;
+      } else if (failure != null) {
+        throw (IOException) failure;
+      }
+    } catch (IOException | ConfigException | RuntimeException ex) {
+      watchService.close();
+      throw ex;
+    }
+
+    Thread thread =
+        new ThreadFactoryBuilder()
+            .setDaemon(true)
+            .setNameFormat("config-file-watcher-%d")
+            .build()
+            .newThread(
+                new Runnable() {
+                  @Override
+                  public void run() {
+                    watch();
+                  }
+                });
+    thread.start();
+  }
+
+  /** Returns a builder of a watcher that applies config files to the given configuration. */
+  public static Builder builder(Configuration configuration) {
+    return new Builder(configuration);
+  }
+
+  /** Stops watching the files. Changes not yet applied are discarded. */
+  @Override
+  public void close() throws IOException {
+    watchService.close();
+  }
+
+  private void watch() {
+    try {
+      while (true) {
+        Set<Path> changedFiles = Sets.newHashSet();
+        collect(watchService.take(), changedFiles);
+        // Wait for the burst of changes to end before reading anything.
+        WatchKey key;
+        while ((key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+          collect(key, changedFiles);
+        }
+        if (!changedFiles.isEmpty()) {
+          Exception failure;
+          try {
+            failure = reload(changedFiles);
+          } catch (RuntimeException ex) {
+            failure = ex;
+          }
+          if (failure != null) {
+            report(changedFiles, failure);
+          }
+        }
+      }
+    } catch (ClosedWatchServiceException | InterruptedException ex) {
+      // Closed, so stop watching.
+    }
+  }
+
+  /** Hands a failure to the failure handler, which must not stop the watching if it fails too. */
+  private void report(Set<Path> changedFiles, Exception failure) {
+    try {
+      failureHandler.onReloadFailure(Collections.unmodifiableSet(changedFiles), failure);
+    } catch (RuntimeException ex) {
+      logger.log(Level.WARNING, "The config file failure handler failed.", ex);
+    }
+  }
+
+  /** Adds the config files changed according to the given key's events. */
+  private void collect(WatchKey key, Set<Path> changedFiles) {
+    Path directory = watchedDirectories.get(key);
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+        // Some changes were lost, so read every file again.
+        changedFiles.addAll(configsByFile.keySet());
+        changedFiles.addAll(currentFiles());
+        continue;
+      }
+      Path file = directory.resolve((Path) event.context());
+      // A deleted file is no longer a regular file, so only directories are skipped here.
+      if (isConfigFile(file) && !Files.isDirectory(file)) {
+        changedFiles.add(file);
+      }
+    }
+    key.reset();
+  }
+
+  private boolean isConfigFile(Path file) {
+    if (paths.contains(file)) {
+      return true;
+    }
+    String name = file.getFileName().toString();
+    return paths.contains(file.getParent()) && !name.startsWith(".") && !name.endsWith("~");
+  }
+
+  /** Lists the config files that currently exist, in the order in which they are applied. */
+  private List<Path> currentFiles() {
+    List<Path> files = Lists.newArrayList();
+    for (Path path : paths) {
+      if (!Files.isDirectory(path)) {
+        files.add(path);
+        continue;
+      }
+      List<Path> directoryFiles = Lists.newArrayList();
+      try (DirectoryStream<Path> entries = Files.newDirectoryStream(path)) {
+        for (Path entry : entries) {
+          if (isConfigFile(entry) && Files.isRegularFile(entry)) {
+            directoryFiles.add(entry);
+          }
+        }
+      } catch (IOException ex) {
+        // The directory was removed, so it holds no files.
+        logger.log(Level.FINE, String.format("Unable to list %s.", path), ex);
+      }
+      Collections.sort(directoryFiles);
+      files.addAll(directoryFiles);
+    }
+    return files;
+  }
+
+  /**
+   * Reads the given changed files again, and applies the configs that differ from those last
+   * applied.
+   *
+   * @return the failure to read the files or apply their configs, or {@code null} on success.
+   */
+  private Exception reload(Iterable<Path> changedFiles) {
+    // A file that cannot be read keeps its previous configs, until it changes again.
+    Map<Path, Map<String, String>> nextConfigsByFile = Maps.newHashMap(configsByFile);
+    Map<String, ConfigException> malformed = Maps.newLinkedHashMap();
+    Exception failure = null;
+    for (Path file : changedFiles) {
+      Map<String, ConfigException> malformedInFile = Maps.newLinkedHashMap();
+      try {
+        Map<String, String> configs = read(file, malformedInFile);
+        if (malformedInFile.isEmpty()) {
+          nextConfigsByFile.put(file, configs);
+        } else {
+          malformed.putAll(malformedInFile);
+        }
+      } catch (NoSuchFileException ex) {
+        nextConfigsByFile.remove(file);
+      } catch (IOException | ConfigException ex) {
+        failure = ex;
+      }
+    }
+    configsByFile = nextConfigsByFile;
+    if (failure != null) {
+      return failure;
+    }
+    if (!malformed.isEmpty()) {
+      return new InvalidConfigArgumentsException(malformed);
+    }
+
+    Map<String, String> nextConfigs = Maps.newLinkedHashMap();
+    for (Path file : currentFiles()) {
+      Map<String, String> configs = configsByFile.get(file);
+      if (configs != null) {
+        nextConfigs.putAll(configs);
+      }
+    }
+    // Values may be null, for boolean configs given without one.
+    Map<String, String> changedConfigs = Maps.newLinkedHashMap();
+    for (Map.Entry<String, String> entry : nextConfigs.entrySet()) {
+      String name = entry.getKey();
+      if (!appliedConfigs.containsKey(name)
+          || !Objects.equal(appliedConfigs.get(name), entry.getValue())) {
+        changedConfigs.put(name, entry.getValue());
+      }
+    }
+    Map<String, String> removedConfigs = Maps.newLinkedHashMap();
+    for (Map.Entry<String, String> entry : appliedConfigs.entrySet()) {
+      if (!nextConfigs.containsKey(entry.getKey())) {
+        removedConfigs.put(entry.getKey(), entry.getValue());
+      }
+    }
+    if (changedConfigs.isEmpty() && removedConfigs.isEmpty()) {
+      return null;
+    }
+
+    try {
+      configuration.updateAllFromArguments(changedConfigs, removedConfigs);
+    } catch (ConfigException ex) {
+      return ex;
+    }
+    appliedConfigs = nextConfigs;
+    return null;
+  }
+
+  /** Reads the configs in the given file, adding its malformed lines to {@code malformed}. */
+  private Map<String, String> read(Path file, final Map<String, ConfigException> malformed)
+      throws IOException, ConfigException {
+    final Map<String, String> configs = Maps.newLinkedHashMap();
+    parser.parse(
+        file,
+        new ConfigFileParser.AssignmentSink() {
+          @Override
+          public void addConfig(String name, String value) {
+            configs.put(name, value);
+          }
+
+          @Override
+          public void addMalformed(String assignment, String position) {
+            malformed.put(position, new InvalidConfigSyntaxException(assignment, position));
+          }
+        });
+    return configs;
+  }
+
+  /** Builds a {@link ConfigFileWatcher}. */
+  public static final class Builder {
+    private final Configuration configuration;
+    private final ImmutableList.Builder<Path> paths;
+    private long debounceMillis;
+    private FailureHandler failureHandler;
+
+    private Builder(Configuration configuration) {
+      this.configuration = Preconditions.checkNotNull(configuration);
+      this.paths = ImmutableList.builder();
+      this.debounceMillis = DEFAULT_DEBOUNCE_MILLIS;
+      this.failureHandler =
+          new FailureHandler() {
+            @Override
+            public void onReloadFailure(Set<Path> changedFiles, Exception failure) {
+              logger.log(
+                  Level.WARNING,
+                  String.format("Unable to reload configs from %s.", changedFiles),
+                  failure);
+            }
+          };
+    }
+
+    /**
+     * Adds a config file, or a directory of config files, to watch. A file need not exist yet,
+     * but its directory must.
+     */
+    public Builder watch(Path fileOrDirectory) {
+      paths.add(fileOrDirectory.toAbsolutePath().normalize());
+      return this;
+    }
+
+    /**
+     * Sets how long the files must go unchanged before changes are applied. The default is 200
+     * milliseconds.
+     */
+    public Builder debounce(long duration, TimeUnit unit) {
+      Preconditions.checkArgument(duration >= 0, "Negative debounce interval %s", duration);
+      this.debounceMillis = unit.toMillis(duration);
+      return this;
+    }
+
+    /** Sets the handler of failures to apply changed files. By default, they are logged. */
+    public Builder onFailure(FailureHandler failureHandler) {
+      this.failureHandler = Preconditions.checkNotNull(failureHandler);
+      return this;
+    }
+
+    /**
+     * Applies the files to the configuration, and starts watching them for changes.
+     *
+     * @throws IOException if the files cannot be watched or read.
+     * @throws ConfigException if the files cannot be applied, as for {@link
+     *     Configuration#updateAllAsStrings(Map)}.
+     */
+    public ConfigFileWatcher start() throws IOException, ConfigException {
+      return new ConfigFileWatcher(this);
+    }
+  }
+}
@@ -0,0 +1,442 @@
+package com.bdl.config;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Primitives;
+
+import com.bdl.config.ConfigException.ExternalConfigLoadException;
+import com.bdl.config.ConfigException.TypeMismatchException;
+import com.bdl.config.ConfigException.UnrecognizedConfigException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compiled set of config values, in a compact binary form that can be loaded without parsing any
+ * text.
+ *
+ * <p>{@link #write(Configuration, Path)} writes an image of any {@link Configuration}, naming each
+ * config by its fully qualified name; an image may also be built with a {@link Writer}, a {@link
+ * ConfigObjectWriter} whose names are looked up as they are given. Running this class's {@link
+ * #main(String[])} as a build step writes an image of the configs of every {@link ConfigRegistry}
+ * on the classpath, with a set of arguments applied: every argument (and every config file it
+ * names) is parsed and checked then, rather than at each start.
+ *
+ * <p>{@link #open(Path)} memory-maps an image, checking only its layout. {@link
+ * Configuration#fromImage(ConfigImage)} then sets each config from it without decoding anything,
+ * and each value is decoded when its config is first used, as with deferred parsing. {@link
+ * #applyTo(Configuration)} imports an image into a running Configuration instead.
+ *
+ * <p>The image holds, for each config, its name, a tag for the value's encoding and the encoded
+ * value. Booleans, numbers, strings, enums, classes and lists of strings are stored in binary; any
+ * other value is stored as its {@code toString()}, and decoded with the config's parser, so it
+ * must survive that round trip. A {@code null} value is not stored.
+ *
+ * @author Ben Leitner
+ */
+public final class ConfigImage {
+
+  /** Starts every image: "BDLC" in ASCII. */
+  private static final int MAGIC = 0x42444c43;
+
+  private static final int VERSION = 1;
+
+  /** The magic number, the version and the number of entries. */
+  private static final int HEADER_SIZE = 12;
+
+  /** The tag, then the offset and length of the name and of the value. */
+  private static final int ENTRY_SIZE = 17;
+
+  private static final byte TAG_BOOLEAN = 1;
+  private static final byte TAG_INT = 2;
+  private static final byte TAG_LONG = 3;
+  private static final byte TAG_DOUBLE = 4;
+  private static final byte TAG_STRING = 5;
+  private static final byte TAG_ENUM = 6;
+  private static final byte TAG_CLASS = 7;
+  private static final byte TAG_STRING_LIST = 8;
+  private static final byte TAG_TEXT = 9;
+
+  private final String source;
+  private final ByteBuffer buffer;
+  private final int size;
+
+  private ConfigImage(String source, ByteBuffer buffer, int size) {
+    this.source = source;
+    this.buffer = buffer;
+    this.size = size;
+  }
+
+  /**
+   * Memory-maps the image in the given file. Values are not decoded until they are used.
+   *
+   * @throws ExternalConfigLoadException if the file is not a valid image.
+   */
+  public static ConfigImage open(Path file) throws IOException, ConfigException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new ExternalConfigLoadException(String.format("%s is too large to read.", file));
+      }
+      return of(file.toString(), channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  /**
+   * Reads an image from the given buffer, checking that every entry lies within it.
+   *
+   * @throws ExternalConfigLoadException if the buffer does not hold a valid image.
+   */
+  @VisibleForTesting
+  static ConfigImage of(String source, ByteBuffer buffer) throws ConfigException {
+    if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+      throw invalid(source, "not a config image");
+    }
+    if (buffer.getInt(4) != VERSION) {
+      throw invalid(source, String.format("of unsupported version %d", buffer.getInt(4)));
+    }
+    int size = buffer.getInt(8);
+    if (size < 0 || size > (buffer.limit() - HEADER_SIZE) / ENTRY_SIZE) {
+      throw invalid(source, "truncated");
+    }
+    ConfigImage image = new ConfigImage(source, buffer, size);
+    int dataStart = HEADER_SIZE + size * ENTRY_SIZE;
+    for (int i = 0; i < size; i++) {
+      int entry = image.entryAt(i);
+      byte tag = buffer.get(entry);
+      if (tag < TAG_BOOLEAN || tag > TAG_TEXT
+          || !image.inBounds(dataStart, entry + 1)
+          || !image.inBounds(dataStart, entry + 9)) {
+        throw invalid(source, String.format("corrupt at entry %d", i));
+      }
+    }
+    return image;
+  }
+
+  private static ExternalConfigLoadException invalid(String source, String problem) {
+    return new ExternalConfigLoadException(
+        String.format("%s is %s, and cannot be loaded.", source, problem));
+  }
+
+  /** Returns the number of config values in the image. */
+  public int size() {
+    return size;
+  }
+
+  /** Returns the names of the configs in the image, in the order in which they were written. */
+  public List<String> names() {
+    List<String> names = Lists.newArrayListWithCapacity(size);
+    for (int i = 0; i < size; i++) {
+      names.add(nameAt(i));
+    }
+    return names;
+  }
+
+  /**
+   * Sets each config in the given map from the image, to be decoded when the config is first used.
+   *
+   * @throws UnrecognizedConfigException if the image holds a config that is not in the map.
+   */
+  void applyLazily(ConfigMap configs) throws ConfigException {
+    for (int i = 0; i < size; i++) {
+      String name = nameAt(i);
+      Configurable<?> config = configs.getOrNull(name);
+      if (config == null) {
+        throw new UnrecognizedConfigException(name);
+      }
+      config.setLazily(new ImageValue(name, entryAt(i)));
+    }
+  }
+
+  /**
+   * Decodes every value in the image, and applies them to the given configuration as a single
+   * atomic change, as for {@link Configuration#updateAll(Map)}.
+   *
+   * @throws ConfigException if a value cannot be decoded, or cannot be applied.
+   */
+  public void applyTo(Configuration configuration) throws ConfigException {
+    Map<String, Object> values = Maps.newLinkedHashMap();
+    for (int i = 0; i < size; i++) {
+      String name = nameAt(i);
+      Configurable<?> config = configuration.configurable(name);
+      values.put(name, new ImageValue(name, entryAt(i)).decode(config));
+    }
+    configuration.updateAll(values);
+  }
+
+  private int entryAt(int index) {
+    return HEADER_SIZE + index * ENTRY_SIZE;
+  }
+
+  /** Returns {@code true} if the offset and length at the given position lie in the data. */
+  private boolean inBounds(int dataStart, int position) {
+    int offset = buffer.getInt(position);
+    int length = buffer.getInt(position + 4);
+    return offset >= dataStart && length >= 0 && offset <= buffer.limit() - length;
+  }
+
+  private String nameAt(int index) {
+    int entry = entryAt(index);
+    return decodeString(buffer.getInt(entry + 1), buffer.getInt(entry + 5));
+  }
+
+  private String decodeString(int offset, int length) {
+    ByteBuffer bytes = buffer.duplicate();
+    bytes.limit(offset + length).position(offset);
+    return StandardCharsets.UTF_8.decode(bytes).toString();
+  }
+
+  /** A value in the image, decoded for its config when first used. */
+  private final class ImageValue implements Configurable.EncodedValue {
+    private final String name;
+    private final byte tag;
+    private final int offset;
+    private final int length;
+
+    ImageValue(String name, int entry) {
+      this.name = name;
+      this.tag = buffer.get(entry);
+      this.offset = buffer.getInt(entry + 9);
+      this.length = buffer.getInt(entry + 13);
+    }
+
+    @Override
+    public Object decode(Configurable<?> config) throws ConfigException {
+      if (tag == TAG_TEXT) {
+        return config.parse(decodeString(offset, length));
+      }
+      Object value = decodeBinary(config.getType());
+      if (!Primitives.wrap(config.getType()).isInstance(value)
+          && !(value instanceof List && List.class.isAssignableFrom(config.getType()))) {
+        throw new TypeMismatchException(name, value.getClass(), config.getType());
+      }
+      return value;
+    }
+
+    private Object decodeBinary(Class<?> type) throws ConfigException {
+      ByteBuffer bytes = buffer.duplicate();
+      bytes.limit(offset + length).position(offset);
+      try {
+        switch (tag) {
+          case TAG_BOOLEAN:
+            return bytes.get() != 0;
+          case TAG_INT:
+            return bytes.getInt();
+          case TAG_LONG:
+            return bytes.getLong();
+          case TAG_DOUBLE:
+            return bytes.getDouble();
+          case TAG_STRING:
+            return decodeString(offset, length);
+          case TAG_ENUM:
+            return enumValue(type, decodeString(offset, length));
+          case TAG_CLASS:
+            return Class.forName(decodeString(offset, length));
+          case TAG_STRING_LIST:
+            ImmutableList.Builder<String> list = ImmutableList.builder();
+            for (int count = bytes.getInt(); count > 0; count--) {
+              int elementLength = bytes.getInt();
+              list.add(decodeString(bytes.position(), elementLength));
+              bytes.position(bytes.position() + elementLength);
+            }
+            return list.build();
+          default:
+            throw new IllegalStateException(String.format("Unknown tag %d", tag));
+        }
+      } catch (RuntimeException | ClassNotFoundException ex) {
+        throw new ExternalConfigLoadException(
+            String.format("Unable to decode the value of %s from %s.", name, source), ex);
+      }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"}) // The type is checked to be an enum.
+    private Object enumValue(Class<?> type, String constant) throws ConfigException {
+      if (!type.isEnum()) {
+        throw new TypeMismatchException(name, Enum.class, type);
+      }
+      return Enum.valueOf((Class) type, constant);
+    }
+
+    @Override
+    public String toString() {
+      return String.format("<value of %s in %s>", name, source);
+    }
+  }
+
+  /** Returns a writer of an image, for {@link Configuration#writeTo(ConfigObjectWriter)}. */
+  public static Writer writer() {
+    return new Writer();
+  }
+
+  /** Collects config values, and writes them out as an image. */
+  public static final class Writer implements ConfigObjectWriter {
+    private final List<String> names = Lists.newArrayList();
+    private final List<Byte> tags = Lists.newArrayList();
+    private final List<byte[]> values = Lists.newArrayList();
+
+    private Writer() {}
+
+    @Override
+    public void write(String key, Object value) {
+      if (value == null) {
+        return;
+      }
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (DataOutputStream out = new DataOutputStream(bytes)) {
+        tags.add(encode(value, out));
+      } catch (IOException ex) {
+        // Should never happen, since the stream is in memory.
+        throw new IllegalStateException(ex);
+      }
+      names.add(key);
+      values.add(bytes.toByteArray());
+    }
+
+    private static byte encode(Object value, DataOutputStream out) throws IOException {
+      if (value instanceof Boolean) {
+        out.writeBoolean((Boolean) value);
+        return TAG_BOOLEAN;
+      } else if (value instanceof Integer) {
+        out.writeInt((Integer) value);
+        return TAG_INT;
+      } else if (value instanceof Long) {
+        out.writeLong((Long) value);
+        return TAG_LONG;
+      } else if (value instanceof Double) {
+        out.writeDouble((Double) value);
+        return TAG_DOUBLE;
+      } else if (value instanceof String) {
+        out.write(((String) value).getBytes(StandardCharsets.UTF_8));
+        return TAG_STRING;
+      } else if (value instanceof Enum) {
+        out.write(((Enum<?>) value).name().getBytes(StandardCharsets.UTF_8));
+        return TAG_ENUM;
+      } else if (value instanceof Class) {
+        out.write(((Class<?>) value).getName().getBytes(StandardCharsets.UTF_8));
+        return TAG_CLASS;
+      } else if (isStringList(value)) {
+        List<?> list = (List<?>) value;
+        out.writeInt(list.size());
+        for (Object element : list) {
+          byte[] elementBytes = ((String) element).getBytes(StandardCharsets.UTF_8);
+          out.writeInt(elementBytes.length);
+          out.write(elementBytes);
+        }
+        return TAG_STRING_LIST;
+      }
+      out.write(value.toString().getBytes(StandardCharsets.UTF_8));
+      return TAG_TEXT;
+    }
+
+    private static boolean isStringList(Object value) {
+      if (!(value instanceof List)) {
+        return false;
+      }
+      for (Object element : (List<?>) value) {
+        if (!(element instanceof String)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /** Returns the image of the values written so far. */
+    byte[] toByteArray() {
+      byte[][] encodedNames = new byte[names.size()][];
+      for (int i = 0; i < names.size(); i++) {
+        encodedNames[i] = names.get(i).getBytes(StandardCharsets.UTF_8);
+      }
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (DataOutputStream out = new DataOutputStream(bytes)) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(names.size());
+        int offset = HEADER_SIZE + names.size() * ENTRY_SIZE;
+        for (int i = 0; i < names.size(); i++) {
+          out.writeByte(tags.get(i));
+          out.writeInt(offset);
+          out.writeInt(encodedNames[i].length);
+          offset += encodedNames[i].length;
+          out.writeInt(offset);
+          out.writeInt(values.get(i).length);
+          offset += values.get(i).length;
+        }
+        for (int i = 0; i < names.size(); i++) {
+          out.write(encodedNames[i]);
+          out.write(values.get(i));
+        }
+      } catch (IOException ex) {
+        // Should never happen, since the stream is in memory.
+        throw new IllegalStateException(ex);
+      }
+      return bytes.toByteArray();
+    }
+
+    /**
+     * Writes the image to the given file, replacing it atomically, so that a process starting
+     * meanwhile sees either the old image or the new one.
+     */
+    public void writeTo(Path file) throws IOException {
+      Path absolute = file.toAbsolutePath();
+      Path temporary =
+          Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+      try {
+        Files.write(temporary, toByteArray());
+        Files.move(
+            temporary,
+            absolute,
+            StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(temporary);
+      }
+    }
+  }
+
+  /**
+   * Compiles the configs of every {@link ConfigRegistry} on the classpath, with the given arguments
+   * applied, into an image in the given file.
+   *
+   * @throws ConfigRuntimeException if an argument is malformed, names no config, or gives a config
+   *     an invalid value.
+   */
+  public static void compile(Iterable<String> arguments, Path file) throws IOException {
+    write(Configuration.fromRegistry(arguments), file);
+  }
+
+  /**
+   * Writes the values of the given configuration's configs to an image in the given file, under
+   * their fully qualified names, so that each is found by the same config wherever the image is
+   * loaded.
+   */
+  public static void write(Configuration configuration, Path file) throws IOException {
+    Writer writer = writer();
+    configuration.writeWithFullNamesTo(writer);
+    writer.writeTo(file);
+  }
+
+  /**
+   * Compiles an image, as a build step: the first argument is the file to write, and the rest are
+   * the config arguments to apply.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1) {
+      System.err.println("Usage: ConfigImage <image file> [config arguments...]");
+      System.exit(1);
+    }
+    compile(Arrays.asList(args).subList(1, args.length), Paths.get(args[0]));
+  }
+}
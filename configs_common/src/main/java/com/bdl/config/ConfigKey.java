@@ -0,0 +1,48 @@
+package com.bdl.config;
+
+/**
+ * A handle to a single config, resolved once by name and type with {@link
+ * Configuration#key(String, Class)}.
+ *
+ * <p>Reading through a key does no name lookup and no casting, so code that would otherwise call
+ * {@link Configuration#get(String)} repeatedly should resolve a key once and keep it.
+ *
+ * @param <T> The type of value contained in the config.
+ * @author Ben Leitner
+ */
+public final class ConfigKey<T> {
+
+  private final String name;
+  private final int slot;
+  private final Configurable<T> configurable;
+
+  ConfigKey(String name, int slot, Configurable<T> configurable) {
+    this.name = name;
+    this.slot = slot;
+    this.configurable = configurable;
+  }
+
+  /** Returns the current value of the config. */
+  public T get() {
+    return configurable.get();
+  }
+
+  /** Returns the name by which this key was resolved. */
+  public String getName() {
+    return name;
+  }
+
+  /** Returns the slot of the config in the {@link Configuration} that resolved this key. */
+  int getSlot() {
+    return slot;
+  }
+
+  Configurable<T> getConfigurable() {
+    return configurable;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("ConfigKey{%s}", name);
+  }
+}
@@ -1,36 +1,72 @@
 package com.bdl.config;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.collect.ImmutableListMultimap;
-import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.ImmutableMultimap;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Iterables;
+import com.google.common.collect.LinkedListMultimap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
-import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
 
-import com.bdl.config.ConfigException.AmbiguousConfigException;
 import com.bdl.config.ConfigException.UnrecognizedConfigException;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Class to allow for multi-lookup of Configurables, by short name if unique or by fully qualified
- * name.
+ * name. Names are looked up in a {@link ConfigNameIndex}.
+ *
+ * <p>Each configurable is held in a fixed slot. A map built with {@link Builder#resolveLazily()}
+ * knows each config's name from its {@link ConfigDescription}, but only obtains the Configurable
+ * from its {@link ConfigSupplier} (which, for a private field, loads and initializes the class
+ * holding it) the first time the config is looked up.
  *
  * @author Ben Leitner
  */
 class ConfigMap {
 
-  private final Map<String, Configurable<?>> configs;
-  private final Multimap<String, String> names;
+  /** Told of each configurable as it is resolved from its supplier. */
+  interface ResolutionListener {
+    void onResolved(int slot, Configurable<?> configurable);
+  }
+
+  private final ConfigNameIndex names;
+  /** The supplier for each slot, or {@code null} where the configurable was given directly. */
+  private final ConfigSupplier[] suppliers;
+  /** The configurable in each slot, or {@code null} if it has not been resolved yet. */
+  private final AtomicReferenceArray<Configurable<?>> resolved;
+  /**
+   * Guards publication of newly resolved configurables, so that each resolution listener is told
+   * of every configurable exactly once, before the configurable can be seen by any other caller.
+   */
+  private final Object resolutionLock;
+  private final List<ResolutionListener> resolutionListeners;
 
   @VisibleForTesting
   ConfigMap(Map<String, Configurable<?>> configs, Multimap<String, String> names) {
-    this.configs = configs;
+    this(
+        ConfigNameIndex.of(ImmutableList.copyOf(configs.keySet()), names),
+        new ConfigSupplier[configs.size()]);
+    int slot = 0;
+    for (Configurable<?> configurable : configs.values()) {
+      resolved.set(slot++, configurable);
+    }
+  }
+
+  private ConfigMap(ConfigNameIndex names, ConfigSupplier[] suppliers) {
     this.names = names;
+    this.suppliers = suppliers;
+    this.resolved = new AtomicReferenceArray<>(names.size());
+    this.resolutionLock = new Object();
+    this.resolutionListeners = Lists.newArrayList();
   }
 
   Configurable<?> getOrThrow(String key) {
@@ -42,20 +78,114 @@ class ConfigMap {
   }
 
   Configurable<?> getOrNull(String key) {
-    Collection<String> fullNames = names.get(key);
-    if (fullNames != null && fullNames.size() == 1) {
-      return configs.get(Iterables.getOnlyElement(fullNames));
+    int slot = names.slotOf(key);
+    return slot == ConfigNameIndex.NO_SLOT ? null : configurableAt(slot);
+  }
+
+  /** Returns the slot of the configurable with the given name, or throws if there is none. */
+  int slotOrThrow(String key) {
+    int slot = names.slotOf(key);
+    if (slot == ConfigNameIndex.NO_SLOT) {
+      throw new UnrecognizedConfigException(key).wrap();
+    }
+    return slot;
+  }
+
+  /** Returns the configurable in the given slot, resolving it if need be. */
+  Configurable<?> configurableAt(int slot) {
+    Configurable<?> configurable = resolved.get(slot);
+    return configurable != null ? configurable : resolve(slot);
+  }
+
+  /** Returns the configurable in the given slot, or {@code null} if it has not been resolved. */
+  Configurable<?> resolvedAt(int slot) {
+    return resolved.get(slot);
+  }
+
+  private Configurable<?> resolve(int slot) {
+    // Loading the class is the slow part, so it is done outside of the lock. Suppliers always
+    // resolve to the same configurable, so losing a race here does no harm.
+    Configurable<?> configurable = suppliers[slot].getConfigurable();
+    synchronized (resolutionLock) {
+      Configurable<?> existing = resolved.get(slot);
+      if (existing != null) {
+        return existing;
+      }
+      for (ResolutionListener listener : resolutionListeners) {
+        listener.onResolved(slot, configurable);
+      }
+      resolved.set(slot, configurable);
+    }
+    return configurable;
+  }
+
+  /**
+   * Adds a listener to be told of each configurable as it is resolved. The listener is told at once
+   * of the configurables resolved already.
+   */
+  void addResolutionListener(ResolutionListener listener) {
+    synchronized (resolutionLock) {
+      resolutionListeners.add(listener);
+      for (int slot = 0; slot < resolved.length(); slot++) {
+        Configurable<?> configurable = resolved.get(slot);
+        if (configurable != null) {
+          listener.onResolved(slot, configurable);
+        }
+      }
+    }
+  }
+
+  /**
+   * Resolves every configurable not yet resolved, in tasks run on the given executor. The
+   * configurables held by one class are resolved together, and those of different classes in
+   * parallel (as far as the executor allows).
+   *
+   * @return a future that completes once every configurable is resolved, or fails if any cannot
+   *     be.
+   */
+  ListenableFuture<?> resolveAll(Executor executor) {
+    Multimap<String, Integer> slotsByClass = LinkedListMultimap.create();
+    for (int slot = 0; slot < resolved.length(); slot++) {
+      if (resolved.get(slot) == null) {
+        slotsByClass.put(suppliers[slot].getDescription().fullyQualifiedClassName(), slot);
+      }
     }
-    if (fullNames != null && fullNames.size() > 1) {
-      throw new AmbiguousConfigException(key, fullNames).wrap();
+    List<ListenableFuture<?>> tasks = Lists.newArrayList();
+    for (final Collection<Integer> slots : slotsByClass.asMap().values()) {
+      ListenableFutureTask<?> task =
+          ListenableFutureTask.create(
+              new Runnable() {
+                @Override
+                public void run() {
+                  for (int slot : slots) {
+                    configurableAt(slot);
+                  }
+                }
+              },
+              null);
+      executor.execute(task);
+      tasks.add(task);
     }
-    // null or empty.
-    return configs.get(key);
+    return Futures.allAsList(tasks);
   }
 
-  /** Returns a set of all registered {@link Configurable}s. */
+  /** Returns the fully qualified name of the configurable in the given slot. */
+  String fullNameAt(int slot) {
+    return names.fullNameAt(slot);
+  }
+
+  /** Returns the number of configurables, which is also the number of slots. */
+  int size() {
+    return names.size();
+  }
+
+  /** Returns a set of all registered {@link Configurable}s, resolving any not yet resolved. */
   Set<Configurable<?>> allConfigurables() {
-    return ImmutableSet.copyOf(configs.values());
+    ImmutableSet.Builder<Configurable<?>> configurables = ImmutableSet.builder();
+    for (int slot = 0; slot < size(); slot++) {
+      configurables.add(configurableAt(slot));
+    }
+    return configurables.build();
   }
 
   /**
@@ -63,20 +193,7 @@ class ConfigMap {
    * unambiguous.
    */
   Set<String> allKeys() {
-    ImmutableSet.Builder<String> keys = ImmutableSet.builder();
-    Set<String> unneeded = Sets.newHashSet();
-    for (Map.Entry<String, Collection<String>> entry : names.asMap().entrySet()) {
-      if (entry.getValue().size() == 1) {
-        keys.add(entry.getKey());
-        unneeded.add(Iterables.getOnlyElement(entry.getValue()));
-      }
-    }
-    for (String key : configs.keySet()) {
-      if (!unneeded.contains(key)) {
-        keys.add(key);
-      }
-    }
-    return keys.build();
+    return names.preferredNames();
   }
 
   static Builder builder() {
@@ -85,23 +202,65 @@ class ConfigMap {
 
   /** Builder class for the config map. */
   static class Builder {
-    private ImmutableMap.Builder<String, Configurable<?>> configs;
-    private ImmutableMultimap.Builder<String, String> names;
+    private ImmutableList.Builder<ConfigSupplier> suppliers;
+    private ConfigNameIndex names;
+    private boolean lazy;
 
     private Builder() {
-      this.configs = ImmutableMap.builder();
-      this.names = ImmutableListMultimap.builder();
+      this.suppliers = ImmutableList.builder();
+    }
+
+    /**
+     * Defers obtaining each Configurable from its supplier until the config is first looked up,
+     * rather than obtaining them all when the map is built.
+     */
+    Builder resolveLazily() {
+      lazy = true;
+      return this;
+    }
+
+    /**
+     * Uses the given index, such as one built at compile time, rather than building one. The
+     * index's slots must name the configurables in the order in which they are added.
+     */
+    Builder nameIndex(ConfigNameIndex names) {
+      this.names = names;
+      return this;
     }
 
     Builder addConfigurable(ConfigSupplier configSupplier) {
-      ConfigDescription description = configSupplier.getDescription();
-      configs.put(description.fullyQualifiedFieldName(), configSupplier.getConfigurable());
-      names.put(description.name(), description.fullyQualifiedFieldName());
+      suppliers.add(configSupplier);
       return this;
     }
 
     ConfigMap build() {
-      return new ConfigMap(configs.build(), names.build());
+      ImmutableList<ConfigSupplier> suppliers = this.suppliers.build();
+      List<ConfigDescription> descriptions = Lists.newArrayListWithCapacity(suppliers.size());
+      for (ConfigSupplier supplier : suppliers) {
+        descriptions.add(supplier.getDescription());
+      }
+      ConfigNameIndex names = this.names;
+      if (names == null) {
+        names = ConfigNameIndex.of(descriptions);
+      } else {
+        Preconditions.checkArgument(
+            names.size() == descriptions.size(),
+            "The name index has %s slots, for %s configs.",
+            names.size(),
+            descriptions.size());
+        for (int slot = 0; slot < descriptions.size(); slot++) {
+          Preconditions.checkArgument(
+              names.fullNameAt(slot).equals(descriptions.get(slot).fullyQualifiedFieldName()),
+              "The name index does not match the configs at slot %s.",
+              slot);
+        }
+      }
+      ConfigMap map =
+          new ConfigMap(names, suppliers.toArray(new ConfigSupplier[suppliers.size()]));
+      if (!lazy) {
+        map.allConfigurables();
+      }
+      return map;
     }
   }
 }
@@ -0,0 +1,335 @@
+package com.bdl.config;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.LinkedListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+
+import com.bdl.config.ConfigException.AmbiguousConfigException;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A minimal perfect hash table from config names, both short and fully qualified, to the slots of
+ * a {@link ConfigMap}. Names that match more than one config are found to be ambiguous when the
+ * index is built, so a lookup is one hash, one array index and one string comparison.
+ *
+ * <p>The annotation processor builds the index of each {@link ConfigRegistry} at compile time, and
+ * writes out the arrays for the generated registry to pass to the constructor. Apart from that,
+ * indices should be made with {@link #of(List)}.
+ *
+ * <p>The table uses "hash and displace": each name falls into a bucket by its (cached) {@link
+ * String#hashCode()}, and each bucket holds either the table position of its one name, or a seed
+ * for a second hash that places all of its names without collision.
+ *
+ * @author Ben Leitner
+ */
+public final class ConfigNameIndex {
+
+  /** Returned by {@link #slotOf(String)} for a name that matches no config. */
+  static final int NO_SLOT = -1;
+
+  private static final int FNV_OFFSET_BASIS = 0x811C9DC5;
+  private static final int FNV_PRIME = 0x01000193;
+
+  private final String[] keys;
+  /**
+   * For each bucket, {@code -(position + 1)} if it holds one key, or else the seed that places its
+   * keys.
+   */
+  private final int[] displacements;
+  /**
+   * For each key, its slot, or {@code -(i + 1)} if it is ambiguous, where {@code i} indexes the
+   * key's slots in {@link #ambiguousSlots}.
+   */
+  private final int[] values;
+  private final int[][] ambiguousSlots;
+  /** For each slot, the position of its fully qualified name in {@link #keys}. */
+  private final int[] fullNameKeys;
+
+  /** For use by generated code only: the arrays must be as computed by {@link #of(List)}. */
+  public ConfigNameIndex(
+      String[] keys,
+      int[] displacements,
+      int[] values,
+      int[][] ambiguousSlots,
+      int[] fullNameKeys) {
+    Preconditions.checkArgument(
+        keys.length == displacements.length && keys.length == values.length,
+        "Mismatched name index arrays.");
+    this.keys = keys;
+    this.displacements = displacements;
+    this.values = values;
+    this.ambiguousSlots = ambiguousSlots;
+    this.fullNameKeys = fullNameKeys;
+  }
+
+  /** Returns an index of the given configs, in which the config in slot {@code i} is {@code i}. */
+  public static ConfigNameIndex of(List<ConfigDescription> descriptions) {
+    List<String> fullNames = Lists.newArrayListWithCapacity(descriptions.size());
+    Multimap<String, String> shortNames = LinkedListMultimap.create();
+    for (ConfigDescription description : descriptions) {
+      fullNames.add(description.fullyQualifiedFieldName());
+      shortNames.put(description.name(), description.fullyQualifiedFieldName());
+    }
+    return of(fullNames, shortNames);
+  }
+
+  /**
+   * Returns an index of configs with the given fully qualified names, in slot order, which may also
+   * be looked up by the given short names.
+   *
+   * @throws IllegalArgumentException if a fully qualified name is repeated.
+   */
+  static ConfigNameIndex of(List<String> fullNames, Multimap<String, String> shortNames) {
+    Map<String, Integer> slotsByFullName = Maps.newHashMapWithExpectedSize(fullNames.size());
+    for (int slot = 0; slot < fullNames.size(); slot++) {
+      Preconditions.checkArgument(
+          slotsByFullName.put(fullNames.get(slot), slot) == null,
+          "More than one config is named %s.",
+          fullNames.get(slot));
+    }
+    Map<String, Set<Integer>> slotsByKey = Maps.newLinkedHashMap();
+    for (Map.Entry<String, String> entry : shortNames.entries()) {
+      Integer slot = slotsByFullName.get(entry.getValue());
+      if (slot != null) {
+        slotsFor(slotsByKey, entry.getKey()).add(slot);
+      }
+    }
+    for (int slot = 0; slot < fullNames.size(); slot++) {
+      slotsFor(slotsByKey, fullNames.get(slot)).add(slot);
+    }
+    return build(slotsByKey, slotsByFullName, fullNames.size());
+  }
+
+  private static Set<Integer> slotsFor(Map<String, Set<Integer>> slotsByKey, String key) {
+    Set<Integer> slots = slotsByKey.get(key);
+    if (slots == null) {
+      slots = Sets.newTreeSet();
+      slotsByKey.put(key, slots);
+    }
+    return slots;
+  }
+
+  private static ConfigNameIndex build(
+      Map<String, Set<Integer>> slotsByKey, Map<String, Integer> slotsByFullName, int slotCount) {
+    int size = slotsByKey.size();
+    List<List<String>> buckets = Lists.newArrayListWithCapacity(size);
+    for (int i = 0; i < size; i++) {
+      buckets.add(Lists.<String>newArrayListWithCapacity(1));
+    }
+    for (String key : slotsByKey.keySet()) {
+      buckets.get(bucket(key, size)).add(key);
+    }
+    List<Integer> bucketOrder = Lists.newArrayListWithCapacity(size);
+    for (int i = 0; i < size; i++) {
+      bucketOrder.add(i);
+    }
+    final List<List<String>> finalBuckets = buckets;
+    // Placing the biggest buckets first, while the table is emptiest, finds seeds fastest.
+    Collections.sort(
+        bucketOrder,
+        new Comparator<Integer>() {
+          @Override
+          public int compare(Integer first, Integer second) {
+            return finalBuckets.get(second).size() - finalBuckets.get(first).size();
+          }
+        });
+
+    String[] keys = new String[size];
+    int[] displacements = new int[size];
+    int next = 0;
+    for (int bucket : bucketOrder) {
+      List<String> bucketKeys = buckets.get(bucket);
+      if (bucketKeys.size() > 1) {
+        int seed = 1;
+        int[] positions = new int[bucketKeys.size()];
+        while (!place(bucketKeys, seed, keys, positions)) {
+          seed++;
+        }
+        for (int i = 0; i < positions.length; i++) {
+          keys[positions[i]] = bucketKeys.get(i);
+        }
+        displacements[bucket] = seed;
+      } else if (bucketKeys.size() == 1) {
+        while (keys[next] != null) {
+          next++;
+        }
+        keys[next] = bucketKeys.get(0);
+        displacements[bucket] = -(next + 1);
+      }
+      // Empty buckets are never consulted for a key that is present, so need no displacement.
+    }
+
+    int[] values = new int[size];
+    List<int[]> ambiguousSlots = Lists.newArrayList();
+    int[] fullNameKeys = new int[slotCount];
+    for (int position = 0; position < size; position++) {
+      Set<Integer> slots = slotsByKey.get(keys[position]);
+      if (slots.size() == 1) {
+        values[position] = slots.iterator().next();
+      } else {
+        int[] slotArray = new int[slots.size()];
+        int i = 0;
+        for (int slot : slots) {
+          slotArray[i++] = slot;
+        }
+        ambiguousSlots.add(slotArray);
+        values[position] = -ambiguousSlots.size();
+      }
+      Integer fullNameSlot = slotsByFullName.get(keys[position]);
+      if (fullNameSlot != null) {
+        fullNameKeys[fullNameSlot] = position;
+      }
+    }
+    return new ConfigNameIndex(
+        keys,
+        displacements,
+        values,
+        ambiguousSlots.toArray(new int[ambiguousSlots.size()][]),
+        fullNameKeys);
+  }
+
+  /**
+   * Tries to place the keys of one bucket with the given seed, filling in their positions.
+   *
+   * @return {@code true} if every key lands on a distinct, empty position.
+   */
+  private static boolean place(List<String> bucketKeys, int seed, String[] keys, int[] positions) {
+    for (int i = 0; i < positions.length; i++) {
+      positions[i] = position(bucketKeys.get(i), seed, keys.length);
+      if (keys[positions[i]] != null) {
+        return false;
+      }
+      for (int j = 0; j < i; j++) {
+        if (positions[j] == positions[i]) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static int bucket(String key, int size) {
+    int hash = key.hashCode();
+    return ((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % size;
+  }
+
+  /**
+   * Seeded FNV-1a, so that keys whose {@code hashCode}s collide can still be told apart, followed
+   * by the Murmur3 finalizer, since FNV's low bits alone do not depend enough on the seed.
+   */
+  private static int position(String key, int seed, int size) {
+    int hash = FNV_OFFSET_BASIS ^ seed;
+    for (int i = 0; i < key.length(); i++) {
+      hash = (hash ^ key.charAt(i)) * FNV_PRIME;
+    }
+    hash ^= hash >>> 16;
+    hash *= 0x85EBCA6B;
+    hash ^= hash >>> 13;
+    hash *= 0xC2B2AE35;
+    hash ^= hash >>> 16;
+    return (hash & Integer.MAX_VALUE) % size;
+  }
+
+  // The accessors below give the annotation processor the arrays to write into generated code.
+
+  public String[] keys() {
+    return keys.clone();
+  }
+
+  public int[] displacements() {
+    return displacements.clone();
+  }
+
+  public int[] values() {
+    return values.clone();
+  }
+
+  public int[][] ambiguousSlots() {
+    int[][] copy = ambiguousSlots.clone();
+    for (int i = 0; i < copy.length; i++) {
+      copy[i] = copy[i].clone();
+    }
+    return copy;
+  }
+
+  public int[] fullNameKeys() {
+    return fullNameKeys.clone();
+  }
+
+  /**
+   * Returns the slot of the config with the given short or fully qualified name, or {@link
+   * #NO_SLOT} if there is none.
+   *
+   * @throws ConfigRuntimeException wrapping an {@link AmbiguousConfigException} if the name
+   *     matches more than one config.
+   */
+  int slotOf(String name) {
+    int position = positionOf(name);
+    if (position < 0) {
+      return NO_SLOT;
+    }
+    int value = values[position];
+    if (value < 0) {
+      throw new AmbiguousConfigException(name, fullNames(ambiguousSlots[-value - 1])).wrap();
+    }
+    return value;
+  }
+
+  private int positionOf(String name) {
+    if (keys.length == 0) {
+      return -1;
+    }
+    int displacement = displacements[bucket(name, keys.length)];
+    int position =
+        displacement < 0 ? -displacement - 1 : position(name, displacement, keys.length);
+    return name.equals(keys[position]) ? position : -1;
+  }
+
+  private List<String> fullNames(int[] slots) {
+    ImmutableList.Builder<String> names = ImmutableList.builder();
+    for (int slot : slots) {
+      names.add(fullNameAt(slot));
+    }
+    return names.build();
+  }
+
+  /** Returns the fully qualified name of the config in the given slot. */
+  String fullNameAt(int slot) {
+    return keys[fullNameKeys[slot]];
+  }
+
+  /** Returns the number of configs, which is also the number of slots. */
+  int size() {
+    return fullNameKeys.length;
+  }
+
+  /**
+   * Returns a name for each config, in slot order: the short name if it is unambiguous, or else the
+   * fully qualified name.
+   */
+  Set<String> preferredNames() {
+    String[] names = new String[size()];
+    for (int position = 0; position < keys.length; position++) {
+      int slot = values[position];
+      if (slot >= 0 && fullNameKeys[slot] != position) {
+        names[slot] = keys[position];
+      }
+    }
+    for (int slot = 0; slot < names.length; slot++) {
+      if (names[slot] == null) {
+        names[slot] = fullNameAt(slot);
+      }
+    }
+    return ImmutableSet.copyOf(names);
+  }
+}
@@ -6,13 +6,16 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 import com.bdl.config.ConfigException.ConfigNameSettable;
-import com.bdl.config.ConfigException.ExternalConfigLoadException;
+import com.bdl.config.ConfigException.IllegalConfigStateException;
+import com.bdl.config.ConfigException.InvalidConfigArgumentsException;
 import com.bdl.config.ConfigException.InvalidConfigSyntaxException;
 import com.bdl.config.ConfigException.UnrecognizedConfigException;
 
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -30,69 +33,149 @@ class ConfigProcessor {
   private static final String FALSE_BOOLEAN_CONFIG_PREFIX = "no";
   private static final String FALSE_BOOLEAN_CONFIG_VALUE = "false";
 
+  /** Arguments are parsed in tasks of at most this many, when parsed in parallel. */
+  private static final int PARSE_BATCH_SIZE = 16;
+
   private final List<String> arguments;
   private final Set<ConfigSupplier> configSuppliers;
+  private final boolean resolveLazily;
+  private final boolean deferParsing;
+  private final ConfigNameIndex names;
+  private final ForkJoinPool parsePool;
 
   private ConfigMap configs;
 
   ConfigProcessor(List<String> arguments, Set<ConfigSupplier> configSuppliers) {
+    this(arguments, configSuppliers, false);
+  }
+
+  /**
+   * @param resolveLazily if {@code true}, each Configurable is only obtained from its supplier when
+   *     its config is first looked up (or set by an argument), rather than all at once.
+   */
+  ConfigProcessor(
+      List<String> arguments, Set<ConfigSupplier> configSuppliers, boolean resolveLazily) {
+    this(arguments, configSuppliers, resolveLazily, false, null);
+  }
+
+  /**
+   * @param deferParsing if {@code true}, each argument's value is only parsed and checked when its
+   *     config is first used (see {@link Configuration#validateAll()}), rather than when the
+   *     arguments are processed. Malformed and unrecognized arguments are still found at once.
+   * @param names an index of the suppliers' names, in iteration order, or {@code null} to build
+   *     one.
+   */
+  ConfigProcessor(
+      List<String> arguments,
+      Set<ConfigSupplier> configSuppliers,
+      boolean resolveLazily,
+      boolean deferParsing,
+      ConfigNameIndex names) {
+    this(arguments, configSuppliers, resolveLazily, deferParsing, names, null);
+  }
+
+  /**
+   * @param parsePool if not {@code null}, the pool in which to parse and check the arguments'
+   *     values in parallel. They are then all applied together, once every argument has been found
+   *     to be valid, and otherwise every argument that is not valid is reported at once. Ignored if
+   *     {@code deferParsing} is set, as there is then nothing to parse.
+   */
+  ConfigProcessor(
+      List<String> arguments,
+      Set<ConfigSupplier> configSuppliers,
+      boolean resolveLazily,
+      boolean deferParsing,
+      ConfigNameIndex names,
+      ForkJoinPool parsePool) {
     this.arguments = ImmutableList.copyOf(arguments);
     this.configSuppliers = configSuppliers;
+    this.resolveLazily = resolveLazily;
+    this.deferParsing = deferParsing;
+    this.names = names;
+    this.parsePool = parsePool;
   }
 
   ConfigMap getConfigMap() {
     if (configs == null) {
-      Map<String, String> nameToValueMap = getNameToValueMap();
-      configs = suppliersToConfigMap();
-      processConfigValues(nameToValueMap, configs);
+      if (parsePool != null && !deferParsing) {
+        Map<String, ConfigException> failures = Maps.newLinkedHashMap();
+        Map<String, String> nameToValueMap = getNameToValueMap(failures);
+        configs = suppliersToConfigMap();
+        applyConfigValuesInParallel(nameToValueMap, configs, failures);
+      } else {
+        Map<String, String> nameToValueMap = getNameToValueMap(null);
+        configs = suppliersToConfigMap();
+        processConfigValues(nameToValueMap, configs);
+      }
     }
     return configs;
   }
 
   private ConfigMap suppliersToConfigMap() {
     ConfigMap.Builder configs = ConfigMap.builder();
+    if (resolveLazily) {
+      configs.resolveLazily();
+    }
+    if (names != null) {
+      configs.nameIndex(names);
+    }
     for (ConfigSupplier supplier : configSuppliers) {
       configs.addConfigurable(supplier);
     }
     return configs.build();
   }
 
-  private Map<String, String> getNameToValueMap() {
-    Map<String, String> configNamesToValues = Maps.newHashMap();
-    List<String> nonConfigArgs = Lists.newArrayList();
-    addConfigsToMap(configNamesToValues, nonConfigArgs, arguments);
-
-    boolean loadedNewConfigs = true;
-    while (loadedNewConfigs) {
-      loadedNewConfigs = false;
-      for (ExternalConfigLoader loader : ExternalConfigLoader.LOADERS) {
-        String externalConfigValue = configNamesToValues.get(loader.getExternalConfigName());
-        if (externalConfigValue != null) {
-          loadedNewConfigs = true;
-          configNamesToValues.remove(loader.getExternalConfigName());
-          try {
-            addConfigsToMap(
-                configNamesToValues, nonConfigArgs, loader.getConfigArgs(externalConfigValue));
-          } catch (Exception ex) {
-            throw new ExternalConfigLoadException(
-                    "Unable to load configs from external source.", ex)
-                .wrap();
+  /**
+   * @param failures the map to which to add each malformed argument, or {@code null} to throw at
+   *     the first.
+   */
+  private Map<String, String> getNameToValueMap(final Map<String, ConfigException> failures) {
+    final Map<String, String> configNamesToValues = Maps.newLinkedHashMap();
+    final List<String> nonConfigArgs = Lists.newArrayList();
+    final ExternalConfigSources sources = new ExternalConfigSources(ExternalConfigLoader.loaders());
+    ExternalConfigLoader.ConfigSink sink =
+        new ExternalConfigLoader.ConfigSink() {
+          @Override
+          public void addArguments(Iterable<String> arguments) {
+            addConfigs(this, nonConfigArgs, failures, arguments);
           }
-        }
-      }
-    }
+
+          @Override
+          public void addConfig(String name, String value) {
+            if (sources.isSourceName(name)) {
+              sources.add(name, value);
+            } else {
+              configNamesToValues.put(name, value);
+            }
+          }
+
+          @Override
+          public void addMalformed(String assignment, String position) {
+            if (failures == null) {
+              throw new InvalidConfigSyntaxException(assignment, position).wrap();
+            }
+            failures.put(position, new InvalidConfigSyntaxException(assignment, position));
+          }
+        };
+
+    sink.addArguments(arguments);
+    sources.loadAll(sink);
     return configNamesToValues;
   }
 
   /**
-   * Iterates through the args, building a map of config names to values. Any args that do not match
-   * the config pattern are bypassed and added to the nonConfigArgs list.
+   * Iterates through the args, adding each config name and value to the sink. Any args that do not
+   * match the config pattern are bypassed and added to the nonConfigArgs list.
    *
    * <p>If the argument "--" is encountered, all further arguments are assumed to be non-configs.
+   *
+   * @param failures the map to which to add each malformed argument, or {@code null} to throw at
+   *     the first.
    */
-  private void addConfigsToMap(
-      Map<String, String> configNamesToValues,
+  private void addConfigs(
+      ExternalConfigLoader.ConfigSink sink,
       List<String> nonConfigArgs,
+      Map<String, ConfigException> failures,
       Iterable<String> configArgs) {
     boolean noMoreConfigs = false;
 
@@ -109,12 +192,16 @@ class ConfigProcessor {
 
       Matcher matcher = CONFIG_PATTERN.matcher(arg);
       if (!matcher.matches()) {
-        throw new InvalidConfigSyntaxException(arg).wrap();
+        if (failures == null) {
+          throw new InvalidConfigSyntaxException(arg).wrap();
+        }
+        failures.put(arg, new InvalidConfigSyntaxException(arg));
+        continue;
       }
       String configName = matcher.group(CONFIG_NAME_GROUP);
       String valueString = matcher.group(CONFIG_VALUE_GROUP);
 
-      configNamesToValues.put(configName, valueString);
+      sink.addConfig(configName, valueString);
     }
   }
 
@@ -138,7 +225,28 @@ class ConfigProcessor {
 
   private void processConfig(ConfigMap configMap, String configName, String valueString)
       throws UnrecognizedConfigException {
+    PendingArgument<?> argument = findConfig(configMap, configName, valueString);
+
+    if (deferParsing) {
+      argument.config.setFromStringLazily(argument.valueString);
+      return;
+    }
+
+    try {
+      argument.config.setFromString(argument.valueString);
+    } catch (ConfigException ex) {
+      throw withConfigName(ex, argument.configName).wrap();
+    }
+  }
 
+  /**
+   * Finds the config to which the given argument applies, allowing for boolean configs given as
+   * {@code --[config_name]} or {@code --no[config_name]}.
+   *
+   * @throws UnrecognizedConfigException if the argument names no config.
+   */
+  static PendingArgument<?> findConfig(ConfigMap configMap, String configName, String valueString)
+      throws UnrecognizedConfigException {
     Configurable<?> config = configMap.getOrNull(configName);
 
     // If we don't find the config, check and see if the name is no[config_name].
@@ -157,14 +265,147 @@ class ConfigProcessor {
     if (valueString == null && config.getType().equals(Boolean.class)) {
       valueString = "true";
     }
+    return PendingArgument.of(configName, config, valueString);
+  }
 
-    try {
-      config.setFromString(valueString);
-    } catch (ConfigException ex) {
-      if (ex instanceof ConfigNameSettable) {
-        ex = ((ConfigNameSettable) ex).withConfigName(configName);
+  /**
+   * Parses and checks the arguments' values in parallel, then applies them all together, notifying
+   * each config's listeners once every config has been set. As when the arguments are applied one
+   * by one, a config named by more than one argument takes the value of the last of them.
+   *
+   * @param failures the malformed arguments found so far, to which the unrecognized and invalid
+   *     ones are added.
+   * @throws ConfigRuntimeException wrapping an {@link InvalidConfigArgumentsException} reporting
+   *     every argument that could not be applied, in which case none is.
+   */
+  private void applyConfigValuesInParallel(
+      Map<String, String> namesToValues,
+      ConfigMap configMap,
+      Map<String, ConfigException> failures) {
+    Map<String, PendingArgument<?>> argumentsByName = Maps.newLinkedHashMap();
+    Map<String, ConfigException> unrecognized = Maps.newHashMap();
+    for (Map.Entry<String, String> configEntry : namesToValues.entrySet()) {
+      try {
+        argumentsByName.put(
+            configEntry.getKey(),
+            findConfig(configMap, configEntry.getKey(), configEntry.getValue()));
+      } catch (UnrecognizedConfigException ex) {
+        unrecognized.put(configEntry.getKey(), ex);
+      }
+    }
+    List<PendingArgument<?>> arguments = ImmutableList.copyOf(argumentsByName.values());
+
+    parsePool.invoke(new ParseTask(arguments, 0, arguments.size()));
+    // Failures are reported in the order in which the arguments were given.
+    for (String name : namesToValues.keySet()) {
+      PendingArgument<?> argument = argumentsByName.get(name);
+      if (argument == null) {
+        failures.put(name, unrecognized.get(name));
+      } else if (argument.failure != null) {
+        failures.put(argument.configName, withConfigName(argument.failure, argument.configName));
+      }
+    }
+    if (!failures.isEmpty()) {
+      throw new InvalidConfigArgumentsException(failures).wrap();
+    }
+
+    // Each config is set (and notified) once, from the last argument naming it.
+    Map<Configurable<?>, PendingArgument<?>> argumentsByConfig = Maps.newLinkedHashMap();
+    for (PendingArgument<?> argument : arguments) {
+      argumentsByConfig.put(argument.config, argument);
+    }
+    for (PendingArgument<?> argument : argumentsByConfig.values()) {
+      try {
+        argument.apply();
+      } catch (IllegalConfigStateException ex) {
+        // Only if the config was read since being checked, which nothing should do at startup.
+        throw withConfigName(ex, argument.configName).wrap();
+      }
+    }
+    for (PendingArgument<?> argument : argumentsByConfig.values()) {
+      argument.notifyListeners();
+    }
+  }
+
+  private static ConfigException withConfigName(ConfigException ex, String configName) {
+    if (ex instanceof ConfigNameSettable) {
+      return ((ConfigNameSettable) ex).withConfigName(configName);
+    }
+    return ex;
+  }
+
+  /** An argument found to apply to a config, with its value once parsed. */
+  static final class PendingArgument<T> {
+    final String configName;
+    final Configurable<T> config;
+    final String valueString;
+    private T value;
+    private ConfigException failure;
+    private Configurable.State<T> replaced;
+
+    private PendingArgument(String configName, Configurable<T> config, String valueString) {
+      this.configName = configName;
+      this.config = config;
+      this.valueString = valueString;
+    }
+
+    static <T> PendingArgument<T> of(
+        String configName, Configurable<T> config, String valueString) {
+      return new PendingArgument<>(configName, config, valueString);
+    }
+
+    /** Parses and checks the value, recording the failure to do so. */
+    void parse() {
+      try {
+        value = config.checkValue(config.parse(valueString));
+        if (config.isReadOnly()) {
+          throw new IllegalConfigStateException();
+        }
+      } catch (ConfigRuntimeException ex) {
+        failure = ex.unwrap();
+      } catch (ConfigException ex) {
+        failure = ex;
+      }
+    }
+
+    void apply() throws IllegalConfigStateException {
+      replaced = config.setQuietly(value, true);
+    }
+
+    void notifyListeners() {
+      if (replaced != null) {
+        config.fireOnChange(value);
+      }
+    }
+  }
+
+  /** Parses a range of arguments, splitting it in two while it is larger than one batch. */
+  private static final class ParseTask extends RecursiveAction {
+
+    /** For serialization, derived by casting the start of the class name into numbers */
+    private static final long serialVersionUID = 161181952011911L;
+
+    private final List<PendingArgument<?>> arguments;
+    private final int from;
+    private final int to;
+
+    ParseTask(List<PendingArgument<?>> arguments, int from, int to) {
+      this.arguments = arguments;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= PARSE_BATCH_SIZE) {
+        for (int i = from; i < to; i++) {
+          arguments.get(i).parse();
+        }
+      } else {
+        int middle = (from + to) >>> 1;
+        invokeAll(
+            new ParseTask(arguments, from, middle), new ParseTask(arguments, middle, to));
       }
-      throw ex.wrap();
     }
   }
 }
@@ -0,0 +1,27 @@
+package com.bdl.config;
+
+import java.util.List;
+
+/**
+ * A table of the configs in a set of packages, from which a {@link Configuration} can be built
+ * without an injector.
+ *
+ * <p>The annotation processor writes an implementation, {@code GeneratedConfigRegistry}, in each
+ * package for which it writes a config module, and lists the root ones in {@code
+ * META-INF/services/com.bdl.config.ConfigRegistry}. Those listings are found with a {@link
+ * java.util.ServiceLoader}, so the registries of every jar on the classpath are merged. See {@link
+ * Configuration#fromRegistry(String...)}.
+ *
+ * @author Ben Leitner
+ */
+public interface ConfigRegistry {
+
+  /** Returns suppliers for the configs in this registry's package and its subpackages. */
+  List<ConfigSupplier> configSuppliers();
+
+  /**
+   * Returns an index of the configs' names, built at compile time, in which slot {@code i} holds
+   * the config of {@code configSuppliers().get(i)}.
+   */
+  ConfigNameIndex nameIndex();
+}
@@ -0,0 +1,173 @@
+package com.bdl.config;
+
+import com.google.common.base.Preconditions;
+
+import com.bdl.config.Configurable.State;
+
+/**
+ * An immutable, point-in-time view of the values of all configs in a {@link Configuration}.
+ *
+ * <p>Values read from one snapshot are always mutually consistent: a change made after the snapshot
+ * was taken is not visible through it, and the changes made by one {@link
+ * Configuration#updateAll(java.util.Map)} are visible either all together or not at all. Taking a
+ * snapshot with {@link Configuration#snapshot()} costs a single volatile read, and reading from a
+ * snapshot takes no locks.
+ *
+ * <p>Snapshots are versioned: each change published to the {@link Configuration} yields a snapshot
+ * with a higher version.
+ *
+ * @author Ben Leitner
+ */
+public final class ConfigSnapshot {
+
+  /**
+   * Values are held in fixed-size chunks, so publishing a change copies only the chunk holding the
+   * changed value and the (short) array of chunks, and shares every other chunk with the prior
+   * snapshot.
+   */
+  private static final int CHUNK_BITS = 5;
+
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+  private final ConfigMap configs;
+  private final State<?>[][] chunks;
+  private final long version;
+
+  private ConfigSnapshot(ConfigMap configs, State<?>[][] chunks, long version) {
+    this.configs = configs;
+    this.chunks = chunks;
+    this.version = version;
+  }
+
+  /** Creates a snapshot holding the current state of each of the given configs. */
+  static ConfigSnapshot of(ConfigMap configs) {
+    int size = configs.size();
+    State<?>[][] chunks = new State<?>[(size + CHUNK_MASK) >>> CHUNK_BITS][];
+    for (int i = 0; i < chunks.length; i++) {
+      chunks[i] = new State<?>[Math.min(CHUNK_SIZE, size - (i << CHUNK_BITS))];
+    }
+    for (int slot = 0; slot < size; slot++) {
+      chunks[slot >>> CHUNK_BITS][slot & CHUNK_MASK] = configs.configurableAt(slot).currentState();
+    }
+    return new ConfigSnapshot(configs, chunks, 0L);
+  }
+
+  /** Returns the version of this snapshot. Later snapshots have higher versions. */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Obtains the value of the config with the given name as of this snapshot.
+   *
+   * @throws ConfigException if an error occurs:
+   *     <ul>
+   *     <li> {@link ConfigException.UnrecognizedConfigException} if no configurable matches the
+   *         given name.
+   *     <li> {@link ConfigException.AmbiguousConfigException} if more than one configurable matches
+   *         the given name.
+   *     </ul>
+   */
+  public Object get(String name) throws ConfigException {
+    int slot = configs.slotOrThrow(name);
+    configs.configurableAt(slot).markRead();
+    return stateAt(slot).value;
+  }
+
+  /**
+   * Obtains the value of the config with the given name and type as of this snapshot.
+   *
+   * @throws ConfigException if an error occurs, as for {@link #get(String)}, or a {@link
+   *     ConfigException.TypeMismatchException} if the configurable's values are not all of the
+   *     given type.
+   */
+  public <T> T get(String name, Class<T> type) throws ConfigException {
+    int slot = configs.slotOrThrow(name);
+    Configuration.checkType(name, configs.configurableAt(slot), type).markRead();
+    return type.cast(stateAt(slot).value);
+  }
+
+  /**
+   * Obtains the value of the config with the given key as of this snapshot. This does no name
+   * lookup.
+   *
+   * @throws IllegalArgumentException if the key was resolved by a different {@link Configuration}.
+   */
+  @SuppressWarnings("unchecked") // The key's type was checked when it was resolved.
+  public <T> T get(ConfigKey<T> key) {
+    int slot = key.getSlot();
+    Preconditions.checkArgument(
+        slot < configs.size() && configs.configurableAt(slot) == key.getConfigurable(),
+        "%s does not belong to this snapshot's Configuration.",
+        key);
+    key.getConfigurable().markRead();
+    return (T) stateAt(slot).value;
+  }
+
+  /**
+   * Obtains the value of an {@code int} config as of this snapshot.
+   *
+   * @throws ConfigException if an error occurs, as for {@link #get(String, Class)}.
+   */
+  public int getInt(String name) throws ConfigException {
+    return get(name, Integer.class);
+  }
+
+  /**
+   * Obtains the value of a {@code long} config as of this snapshot.
+   *
+   * @throws ConfigException if an error occurs, as for {@link #get(String, Class)}.
+   */
+  public long getLong(String name) throws ConfigException {
+    return get(name, Long.class);
+  }
+
+  /**
+   * Obtains the value of a {@code double} config as of this snapshot.
+   *
+   * @throws ConfigException if an error occurs, as for {@link #get(String, Class)}.
+   */
+  public double getDouble(String name) throws ConfigException {
+    return get(name, Double.class);
+  }
+
+  /**
+   * Obtains the value of a {@code boolean} config as of this snapshot.
+   *
+   * @throws ConfigException if an error occurs, as for {@link #get(String, Class)}.
+   */
+  public boolean getBoolean(String name) throws ConfigException {
+    return get(name, Boolean.class);
+  }
+
+  State<?> stateAt(int slot) {
+    return chunks[slot >>> CHUNK_BITS][slot & CHUNK_MASK];
+  }
+
+  /**
+   * Returns a snapshot that differs from this one only in holding the given states in the given
+   * slots, sharing all untouched chunks with this snapshot. A state replaces the one held here only
+   * if it is newer, so states published out of order never overwrite later ones. However many slots
+   * change, the new snapshot's version is one more than this one's.
+   *
+   * @return the new snapshot, or this one if it already held each of the states (or newer ones).
+   */
+  ConfigSnapshot with(int[] slots, State<?>[] states) {
+    State<?>[][] newChunks = null;
+    for (int i = 0; i < slots.length; i++) {
+      if (stateAt(slots[i]).version >= states[i].version) {
+        continue;
+      }
+      if (newChunks == null) {
+        newChunks = chunks.clone();
+      }
+      int chunk = slots[i] >>> CHUNK_BITS;
+      if (newChunks[chunk] == chunks[chunk]) {
+        newChunks[chunk] = chunks[chunk].clone();
+      }
+      newChunks[chunk][slots[i] & CHUNK_MASK] = states[i];
+    }
+    return newChunks == null ? this : new ConfigSnapshot(configs, newChunks, version + 1);
+  }
+}
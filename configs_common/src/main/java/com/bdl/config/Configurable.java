@@ -4,45 +4,65 @@ import static com.bdl.config.ConfigException.IllegalConfigStateException;
 import static com.bdl.config.ConfigException.InvalidConfigValueException;
 
 import com.google.common.base.Function;
+import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.base.Splitter;
+import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
-import com.google.common.collect.Sets;
 
 import com.bdl.config.ConfigChangeListener.ListenerRegistration;
 import com.bdl.config.ConfigException.TypeMismatchException;
 
 import java.util.List;
-import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.regex.Pattern;
 
 /**
  * A class to hold a configurable value as from a command line argument.
  *
+ * <p>Primitive-valued configs that are read on hot paths should prefer the specialized {@link
+ * IntConfigurable}, {@link LongConfigurable}, {@link DoubleConfigurable} and {@link
+ * BooleanConfigurable} subclasses, which can be read without unboxing.
+ *
+ * <p>A Configurable is itself a {@link Supplier} of its current value, so it can be handed to
+ * long-lived objects that should see changes to the config without holding on to the Configurable
+ * API.
+ *
  * @param <T> The type of value contained in the config.
  * @author Benjamin Leitner
  */
-public final class Configurable<T> {
+public class Configurable<T> implements Supplier<T> {
+
+  @SuppressWarnings("rawtypes") // Field updaters cannot be created for generic types.
+  private static final AtomicReferenceFieldUpdater<Configurable, State> STATE =
+      AtomicReferenceFieldUpdater.newUpdater(Configurable.class, State.class, "state");
 
   private final Class<T> type;
   private final T defaultValue;
   private final Predicate<? super T> predicate;
   private final Function<String, T> parser;
   private final boolean readOnlyAfterRead;
-  private final Set<ConfigChangeListener<? super T>> listeners;
+  private final ListenerRegistry<T> listeners;
 
   /**
-   * The current value of the config. {@code volatile} because there is no synchronization of
-   * processing for methods that might set the config
+   * The current value of the config, with its version and read state. Replaced as a whole by
+   * compare-and-set on every change, so readers always see a consistent value and version and
+   * writers never take a lock.
    */
-  protected volatile T value;
+  private volatile State<T> state;
 
-  private boolean read;
+  /**
+   * An argument whose parsing is deferred until the config is first used, or the failure to apply
+   * it. {@code null} once the argument has been applied, or if there was none, so reads of configs
+   * without a pending argument pay only this one volatile read.
+   */
+  private volatile Deferred deferred;
 
-  private Configurable(
+  Configurable(
       Class<T> type,
       T defaultValue,
       Predicate<? super T> predicate,
@@ -52,19 +72,76 @@ public final class Configurable<T> {
     this.defaultValue = defaultValue;
     this.predicate = predicate;
     this.parser = parser;
-    value = defaultValue;
     this.readOnlyAfterRead = readOnlyAfterRead;
-    if (!predicate.apply(value)) {
-      throw new InvalidConfigValueException(value.toString()).wrap();
+    if (!predicate.apply(defaultValue)) {
+      throw new InvalidConfigValueException(defaultValue.toString()).wrap();
     }
-    read = false;
-    listeners = Sets.newHashSet();
+    listeners = new ListenerRegistry<>();
+    state = newState(defaultValue, 0L, false);
   }
 
   /** Returns the value of this config. */
+  @Override
   public T get() {
-    read = true;
-    return value;
+    return readState().value;
+  }
+
+  /**
+   * Returns the version of the config's current value. The version starts at zero and increases by
+   * one with each change of value, so it can be used to detect changes between two reads.
+   */
+  public long getVersion() {
+    return currentState().version;
+  }
+
+  /**
+   * Returns the current state, first marking the config as having been read if it becomes
+   * read-only after being read. Configs that are not flags, and flags that have already been read,
+   * write nothing here.
+   */
+  final State<T> readState() {
+    applyDeferred();
+    State<T> current = state;
+    if (readOnlyAfterRead && !current.read) {
+      current = latchRead();
+    }
+    return current;
+  }
+
+  /**
+   * Returns the current state without marking the config as having been read. Used for tracking
+   * the config's value on behalf of readers that mark it read themselves.
+   */
+  final State<T> currentState() {
+    applyDeferred();
+    return state;
+  }
+
+  /** Marks the config as having been read, if it becomes read-only after being read. */
+  final void markRead() {
+    readState();
+  }
+
+  private State<T> latchRead() {
+    while (true) {
+      State<T> current = state;
+      if (current.read) {
+        return current;
+      }
+      State<T> latched = newState(current.value, current.version, true);
+      if (STATE.compareAndSet(this, current, latched)) {
+        return latched;
+      }
+    }
+  }
+
+  /**
+   * Creates the state holding the given value. Subclasses override this to hold specialized copies
+   * of the value. This is called from the constructor, so implementations must not depend on
+   * subclass fields.
+   */
+  State<T> newState(T value, long version, boolean read) {
+    return new State<>(value, version, read);
   }
 
   /** Returns the type of the configurable. */
@@ -72,28 +149,48 @@ public final class Configurable<T> {
     return type;
   }
 
+  /** Returns the value to which {@link #reset()} sets the config, which may be {@code null}. */
+  T getDefaultValue() {
+    return defaultValue;
+  }
+
   boolean isReadOnly() {
-    return readOnlyAfterRead && read && !Configuration.isConfigSetCheckDisabled();
+    return isReadOnly(state);
+  }
+
+  private boolean isReadOnly(State<T> state) {
+    return readOnlyAfterRead && state.read && !Configuration.isConfigSetCheckDisabled();
   }
 
   /**
-   * Checks that the config can be set. A config's value may not be set after it is read. This check
-   * can be disabled for testing using {@link Configuration#disableConfigSetCheck()}
+   * Checks that the config can be set in the given state. A config's value may not be set after it
+   * is read. This check can be disabled for testing using {@link
+   * Configuration#disableConfigSetCheck()}
    *
    * @throws IllegalConfigStateException if this config has already been read
    */
-  private void checkSetState() throws IllegalConfigStateException {
-    if (isReadOnly()) {
+  private void checkSetState(State<T> state) throws IllegalConfigStateException {
+    if (isReadOnly(state)) {
       throw new IllegalConfigStateException();
     }
   }
 
-  private T checkValue(T value) throws InvalidConfigValueException {
-    if (value != null && !type.equals(value.getClass())) {
-      throw new TypeMismatchException(this.value, value).wrap();
+  /**
+   * Checks that the given value could be assigned to this config, regardless of the config's
+   * current state.
+   *
+   * @return the value.
+   * @throws InvalidConfigValueException if the value is null or not acceptable to the config.
+   */
+  T checkValue(T value) throws InvalidConfigValueException {
+    if (value == null) {
+      throw new InvalidConfigValueException("Cannot set configurable to null.");
+    }
+    if (!type.equals(value.getClass())) {
+      throw new TypeMismatchException(state.value, value).wrap();
     }
     if (!predicate.apply(value)) {
-      throw new InvalidConfigValueException(value == null ? "<null>" : value.toString());
+      throw new InvalidConfigValueException(value.toString());
     }
     return value;
   }
@@ -109,16 +206,100 @@ public final class Configurable<T> {
    *     </ul>
    */
   T setFromString(String valueString) throws ConfigException {
+    T value = parse(valueString);
+    try {
+      return setValue(value);
+    } catch (ConfigRuntimeException ex) {
+      throw ex.unwrap();
+    }
+  }
+
+  /**
+   * Sets this config's value from the specified string when the config is first used, rather than
+   * now, so that configs that are never used never run their parsers. The string is parsed and
+   * checked exactly once, by whichever thread first reads (or writes) the config.
+   *
+   * <p>If the string turns out not to be valid, every read of the config throws, until a value is
+   * set directly. The failure can be found ahead of time with {@link #validate()}.
+   */
+  final void setFromStringLazily(final String valueString) {
+    setLazily(
+        new EncodedValue() {
+          @Override
+          public Object decode(Configurable<?> config) throws ConfigException {
+            return config.parse(valueString);
+          }
+
+          @Override
+          public String toString() {
+            return valueString;
+          }
+        });
+  }
+
+  /**
+   * Sets this config's value from the given encoded value when the config is first used, as for
+   * {@link #setFromStringLazily(String)}.
+   */
+  final void setLazily(EncodedValue encoded) {
+    deferred = new Deferred(encoded);
+  }
+
+  /**
+   * Applies the argument deferred by {@link #setLazily(EncodedValue)}, if there is one and it has
+   * not been applied yet.
+   *
+   * @return the failure to apply the argument, or {@code null} if it was applied (or there was
+   *     none).
+   */
+  final ConfigException validate() {
+    Deferred pending = deferred;
+    return pending == null ? null : pending.apply();
+  }
+
+  /**
+   * Applies the deferred argument, if any.
+   *
+   * @throws ConfigRuntimeException wrapping an {@link InvalidConfigValueException} if the argument
+   *     could not be parsed or is not acceptable to the config.
+   */
+  private void applyDeferred() {
+    Deferred pending = deferred;
+    if (pending != null) {
+      ConfigException failure = pending.apply();
+      if (failure != null) {
+        throw failure.wrap();
+      }
+    }
+  }
+
+  /**
+   * Applies the deferred argument, if any, ahead of a write, so that the argument cannot overwrite
+   * the written value. An argument that fails to apply is dropped, since the write replaces it.
+   */
+  private void supersedeDeferred() {
+    Deferred pending = deferred;
+    if (pending != null) {
+      pending.apply();
+      deferred = null;
+    }
+  }
+
+  /**
+   * Parses the given string into a value for this config, without checking it against the config's
+   * predicate.
+   *
+   * @throws ConfigException if the value could not be parsed.
+   */
+  T parse(String valueString) throws ConfigException {
     if (valueString == null) {
       throw new InvalidConfigValueException("Cannot set from null string.");
     }
     try {
-      T result = parser.apply(valueString);
-      return setValue(result);
+      return parser.apply(valueString);
+    } catch (ConfigRuntimeException ex) {
+      throw ex.unwrap();
     } catch (RuntimeException ex) {
-      if (ex instanceof ConfigRuntimeException) {
-        throw ((ConfigRuntimeException) ex).unwrap();
-      }
       // A problem occurred when parsing
       throw new InvalidConfigValueException(valueString);
     }
@@ -137,7 +318,7 @@ public final class Configurable<T> {
       final ConfigChangeListener<? super T> listener, boolean listen) {
     listeners.add(listener);
     if (listen) {
-      listener.onConfigurationChange(value);
+      listener.onConfigurationChange(currentState().value);
     }
     return new ListenerRegistration() {
       @Override
@@ -147,6 +328,61 @@ public final class Configurable<T> {
     };
   }
 
+  /**
+   * Registers a listener that is held only weakly, so that the registration does not keep the
+   * listener (or anything it refers to) alive. This suits listeners with a shorter lifetime than the
+   * config, such as per-connection listeners: once the listener is no longer otherwise reachable it
+   * is dropped without needing to be unregistered. The caller must keep a strong reference to the
+   * listener for as long as it should be notified.
+   */
+  public ListenerRegistration registerWeakListener(ConfigChangeListener<? super T> listener) {
+    return registerWeakListener(listener, false);
+  }
+
+  /**
+   * Registers a listener that is held only weakly, including firing an initial event to send the
+   * current value.
+   *
+   * @see #registerWeakListener(ConfigChangeListener)
+   */
+  public ListenerRegistration registerWeakListener(
+      ConfigChangeListener<? super T> listener, boolean listen) {
+    return registerListener(new ListenerRegistry.WeakListener<>(listener, listeners), listen);
+  }
+
+  /**
+   * Registers a listener that is notified on the given executor rather than on the thread that
+   * changed the config. If the config changes again before the listener has been notified, the
+   * pending notification is replaced, so the listener only sees the latest value.
+   *
+   * <p>Any {@link Executor} may be used, including a virtual-thread-per-task
+   * executor on JDKs that provide one.
+   */
+  public ListenerRegistration registerListener(
+      ConfigChangeListener<? super T> listener, Executor executor) {
+    return registerListener(listener, false, executor);
+  }
+
+  /**
+   * Registers a listener that is notified on the given executor, including firing an initial event
+   * to send the current value.
+   *
+   * @see #registerListener(ConfigChangeListener, Executor)
+   */
+  public ListenerRegistration registerListener(
+      ConfigChangeListener<? super T> listener, boolean listen, Executor executor) {
+    final CoalescingConfigChangeListener<T> coalescing =
+        new CoalescingConfigChangeListener<>(listener, executor);
+    final ListenerRegistration registration = registerListener(coalescing, listen);
+    return new ListenerRegistration() {
+      @Override
+      public void unregister() {
+        registration.unregister();
+        coalescing.cancel();
+      }
+    };
+  }
+
   /**
    * Sets the config to a new value.
    *
@@ -166,16 +402,102 @@ public final class Configurable<T> {
    * @see Configuration#disableConfigSetCheck()
    */
   public T setValue(T value) throws ConfigException {
-    if (value == null) {
-      throw new InvalidConfigValueException("Cannot set configurable to null.");
+    checkValue(value);
+    supersedeDeferred();
+    while (true) {
+      State<T> current = state;
+      checkSetState(current);
+      if (publish(current, value)) {
+        return current.value;
+      }
+    }
+  }
+
+  /**
+   * Atomically sets the config to a new value if its current value is equal to the expected value.
+   *
+   * @return {@code true} if the value was set, {@code false} if the current value was not equal to
+   *     the expected value.
+   * @throws ConfigException if an error occurs, as for {@link #setValue(Object)}.
+   */
+  public boolean compareAndSet(T expected, T newValue) throws ConfigException {
+    checkValue(newValue);
+    supersedeDeferred();
+    while (true) {
+      State<T> current = state;
+      if (!Objects.equal(current.value, expected)) {
+        return false;
+      }
+      checkSetState(current);
+      if (publish(current, newValue)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Atomically updates the config with the result of applying the given function to its current
+   * value. The function may be applied more than once if other threads update the config
+   * concurrently, so it should be free of side effects.
+   *
+   * @return the updated value.
+   * @throws ConfigException if an error occurs, as for {@link #setValue(Object)}.
+   */
+  public T updateAndGet(Function<? super T, ? extends T> updateFunction) throws ConfigException {
+    supersedeDeferred();
+    while (true) {
+      State<T> current = state;
+      checkSetState(current);
+      T newValue = checkValue(updateFunction.apply(current.value));
+      if (publish(current, newValue)) {
+        return newValue;
+      }
+    }
+  }
+
+  /**
+   * Tries to replace the given state with one holding the given (already validated) value, and
+   * notifies listeners on success. Setting a value equal to the current one leaves the state (and
+   * version) as they are and notifies no one.
+   *
+   * @return {@code true} if the state was replaced or already held the value, {@code false} if
+   *     another thread changed the state first.
+   */
+  private boolean publish(State<T> current, T newValue) {
+    if (Objects.equal(current.value, newValue)) {
+      return true;
     }
-    checkSetState();
-    T oldValue = this.value;
-    synchronized (this) {
-      this.value = checkValue(value);
+    State<T> next = newState(newValue, current.version + 1, current.read);
+    if (!STATE.compareAndSet(this, current, next)) {
+      return false;
+    }
+    fireOnChange(newValue);
+    return true;
+  }
+
+  /**
+   * Sets the config to a new (already validated) value without notifying listeners, for use by
+   * batch updates that notify once every config in the batch has been set.
+   *
+   * @param checkState whether to fail if the config is read-only. Batch updates skip the check
+   *     only when rolling back their own changes.
+   * @return the state that was replaced, or {@code null} if the config already held the value.
+   * @throws IllegalConfigStateException if {@code checkState} is set and the config is read-only.
+   */
+  State<T> setQuietly(T value, boolean checkState) throws IllegalConfigStateException {
+    supersedeDeferred();
+    while (true) {
+      State<T> current = state;
+      if (checkState) {
+        checkSetState(current);
+      }
+      if (Objects.equal(current.value, value)) {
+        return null;
+      }
+      if (STATE.compareAndSet(this, current, newState(value, current.version + 1, current.read))) {
+        return current;
+      }
     }
-    fireOnChange();
-    return oldValue;
   }
 
   /**
@@ -192,22 +514,102 @@ public final class Configurable<T> {
     return setValue(defaultValue);
   }
 
-  private void fireOnChange() {
-    T newValue = get();
-    for (ConfigChangeListener<? super T> listener : listeners) {
-      listener.onConfigurationChange(newValue);
-    }
+  void fireOnChange(T newValue) {
+    listeners.fire(newValue);
   }
 
   /**
-   * Returns a string representation of the value of this command line config. This will retrieve
-   * the value from the {@link #get} method and thus mark the config as having been accessed.
+   * Returns a string representation of the value of this command line config. This does not mark
+   * the config as having been accessed. A deferred argument that is not valid is shown as given.
    */
   @Override
   public String toString() {
+    Deferred pending = deferred;
+    if (pending != null && pending.apply() != null) {
+      return pending.encoded.toString();
+    }
+    T value = state.value;
     return value == null ? "null" : value.toString();
   }
 
+  /**
+   * A value for a config in some encoded form, such as an argument string, to be decoded when the
+   * config is first used. Its {@code toString()} shows the value as given.
+   */
+  interface EncodedValue {
+
+    /**
+     * Decodes the value for the given config, without checking it against the config's predicate.
+     *
+     * @throws ConfigException if the value cannot be decoded, or does not have the config's type.
+     */
+    Object decode(Configurable<?> config) throws ConfigException;
+  }
+
+  /**
+   * An immutable snapshot of a config's value, the version of that value and whether the config has
+   * been read.
+   */
+  static class State<T> {
+    final T value;
+    final long version;
+    final boolean read;
+
+    State(T value, long version, boolean read) {
+      this.value = value;
+      this.version = version;
+      this.read = read;
+    }
+  }
+
+  /**
+   * An argument (or other encoded value) awaiting decoding. Applying it is guarded by its monitor,
+   * so that the parser and predicate run only once, and no thread sees the config before the
+   * decoded value is installed.
+   */
+  private final class Deferred {
+    private final EncodedValue encoded;
+    private boolean applied;
+    private ConfigException failure;
+
+    Deferred(EncodedValue encoded) {
+      this.encoded = encoded;
+    }
+
+    @SuppressWarnings("unchecked") // Decoders give values of the config's type, or throw.
+    synchronized ConfigException apply() {
+      if (!applied) {
+        applied = true;
+        try {
+          install(checkValue((T) encoded.decode(Configurable.this)));
+          deferred = null;
+        } catch (ConfigRuntimeException ex) {
+          failure = ex.unwrap();
+        } catch (ConfigException ex) {
+          failure = ex;
+        }
+      }
+      return failure;
+    }
+
+    /**
+     * Installs the decoded value as though it had been set when the argument was given, before
+     * the config could be read: the state is not checked, the version is kept and no listener is
+     * notified. This runs under the monitor, so it calls out to nothing.
+     */
+    private void install(T value) {
+      while (true) {
+        State<T> current = state;
+        if (Objects.equal(current.value, value)
+            || STATE.compareAndSet(
+                Configurable.this, current, newState(value, current.version, current.read))) {
+          return;
+        }
+        // Lost a race with a read marking the config, so try again.
+      }
+    }
+  }
+
   /** Creates a new Configurable with the default value. */
   public static <T> Configurable<T> value(T defaultValue) {
     Preconditions.checkNotNull(
@@ -250,6 +652,46 @@ public final class Configurable<T> {
     return Configurable.<T>builder().withClass(clazz).makeReadOnlyAfterRead().build();
   }
 
+  /** Creates a new {@link IntConfigurable} with the default value. */
+  public static IntConfigurable intValue(int defaultValue) {
+    return intBuilder().withDefaultValue(defaultValue).build();
+  }
+
+  /** Creates a new {@link IntConfigurable} flag with the default value. */
+  public static IntConfigurable intFlag(int defaultValue) {
+    return intBuilder().withDefaultValue(defaultValue).makeReadOnlyAfterRead().build();
+  }
+
+  /** Creates a new {@link LongConfigurable} with the default value. */
+  public static LongConfigurable longValue(long defaultValue) {
+    return longBuilder().withDefaultValue(defaultValue).build();
+  }
+
+  /** Creates a new {@link LongConfigurable} flag with the default value. */
+  public static LongConfigurable longFlag(long defaultValue) {
+    return longBuilder().withDefaultValue(defaultValue).makeReadOnlyAfterRead().build();
+  }
+
+  /** Creates a new {@link DoubleConfigurable} with the default value. */
+  public static DoubleConfigurable doubleValue(double defaultValue) {
+    return doubleBuilder().withDefaultValue(defaultValue).build();
+  }
+
+  /** Creates a new {@link DoubleConfigurable} flag with the default value. */
+  public static DoubleConfigurable doubleFlag(double defaultValue) {
+    return doubleBuilder().withDefaultValue(defaultValue).makeReadOnlyAfterRead().build();
+  }
+
+  /** Creates a new {@link BooleanConfigurable} with the default value. */
+  public static BooleanConfigurable booleanValue(boolean defaultValue) {
+    return booleanBuilder().withDefaultValue(defaultValue).build();
+  }
+
+  /** Creates a new {@link BooleanConfigurable} flag with the default value. */
+  public static BooleanConfigurable booleanFlag(boolean defaultValue) {
+    return booleanBuilder().withDefaultValue(defaultValue).makeReadOnlyAfterRead().build();
+  }
+
   /** Returns a config that gives a list of strings */
   public static Configurable<List<String>> stringList(String... defaultValues) {
     return stringListConfigBuilder(defaultValues).build();
@@ -277,6 +719,22 @@ public final class Configurable<T> {
     return new Builder<>();
   }
 
+  public static IntConfigurable.Builder intBuilder() {
+    return new IntConfigurable.Builder();
+  }
+
+  public static LongConfigurable.Builder longBuilder() {
+    return new LongConfigurable.Builder();
+  }
+
+  public static DoubleConfigurable.Builder doubleBuilder() {
+    return new DoubleConfigurable.Builder();
+  }
+
+  public static BooleanConfigurable.Builder booleanBuilder() {
+    return new BooleanConfigurable.Builder();
+  }
+
   /** Builder class for configs */
   public static class Builder<T> {
     private Class<T> clazz;
@@ -1,6 +1,33 @@
 package com.bdl.config;
 
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Primitives;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import com.bdl.config.ConfigException.ConfigNameSettable;
+import com.bdl.config.ConfigException.IllegalConfigStateException;
+import com.bdl.config.ConfigException.TypeMismatchException;
+import com.bdl.config.ConfigException.UnrecognizedConfigException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -12,13 +39,142 @@ import javax.inject.Singleton;
 @Singleton
 public class Configuration {
 
+  /** The number of configs validated by each task of {@link #validateAll(Executor)}. */
+  private static final int VALIDATION_BATCH_SIZE = 64;
+
   private static final AtomicBoolean STATE_CHECKING_DISABLED = new AtomicBoolean(false);
 
+  private static final AtomicReferenceFieldUpdater<Configuration, ConfigSnapshot> SNAPSHOT =
+      AtomicReferenceFieldUpdater.newUpdater(Configuration.class, ConfigSnapshot.class, "snapshot");
+
   private final ConfigMap configs;
 
+  /**
+   * The listeners that keep {@link #snapshot} up to date, by slot. They are registered weakly, so
+   * they are held here to live exactly as long as this Configuration. Each is created and
+   * registered when its configurable is resolved.
+   */
+  private final ConfigChangeListener<?>[] snapshotUpdaters;
+
+  private final List<ConfigurationChangeListener> listeners;
+
+  /** Serializes batch updates, so that one batch cannot interleave with (or roll back) another. */
+  private final Object batchLock;
+
+  /** The current snapshot, or {@code null} until one is first needed. */
+  private volatile ConfigSnapshot snapshot;
+
   @Inject
   Configuration(ConfigMap configs) {
     this.configs = configs;
+    this.snapshotUpdaters = new ConfigChangeListener<?>[configs.size()];
+    this.listeners = new CopyOnWriteArrayList<>();
+    this.batchLock = new Object();
+    configs.addResolutionListener(
+        new ConfigMap.ResolutionListener() {
+          @Override
+          public void onResolved(int slot, Configurable<?> configurable) {
+            ConfigChangeListener<Object> updater = snapshotUpdater(slot);
+            snapshotUpdaters[slot] = updater;
+            configurable.registerWeakListener(updater);
+          }
+        });
+  }
+
+  /**
+   * Creates a Configuration of every config listed by a {@link ConfigRegistry} on the classpath,
+   * with the given arguments applied, as {@code MainConfig(Guice|Dagger)Module.forArguments(...)}
+   * would. No injector is needed, and beyond loading the registries no reflection or classpath
+   * scanning is done (except to read private config fields).
+   *
+   * @throws ConfigRuntimeException if an argument is malformed, names no config, or gives a config
+   *     an invalid value.
+   */
+  public static Configuration fromRegistry(String... arguments) {
+    return fromRegistry(ImmutableList.copyOf(arguments));
+  }
+
+  /**
+   * Creates a Configuration of every config listed by a {@link ConfigRegistry} on the classpath,
+   * with the given arguments applied.
+   *
+   * @see #fromRegistry(String...)
+   */
+  public static Configuration fromRegistry(Iterable<String> arguments) {
+    return new Configuration(registryProcessor(arguments).getConfigMap());
+  }
+
+  /**
+   * Creates a Configuration of every config listed by a {@link ConfigRegistry} on the classpath,
+   * set from the given image rather than from arguments. Nothing in the image is decoded here: each
+   * config's value is decoded when the config is first used, and a value that cannot be decoded is
+   * reported then, as for a deferred argument (see {@link #validateAll()}).
+   *
+   * @throws ConfigException if the image holds a config that is not on the classpath.
+   */
+  public static Configuration fromImage(ConfigImage image) throws ConfigException {
+    ConfigMap configs = registryProcessor(ImmutableList.<String>of()).getConfigMap();
+    image.applyLazily(configs);
+    return new Configuration(configs);
+  }
+
+  private static ConfigProcessor registryProcessor(Iterable<String> arguments) {
+    Set<ConfigSupplier> suppliers = Sets.newLinkedHashSet();
+    List<ConfigRegistry> registries = Lists.newArrayList(ServiceLoader.load(ConfigRegistry.class));
+    for (ConfigRegistry registry : registries) {
+      suppliers.addAll(registry.configSuppliers());
+    }
+    // A single registry's index was built at compile time. Registries from several libraries must
+    // be indexed together, here.
+    ConfigNameIndex names = registries.size() == 1 ? registries.get(0).nameIndex() : null;
+    return new ConfigProcessor(ImmutableList.copyOf(arguments), suppliers, false, false, names);
+  }
+
+  private ConfigChangeListener<Object> snapshotUpdater(final int slot) {
+    return new ConfigChangeListener<Object>() {
+      @Override
+      public void onConfigurationChange(Object newValue) {
+        ConfigSnapshot published = publish(slot);
+        if (published != null) {
+          fireOnChange(ImmutableSet.of(configs.fullNameAt(slot)), published);
+        }
+      }
+    };
+  }
+
+  /**
+   * Publishes a new snapshot holding the current states of the configs in the given slots.
+   * Listeners for concurrent changes may run out of order, so the configs' states are re-read here
+   * and only ever replace older states.
+   *
+   * @return the published snapshot, or {@code null} if the current snapshot already held those
+   *     states.
+   */
+  private ConfigSnapshot publish(int... slots) {
+    Configurable.State<?>[] states = new Configurable.State<?>[slots.length];
+    for (int i = 0; i < slots.length; i++) {
+      states[i] = configs.configurableAt(slots[i]).currentState();
+    }
+    while (true) {
+      ConfigSnapshot current = snapshot;
+      if (current == null) {
+        // Not taken yet; the initial snapshot will include these states.
+        return null;
+      }
+      ConfigSnapshot next = current.with(slots, states);
+      if (next == current) {
+        return null;
+      }
+      if (SNAPSHOT.compareAndSet(this, current, next)) {
+        return next;
+      }
+    }
+  }
+
+  private void fireOnChange(Set<String> changedNames, ConfigSnapshot published) {
+    for (ConfigurationChangeListener listener : listeners) {
+      listener.onConfigurationChange(changedNames, published);
+    }
   }
 
   /**
@@ -38,6 +194,125 @@ public class Configuration {
     return STATE_CHECKING_DISABLED.get();
   }
 
+  /**
+   * Returns an immutable view of the values of all configs as of now. Values read through the
+   * snapshot are mutually consistent, unlike values read one at a time with {@link #get(String)}
+   * while other threads make changes. This is a single volatile read, so it is cheap enough to
+   * take for each request.
+   *
+   * <p>The first snapshot taken resolves every config that has not been resolved yet, and parses
+   * every argument whose parsing was deferred.
+   *
+   * @throws ConfigRuntimeException if a deferred argument is not valid for its config.
+   */
+  public ConfigSnapshot snapshot() {
+    ConfigSnapshot current = snapshot;
+    if (current == null) {
+      // Resolving each configurable registers its updater, so that changes made once the snapshot
+      // is taken are published to it.
+      configs.allConfigurables();
+      boolean taken;
+      // The configs are read one at a time, so batches are held off until all have been read.
+      synchronized (batchLock) {
+        taken = SNAPSHOT.compareAndSet(this, null, ConfigSnapshot.of(configs));
+      }
+      if (taken) {
+        // Single changes made while the configs were read found no snapshot to publish to, so they
+        // are published now. Only states newer than those read replace them.
+        int[] slots = new int[configs.size()];
+        for (int slot = 0; slot < slots.length; slot++) {
+          slots[slot] = slot;
+        }
+        publish(slots);
+      }
+      current = snapshot;
+    }
+    return current;
+  }
+
+  /**
+   * Resolves, in the background, every config that has not been resolved yet. Configs are otherwise
+   * resolved the first time they are looked up, which for a config in a private field means loading
+   * and initializing the class that holds it. Configs held in different classes are resolved in
+   * parallel, as far as the executor allows.
+   *
+   * <p>Only configs in a Configuration built with lazy resolution (e.g. {@code
+   * MainConfigGuiceModule.forArguments(...).withLazyResolution()}) can be unresolved.
+   *
+   * @return a future that completes once every config is resolved, or fails with the error
+   *     resolving any one of them.
+   */
+  public ListenableFuture<?> warmUp(Executor executor) {
+    return configs.resolveAll(executor);
+  }
+
+  /**
+   * Parses and checks every argument whose parsing was deferred (e.g. with {@code
+   * MainConfigGuiceModule.forArguments(...).withDeferredParsing()}) and has not been applied yet.
+   * Otherwise, each is only parsed when its config is first used, and an invalid value is only
+   * reported then, by the read throwing.
+   *
+   * <p>Configs that have not been resolved had no arguments, so are not resolved here.
+   *
+   * @return the failure to apply each invalid argument, by the fully qualified name of its config.
+   *     The map is empty if every argument is valid.
+   */
+  public Map<String, ConfigException> validateAll() {
+    return validate(0, configs.size());
+  }
+
+  /**
+   * Parses and checks every argument whose parsing was deferred, as {@link #validateAll()} does, in
+   * tasks run in parallel on the given executor (as far as the executor allows).
+   *
+   * @return a future of the failure to apply each invalid argument, by the fully qualified name of
+   *     its config.
+   */
+  public ListenableFuture<Map<String, ConfigException>> validateAll(Executor executor) {
+    List<ListenableFuture<Map<String, ConfigException>>> tasks = Lists.newArrayList();
+    for (int start = 0; start < configs.size(); start += VALIDATION_BATCH_SIZE) {
+      final int from = start;
+      final int to = Math.min(start + VALIDATION_BATCH_SIZE, configs.size());
+      ListenableFutureTask<Map<String, ConfigException>> task =
+          ListenableFutureTask.create(
+              new Callable<Map<String, ConfigException>>() {
+                @Override
+                public Map<String, ConfigException> call() {
+                  return validate(from, to);
+                }
+              });
+      executor.execute(task);
+      tasks.add(task);
+    }
+    return Futures.transform(
+        Futures.allAsList(tasks),
+        new Function<List<Map<String, ConfigException>>, Map<String, ConfigException>>() {
+          @Override
+          public Map<String, ConfigException> apply(List<Map<String, ConfigException>> batches) {
+            ImmutableMap.Builder<String, ConfigException> failures = ImmutableMap.builder();
+            for (Map<String, ConfigException> batch : batches) {
+              failures.putAll(batch);
+            }
+            return failures.build();
+          }
+        },
+        MoreExecutors.directExecutor());
+  }
+
+  /** Validates the configs in the given range of slots. */
+  private Map<String, ConfigException> validate(int from, int to) {
+    ImmutableMap.Builder<String, ConfigException> failures = ImmutableMap.builder();
+    for (int slot = from; slot < to; slot++) {
+      Configurable<?> configurable = configs.resolvedAt(slot);
+      ConfigException failure = configurable == null ? null : configurable.validate();
+      if (failure != null) {
+        String name = configs.fullNameAt(slot);
+        failures.put(name, withConfigName(failure, name));
+      }
+    }
+    return failures.build();
+  }
+
   /**
    * Obtain the current configurable value by name.
    *
@@ -53,6 +328,103 @@ public class Configuration {
     return configs.getOrThrow(name).get();
   }
 
+  /**
+   * Resolves the config with the given name and type to a {@link ConfigKey}, through which it can
+   * be read without any further lookup.
+   *
+   * @throws ConfigException if an error occurs:
+   *     <ul>
+   *     <li> {@link ConfigException.UnrecognizedConfigException} if no configurable matches the
+   *         given name.
+   *     <li> {@link ConfigException.AmbiguousConfigException} if more than one configurable matches
+   *         the given name.
+   *     <li> {@link ConfigException.TypeMismatchException} if the configurable's values are not
+   *         all of the given type (which may be a supertype of the configurable's type, as a key
+   *         only reads).
+   *     </ul>
+   */
+  public <T> ConfigKey<T> key(String name, Class<T> type) throws ConfigException {
+    int slot = configs.slotOrThrow(name);
+    return new ConfigKey<>(name, slot, checkType(name, configs.configurableAt(slot), type));
+  }
+
+  /**
+   * Obtain the current value of an {@code int} configurable by name. Configs created as {@link
+   * IntConfigurable}s are read without boxing.
+   *
+   * @throws ConfigException if an error occurs:
+   *     <ul>
+   *     <li> {@link ConfigException.UnrecognizedConfigException} if no configurable matches the
+   *         given name.
+   *     <li> {@link ConfigException.AmbiguousConfigException} if more than one configurable matches
+   *         the given name.
+   *     <li> {@link ConfigException.TypeMismatchException} if the configurable does not hold an
+   *         {@code Integer}.
+   *     </ul>
+   */
+  public int getInt(String name) throws ConfigException {
+    Configurable<?> config = configs.getOrThrow(name);
+    if (config instanceof IntConfigurable) {
+      return ((IntConfigurable) config).getInt();
+    }
+    return checkType(name, config, Integer.class).get();
+  }
+
+  /**
+   * Obtain the current value of a {@code long} configurable by name. Configs created as {@link
+   * LongConfigurable}s are read without boxing.
+   *
+   * @throws ConfigException if an error occurs, as for {@link #getInt(String)}.
+   */
+  public long getLong(String name) throws ConfigException {
+    Configurable<?> config = configs.getOrThrow(name);
+    if (config instanceof LongConfigurable) {
+      return ((LongConfigurable) config).getLong();
+    }
+    return checkType(name, config, Long.class).get();
+  }
+
+  /**
+   * Obtain the current value of a {@code double} configurable by name. Configs created as {@link
+   * DoubleConfigurable}s are read without boxing.
+   *
+   * @throws ConfigException if an error occurs, as for {@link #getInt(String)}.
+   */
+  public double getDouble(String name) throws ConfigException {
+    Configurable<?> config = configs.getOrThrow(name);
+    if (config instanceof DoubleConfigurable) {
+      return ((DoubleConfigurable) config).getDouble();
+    }
+    return checkType(name, config, Double.class).get();
+  }
+
+  /**
+   * Obtain the current value of a {@code boolean} configurable by name. Configs created as {@link
+   * BooleanConfigurable}s are read without boxing.
+   *
+   * @throws ConfigException if an error occurs, as for {@link #getInt(String)}.
+   */
+  public boolean getBoolean(String name) throws ConfigException {
+    Configurable<?> config = configs.getOrThrow(name);
+    if (config instanceof BooleanConfigurable) {
+      return ((BooleanConfigurable) config).getBoolean();
+    }
+    return checkType(name, config, Boolean.class).get();
+  }
+
+  /**
+   * Returns the configurable as one of the given type, for reading only: the type may be any
+   * supertype of the configurable's own type.
+   */
+  @SuppressWarnings("unchecked") // Type is checked against the configurable's type.
+  static <T> Configurable<T> checkType(String name, Configurable<?> config, Class<T> type)
+      throws TypeMismatchException {
+    if (!type.isAssignableFrom(Primitives.wrap(config.getType()))) {
+      throw new TypeMismatchException(name, type, config.getType());
+    }
+    return (Configurable<T>) config;
+  }
+
   /**
    * Updates the configurable identified with the given name to the given value.
    *
@@ -74,6 +446,21 @@ public class Configuration {
     return ((Configurable<T>) configs.getOrThrow(name)).setValue(newValue);
   }
 
+  /**
+   * Returns the configurable identified with the given name.
+   *
+   * @throws UnrecognizedConfigException if no configurable matches the given name.
+   * @throws ConfigRuntimeException wrapping an {@link ConfigException.AmbiguousConfigException} if
+   *     more than one configurable matches the given name.
+   */
+  Configurable<?> configurable(String name) throws UnrecognizedConfigException {
+    Configurable<?> config = configs.getOrNull(name);
+    if (config == null) {
+      throw new UnrecognizedConfigException(name);
+    }
+    return config;
+  }
+
   /**
    * Updates the configurable identified with the given name to the given value.
    *
@@ -94,6 +481,158 @@ public class Configuration {
     return configs.getOrThrow(name).setFromString(newValueAsString);
   }
 
+  /**
+   * Updates the configurables identified by the keys of the given map to the corresponding values,
+   * as a single atomic change.
+   *
+   * <p>Every value is checked before anything is changed, so if any value is invalid (or any config
+   * is not writable) no config is changed. Otherwise all of the changes become visible to {@link
+   * #snapshot()} at once. Each config's own listeners are then notified, followed by a single
+   * {@link ConfigurationChangeListener} event naming every config that changed.
+   *
+   * @throws ConfigException if an error occurs, as for {@link #update(String, Object)}.
+   */
+  public void updateAll(Map<String, ?> newValues) throws ConfigException {
+    List<PendingUpdate<?>> updates = Lists.newArrayListWithCapacity(newValues.size());
+    for (Map.Entry<String, ?> entry : newValues.entrySet()) {
+      updates.add(pendingUpdate(entry.getKey(), entry.getValue()));
+    }
+    apply(updates);
+  }
+
+  /**
+   * Updates the configurables identified by the keys of the given map to the values parsed from the
+   * corresponding strings, as a single atomic change. Every string is parsed and checked before
+   * anything is changed.
+   *
+   * @throws ConfigException if an error occurs, as for {@link #updateAsString(String, String)}.
+   * @see #updateAll(Map)
+   */
+  public void updateAllAsStrings(Map<String, String> newValuesAsStrings) throws ConfigException {
+    List<PendingUpdate<?>> updates = Lists.newArrayListWithCapacity(newValuesAsStrings.size());
+    for (Map.Entry<String, String> entry : newValuesAsStrings.entrySet()) {
+      String name = entry.getKey();
+      Configurable<?> config = configs.getOrThrow(name);
+      Object value;
+      try {
+        value = config.parse(entry.getValue());
+      } catch (ConfigException ex) {
+        throw withConfigName(ex, name);
+      }
+      updates.add(pendingUpdate(name, value));
+    }
+    apply(updates);
+  }
+
+  /**
+   * Applies configs given as they would be in arguments, so that {@code --[config_name]} and {@code
+   * --no[config_name]} set boolean configs, as a single atomic change, as for {@link
+   * #updateAll(Map)}. The configs named by {@code removedArguments}, arguments that no longer
+   * apply, are reset to their defaults in the same change, unless they have no default or are also
+   * set by {@code arguments}. Configs whose values do not change are not notified.
+   *
+   * @param arguments the new arguments, by config name, with {@code null} for a value omitted.
+   * @param removedArguments the arguments that were applied before but have since been removed.
+   * @throws ConfigException if an error occurs, as for {@link #updateAllAsStrings(Map)}.
+   */
+  void updateAllFromArguments(
+      Map<String, String> arguments, Map<String, String> removedArguments) throws ConfigException {
+    // Keyed by slot, so that an argument replaces the reset of a removed one for the same config.
+    Map<Integer, PendingUpdate<?>> updates = Maps.newLinkedHashMap();
+    try {
+      for (Map.Entry<String, String> entry : removedArguments.entrySet()) {
+        ConfigProcessor.PendingArgument<?> argument;
+        try {
+          argument = ConfigProcessor.findConfig(configs, entry.getKey(), entry.getValue());
+        } catch (UnrecognizedConfigException ex) {
+          // It was never applied, so there is nothing to reset.
+          continue;
+        }
+        Object defaultValue = argument.config.getDefaultValue();
+        if (defaultValue != null) {
+          PendingUpdate<?> update = pendingUpdate(argument.configName, defaultValue);
+          updates.put(update.slot, update);
+        }
+      }
+      for (Map.Entry<String, String> entry : arguments.entrySet()) {
+        ConfigProcessor.PendingArgument<?> argument =
+            ConfigProcessor.findConfig(configs, entry.getKey(), entry.getValue());
+        Object value;
+        try {
+          value = argument.config.parse(argument.valueString);
+        } catch (ConfigException ex) {
+          throw withConfigName(ex, argument.configName);
+        }
+        PendingUpdate<?> update = pendingUpdate(argument.configName, value);
+        updates.remove(update.slot);
+        updates.put(update.slot, update);
+      }
+    } catch (ConfigRuntimeException ex) {
+      // The name index reports a name matching more than one config unchecked.
+      throw ex.unwrap();
+    }
+    apply(ImmutableList.copyOf(updates.values()));
+  }
+
+  @SuppressWarnings("unchecked") // The value's type is checked against the configurable's type.
+  private <T> PendingUpdate<T> pendingUpdate(String name, Object value) throws ConfigException {
+    int slot = configs.slotOrThrow(name);
+    Configurable<T> config = (Configurable<T>) configs.configurableAt(slot);
+    try {
+      config.checkValue((T) value);
+      if (config.isReadOnly()) {
+        throw new IllegalConfigStateException();
+      }
+    } catch (ConfigRuntimeException ex) {
+      throw withConfigName(ex.unwrap(), name);
+    } catch (ConfigException ex) {
+      throw withConfigName(ex, name);
+    }
+    return new PendingUpdate<>(name, slot, config, (T) value);
+  }
+
+  private void apply(List<PendingUpdate<?>> updates) throws ConfigException {
+    Set<String> changedNames;
+    ConfigSnapshot published;
+    synchronized (batchLock) {
+      int applied = 0;
+      try {
+        for (; applied < updates.size(); applied++) {
+          updates.get(applied).apply();
+        }
+      } catch (IllegalConfigStateException ex) {
+        // A flag was read after being checked above. Undo the changes made so far.
+        for (int i = applied - 1; i >= 0; i--) {
+          updates.get(i).rollBack();
+        }
+        throw withConfigName(ex, updates.get(applied).name);
+      }
+      ImmutableSet.Builder<String> changed = ImmutableSet.builder();
+      List<Integer> changedSlots = Lists.newArrayListWithCapacity(updates.size());
+      for (PendingUpdate<?> update : updates) {
+        if (update.changed()) {
+          changed.add(configs.fullNameAt(update.slot));
+          changedSlots.add(update.slot);
+        }
+      }
+      changedNames = changed.build();
+      published = publish(Ints.toArray(changedSlots));
+    }
+    for (PendingUpdate<?> update : updates) {
+      update.notifyListeners();
+    }
+    if (!changedNames.isEmpty()) {
+      fireOnChange(changedNames, published == null ? snapshot() : published);
+    }
+  }
+
+  private static ConfigException withConfigName(ConfigException ex, String name) {
+    if (ex instanceof ConfigNameSettable) {
+      return ((ConfigNameSettable) ex).withConfigName(name);
+    }
+    return ex;
+  }
+
   /**
    * Resets the configurable with the given name to its default value.
    *
@@ -169,6 +708,49 @@ public class Configuration {
     return ((Configurable<T>) configs.getOrThrow(name)).registerListener(listener, listen);
   }
 
+  /**
+   * Registers a listener to the configuration with the given name, to be notified on the given
+   * executor. Changes that arrive while a notification is pending are coalesced, so the listener
+   * only sees the latest value.
+   *
+   * <p>As with {@link #registerListener(String, ConfigChangeListener, boolean)}, no type-checking is
+   * performed here.
+   *
+   * @param name the name of the config to which to attach the listener.
+   * @param listener the listener to attach.
+   * @param executor the executor on which to notify the listener.
+   * @throws ConfigException if an error occurs:
+   *     <ul>
+   *     <li>{@link ConfigException.UnrecognizedConfigException} if no configurable matches the
+   *         given name.
+   *     <li>{@link ConfigException.AmbiguousConfigException} if more than one configurable matches
+   *         the given name.
+   *     </ul>
+   * @see Configurable#registerListener(ConfigChangeListener, Executor)
+   */
+  @SuppressWarnings("unchecked") // Can't stop it here, but may cause exceptions elsewhere.
+  public <T> ConfigChangeListener.ListenerRegistration registerListener(
+      String name, ConfigChangeListener<T> listener, Executor executor) throws ConfigException {
+    return ((Configurable<T>) configs.getOrThrow(name)).registerListener(listener, executor);
+  }
+
+  /**
+   * Registers a listener to be told of every change to any config in this Configuration, with the
+   * changes from one {@link #updateAll(Map)} arriving together.
+   */
+  public ConfigChangeListener.ListenerRegistration registerListener(
+      final ConfigurationChangeListener listener) {
+    // Events carry a snapshot, and changes are only published once there is one to publish to.
+    snapshot();
+    listeners.add(listener);
+    return new ConfigChangeListener.ListenerRegistration() {
+      @Override
+      public void unregister() {
+        listeners.remove(listener);
+      }
+    };
+  }
+
   /** Writes config name-value pairs to the given writer. */
   public void writeTo(ConfigObjectWriter writer) {
     for (String key : configs.allKeys()) {
@@ -181,6 +763,20 @@ public class Configuration {
     }
   }
 
+  /**
+   * Writes each config's value to the given writer under the config's fully qualified name, which
+   * (unlike a short name) cannot become ambiguous or name a different config in another process.
+   */
+  void writeWithFullNamesTo(ConfigObjectWriter writer) {
+    for (int slot = 0; slot < configs.size(); slot++) {
+      try {
+        writer.write(configs.fullNameAt(slot), configs.configurableAt(slot).get());
+      } catch (ConfigException ex) {
+        throw ex.wrap();
+      }
+    }
+  }
+
   /** Writes config name-value pairs to the given writer. */
   public void writeTo(ConfigStringWriter writer) {
     for (String key : configs.allKeys()) {
@@ -193,4 +789,45 @@ public class Configuration {
       }
     }
   }
+
+  /** A validated change to one config, as part of a batch. */
+  private static final class PendingUpdate<T> {
+    private final String name;
+    private final int slot;
+    private final Configurable<T> config;
+    private final T value;
+    private Configurable.State<T> replaced;
+
+    private PendingUpdate(String name, int slot, Configurable<T> config, T value) {
+      this.name = name;
+      this.slot = slot;
+      this.config = config;
+      this.value = value;
+    }
+
+    void apply() throws IllegalConfigStateException {
+      replaced = config.setQuietly(value, true);
+    }
+
+    boolean changed() {
+      return replaced != null;
+    }
+
+    void rollBack() {
+      if (replaced != null) {
+        try {
+          config.setQuietly(replaced.value, false);
+        } catch (IllegalConfigStateException ex) {
+          // Should never happen, since the state is not checked.
+          throw ex.wrap();
+        }
+      }
+    }
+
+    void notifyListeners() {
+      if (replaced != null) {
+        config.fireOnChange(value);
+      }
+    }
+  }
 }
@@ -0,0 +1,23 @@
+package com.bdl.config;
+
+import java.util.Set;
+
+/**
+ * A listener for changes to any of the configs in a {@link Configuration}.
+ *
+ * <p>Unlike a {@link ConfigChangeListener}, which hears about one config, this hears about every
+ * change published to the Configuration's snapshot. The changes made by one {@link
+ * Configuration#updateAll(java.util.Map)} arrive as a single event.
+ *
+ * @author Ben Leitner
+ */
+public interface ConfigurationChangeListener {
+
+  /**
+   * Notifies the listener that the configs with the given fully qualified names have changed.
+   *
+   * @param changedNames the fully qualified names of the changed configs.
+   * @param snapshot a snapshot that includes the changes.
+   */
+  void onConfigurationChange(Set<String> changedNames, ConfigSnapshot snapshot);
+}
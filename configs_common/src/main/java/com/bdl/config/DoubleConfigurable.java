@@ -0,0 +1,177 @@
+package com.bdl.config;
+
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableList;
+
+import com.bdl.config.ConfigChangeListener.ListenerRegistration;
+
+/**
+ * A {@link Configurable} specialized for {@code double} values. Each state of the config also holds
+ * its value unboxed, so {@link #getDouble()} can be called on hot paths without unboxing.
+ *
+ * @author Ben Leitner
+ */
+public final class DoubleConfigurable extends Configurable<Double> {
+
+  /** A parser that converts strings directly into {@code double} values. */
+  public interface DoubleParser {
+    double parse(String input);
+  }
+
+  /** A predicate on {@code double} values. */
+  public interface DoublePredicate {
+    boolean apply(double value);
+  }
+
+  /** A listener for changes to a {@link DoubleConfigurable}. */
+  public interface DoubleChangeListener {
+
+    /** Notifies the listener that a change has occurred */
+    void onConfigurationChange(double newValue);
+  }
+
+  private DoubleConfigurable(
+      double defaultValue,
+      Predicate<? super Double> predicate,
+      Function<String, Double> parser,
+      boolean readOnlyAfterRead) {
+    super(Double.class, defaultValue, predicate, parser, readOnlyAfterRead);
+  }
+
+  /** Returns the value of this config without boxing. */
+  public double getDouble() {
+    return ((DoubleState) readState()).doubleValue;
+  }
+
+  /**
+   * Sets the config to a new value.
+   *
+   * @return the prior value held by the config.
+   * @throws ConfigException if an error occurs, as for {@link #setValue(Object)}.
+   */
+  public double setDouble(double value) throws ConfigException {
+    return setValue(value);
+  }
+
+  @Override
+  State<Double> newState(Double value, long version, boolean read) {
+    return new DoubleState(value, version, read);
+  }
+
+  /** Registers a listener to the configurable. */
+  public ListenerRegistration registerDoubleListener(DoubleChangeListener listener) {
+    return registerDoubleListener(listener, false);
+  }
+
+  /**
+   * Registers a listener to the configurable, including firing an initial event to sent the current
+   * value.
+   */
+  public ListenerRegistration registerDoubleListener(
+      final DoubleChangeListener listener, boolean listen) {
+    return registerListener(
+        new ConfigChangeListener<Double>() {
+          @Override
+          public void onConfigurationChange(Double newValue) {
+            listener.onConfigurationChange(newValue);
+          }
+        },
+        listen);
+  }
+
+  /** A config state that also holds the value unboxed. */
+  private static final class DoubleState extends State<Double> {
+    private final double doubleValue;
+
+    private DoubleState(Double value, long version, boolean read) {
+      super(value, version, read);
+      this.doubleValue = value;
+    }
+  }
+
+  /** Builder class for {@link DoubleConfigurable}s. */
+  public static final class Builder {
+    private double defaultValue;
+    private DoubleParser parser;
+    private ImmutableList.Builder<DoublePredicate> predicates;
+    private boolean readOnlyAfterRead;
+
+    Builder() {
+      predicates = ImmutableList.builder();
+    }
+
+    public Builder withDefaultValue(double defaultValue) {
+      this.defaultValue = defaultValue;
+      return this;
+    }
+
+    public Builder withPredicate(DoublePredicate predicate) {
+      predicates.add(Preconditions.checkNotNull(predicate, "Predicate cannot be null."));
+      return this;
+    }
+
+    public Builder withParser(DoubleParser parser) {
+      Preconditions.checkState(this.parser == null, "Parser already set to %s", this.parser);
+      this.parser = Preconditions.checkNotNull(parser, "Parser cannot be null.");
+      return this;
+    }
+
+    /** Indicates that the Configurable should not be writable once its value has been read. */
+    public Builder makeReadOnlyAfterRead() {
+      this.readOnlyAfterRead = true;
+      return this;
+    }
+
+    public DoubleConfigurable build() {
+      ImmutableList<DoublePredicate> built = predicates.build();
+      Predicate<? super Double> predicate = Predicates.alwaysTrue();
+      if (!built.isEmpty()) {
+        predicate = new AllOf(built);
+      }
+      return new DoubleConfigurable(
+          defaultValue,
+          predicate,
+          new BoxingParser(parser == null ? Parsers.PRIMITIVE_DOUBLE_PARSER : parser),
+          readOnlyAfterRead);
+    }
+  }
+
+  /**
+   * Adapts a list of {@link DoublePredicate}s to the boxed predicate used by {@link Configurable}.
+   */
+  private static final class AllOf implements Predicate<Double> {
+    private final ImmutableList<DoublePredicate> predicates;
+
+    private AllOf(ImmutableList<DoublePredicate> predicates) {
+      this.predicates = predicates;
+    }
+
+    @Override
+    public boolean apply(Double input) {
+      double value = input;
+      for (DoublePredicate predicate : predicates) {
+        if (!predicate.apply(value)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /** Adapts a {@link DoubleParser} to the boxed parser used by {@link Configurable}. */
+  private static final class BoxingParser implements Function<String, Double> {
+    private final DoubleParser parser;
+
+    private BoxingParser(DoubleParser parser) {
+      this.parser = parser;
+    }
+
+    @Override
+    public Double apply(String input) {
+      return parser.parse(input);
+    }
+  }
+}
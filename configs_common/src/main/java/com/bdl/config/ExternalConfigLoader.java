@@ -2,25 +2,69 @@ package com.bdl.config;
 
 import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import com.bdl.config.ConfigException.ExternalConfigLoadException;
+import com.bdl.config.ConfigException.InvalidConfigSyntaxException;
 
 import java.io.BufferedReader;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.ServiceLoader;
 import java.util.regex.Pattern;
 
 /**
  * Interface for classes that load config values from external sources
  *
+ * <p>Besides the loaders built in here, loaders are found with {@link ServiceLoader}: to add one,
+ * list its class, which must have a public no-argument constructor, in {@code
+ * META-INF/services/com.bdl.config.ExternalConfigLoader}.
+ *
  * @author Benjamin Leitner
  */
-abstract class ExternalConfigLoader {
+public abstract class ExternalConfigLoader {
+
+  /** How long a source may take to load, unless its loader says otherwise. */
+  private static final long DEFAULT_TIMEOUT_MILLIS = 30000;
+
+  private static final Splitter SOURCE_LIST_SPLITTER =
+      Splitter.on(',').trimResults().omitEmptyStrings();
+
+  /** Receives the configs loaded from an external source. */
+  public interface ConfigSink {
+
+    /** Adds config arguments, as given on the command line, to be parsed. */
+    void addArguments(Iterable<String> arguments);
+
+    /**
+     * Adds a config assignment that has already been parsed, with a {@code null} value if none was
+     * given.
+     */
+    void addConfig(String name, String value);
 
-  static final List<ExternalConfigLoader> LOADERS =
-      Lists.newArrayList(fromFile(), fromResource(), fromSystemProperties());
+    /** Reports a malformed config assignment, and where in the source it was found. */
+    void addMalformed(String assignment, String position);
+  }
+
+  private static final List<ExternalConfigLoader> BUILT_IN_LOADERS =
+      ImmutableList.of(
+          fromFile(),
+          fromResource(),
+          fromSystemProperties(),
+          fromEnvironment(),
+          fromPropertiesFile());
   private final String sourceConfig;
 
   protected ExternalConfigLoader(String sourceConfig) {
@@ -42,6 +86,23 @@ abstract class ExternalConfigLoader {
     return new SystemPropertiesExternalConfigLoader();
   }
 
+  /** Returns an {@link ExternalConfigLoader} that reads from environment variables */
+  public static ExternalConfigLoader fromEnvironment() {
+    return new EnvironmentExternalConfigLoader();
+  }
+
+  /** Returns an {@link ExternalConfigLoader} that reads from {@code .properties} files */
+  public static ExternalConfigLoader fromPropertiesFile() {
+    return new PropertiesFileExternalConfigLoader();
+  }
+
+  /** Returns the built-in loaders, followed by any found with {@link ServiceLoader}. */
+  static List<ExternalConfigLoader> loaders() {
+    List<ExternalConfigLoader> loaders = Lists.newArrayList(BUILT_IN_LOADERS);
+    Iterables.addAll(loaders, ServiceLoader.load(ExternalConfigLoader.class));
+    return loaders;
+  }
+
   /** Returns the name of the config to which this external loader is keyed */
   public String getExternalConfigName() {
     return sourceConfig;
@@ -53,6 +114,39 @@ abstract class ExternalConfigLoader {
    */
   public abstract List<String> getConfigArgs(String externalConfigValue) throws Exception;
 
+  /**
+   * Loads configs from an external source based on the given sourcing config value into the given
+   * sink. By default, these are the arguments from {@link #getConfigArgs(String)}; loaders that
+   * can parse their source more directly override this.
+   */
+  protected void loadConfigs(String externalConfigValue, ConfigSink sink) throws Exception {
+    sink.addArguments(getConfigArgs(externalConfigValue));
+  }
+
+  /**
+   * Returns how long loading from one source may take, in milliseconds, before startup fails.
+   * Sources are loaded in parallel, so this bounds the time taken by all of them.
+   */
+  protected long getTimeoutMillis() {
+    return DEFAULT_TIMEOUT_MILLIS;
+  }
+
+  /**
+   * Splits the given sourcing config value into the values of separate sources, which are loaded
+   * in parallel. By default, the value names a single source.
+   */
+  protected Iterable<String> splitSources(String externalConfigValue) {
+    return ImmutableList.of(externalConfigValue);
+  }
+
+  /**
+   * Returns a key identifying the source named by the given sourcing config value, so that a source
+   * named more than once is only loaded once.
+   */
+  protected String sourceKey(String externalConfigValue) {
+    return externalConfigValue;
+  }
+
   /**
    * An base extension of {@link ExternalConfigLoader} for classes that obtain their configs via a
    * BufferedReader
@@ -65,6 +159,11 @@ abstract class ExternalConfigLoader {
       super(sourceConfig);
     }
 
+    @Override
+    protected Iterable<String> splitSources(String externalConfigValue) {
+      return SOURCE_LIST_SPLITTER.split(externalConfigValue);
+    }
+
     @Override
     public List<String> getConfigArgs(String externalSourceConfig) throws Exception {
       BufferedReader reader = null;
@@ -91,18 +190,74 @@ abstract class ExternalConfigLoader {
     protected abstract BufferedReader getReader(String externalSourceConfig) throws Exception;
   }
 
-  /** An implementation of {@link ExternalConfigLoader} that reads configs from a file */
-  private static class FileExternalConfigLoader extends ReaderExternalConfigLoader {
+  /**
+   * An implementation of {@link ExternalConfigLoader} that reads configs from a UTF-8 file, with a
+   * {@link ConfigFileParser}.
+   */
+  private static class FileExternalConfigLoader extends ExternalConfigLoader {
 
     private static final String CONFIG_FILE_NAME = "config_file";
 
+    private final ConfigFileParser parser;
+
     protected FileExternalConfigLoader() {
       super(CONFIG_FILE_NAME);
+      parser = new ConfigFileParser(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    protected Iterable<String> splitSources(String externalConfigValue) {
+      return SOURCE_LIST_SPLITTER.split(externalConfigValue);
     }
 
     @Override
-    protected BufferedReader getReader(String filename) throws Exception {
-      return new BufferedReader(new FileReader(filename));
+    protected String sourceKey(String filename) {
+      return Paths.get(filename).toAbsolutePath().normalize().toString();
+    }
+
+    @Override
+    public List<String> getConfigArgs(String filename) throws Exception {
+      final ImmutableList.Builder<String> configArgs = ImmutableList.builder();
+      loadConfigs(
+          filename,
+          new ConfigSink() {
+            @Override
+            public void addArguments(Iterable<String> arguments) {
+              configArgs.addAll(arguments);
+            }
+
+            @Override
+            public void addConfig(String name, String value) {
+              configArgs.add(value == null ? "--" + name : String.format("--%s=%s", name, value));
+            }
+
+            @Override
+            public void addMalformed(String assignment, String position) {
+              throw new InvalidConfigSyntaxException(assignment, position).wrap();
+            }
+          });
+      return configArgs.build();
+    }
+
+    @Override
+    protected void loadConfigs(String filename, final ConfigSink sink) throws Exception {
+      try {
+        parser.parse(
+            Paths.get(filename),
+            new ConfigFileParser.AssignmentSink() {
+              @Override
+              public void addConfig(String name, String value) {
+                sink.addConfig(name, value);
+              }
+
+              @Override
+              public void addMalformed(String assignment, String position) {
+                sink.addMalformed(assignment, position);
+              }
+            });
+      } catch (NoSuchFileException ex) {
+        throw new ExternalConfigLoadException(filename);
+      }
     }
   }
 
@@ -134,28 +289,126 @@ abstract class ExternalConfigLoader {
     }
   }
 
+  /**
+   * A base extension of {@link ExternalConfigLoader} for sources that hold config names and values
+   * as such, which are handed to the {@link ConfigSink} as they are, rather than as arguments to be
+   * parsed.
+   */
+  private abstract static class EntryExternalConfigLoader extends ExternalConfigLoader {
+
+    private static final String CONFIG_ARG_TEMPLATE = "--%s=%s";
+
+    protected EntryExternalConfigLoader(String sourceConfig) {
+      super(sourceConfig);
+    }
+
+    /**
+     * Obtains the config names and values from an external source based on the given sourcing
+     * config value.
+     */
+    protected abstract Iterable<Map.Entry<String, String>> getConfigEntries(
+        String externalConfigValue) throws Exception;
+
+    @Override
+    public List<String> getConfigArgs(String externalConfigValue) throws Exception {
+      ImmutableList.Builder<String> configArgs = ImmutableList.builder();
+      for (Map.Entry<String, String> entry : getConfigEntries(externalConfigValue)) {
+        configArgs.add(String.format(CONFIG_ARG_TEMPLATE, entry.getKey(), entry.getValue()));
+      }
+      return configArgs.build();
+    }
+
+    @Override
+    protected void loadConfigs(String externalConfigValue, ConfigSink sink) throws Exception {
+      for (Map.Entry<String, String> entry : getConfigEntries(externalConfigValue)) {
+        sink.addConfig(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
   /**
    * An extension of {@link ExternalConfigLoader} that reads config values from system properties
    */
-  private static class SystemPropertiesExternalConfigLoader extends ExternalConfigLoader {
+  private static class SystemPropertiesExternalConfigLoader extends EntryExternalConfigLoader {
 
     private static final String SYSTEM_PROPERTY_CONFIG_NAME = "system_configs";
-    private static final String SYSTEM_PROPERTY_CONFIG_TEMPLATE = "--%s=%s";
 
     protected SystemPropertiesExternalConfigLoader() {
       super(SYSTEM_PROPERTY_CONFIG_NAME);
     }
 
     @Override
-    public List<String> getConfigArgs(String externalConfigValue) throws Exception {
-      ImmutableList.Builder<String> configArgs = ImmutableList.builder();
+    protected Iterable<Map.Entry<String, String>> getConfigEntries(String externalConfigValue) {
+      Map<String, String> configs = Maps.newLinkedHashMap();
       for (String systemConfig : Splitter.on(',').split(externalConfigValue)) {
         String value = System.getProperty(systemConfig);
         if (value != null) {
-          configArgs.add(String.format(SYSTEM_PROPERTY_CONFIG_TEMPLATE, systemConfig, value));
+          configs.put(systemConfig, value);
         }
       }
-      return configArgs.build();
+      return configs.entrySet();
+    }
+  }
+
+  /**
+   * An extension of {@link ExternalConfigLoader} that reads config values from environment
+   * variables, each named as the config it sets.
+   */
+  private static class EnvironmentExternalConfigLoader extends EntryExternalConfigLoader {
+
+    private static final String ENVIRONMENT_CONFIG_NAME = "env_configs";
+
+    protected EnvironmentExternalConfigLoader() {
+      super(ENVIRONMENT_CONFIG_NAME);
+    }
+
+    @Override
+    protected Iterable<Map.Entry<String, String>> getConfigEntries(String externalConfigValue) {
+      Map<String, String> environment = System.getenv();
+      Map<String, String> configs = Maps.newLinkedHashMap();
+      for (String variable : Splitter.on(',').split(externalConfigValue)) {
+        String value = environment.get(variable);
+        if (value != null) {
+          configs.put(variable, value);
+        }
+      }
+      return configs.entrySet();
+    }
+  }
+
+  /**
+   * An extension of {@link ExternalConfigLoader} that reads every property of a UTF-8 {@code
+   * .properties} file as a config value, keyed by config name.
+   */
+  private static class PropertiesFileExternalConfigLoader extends EntryExternalConfigLoader {
+
+    private static final String PROPERTIES_FILE_CONFIG_NAME = "properties_file";
+
+    protected PropertiesFileExternalConfigLoader() {
+      super(PROPERTIES_FILE_CONFIG_NAME);
+    }
+
+    @Override
+    protected Iterable<String> splitSources(String externalConfigValue) {
+      return SOURCE_LIST_SPLITTER.split(externalConfigValue);
+    }
+
+    @Override
+    protected String sourceKey(String filename) {
+      return Paths.get(filename).toAbsolutePath().normalize().toString();
+    }
+
+    @Override
+    protected Iterable<Map.Entry<String, String>> getConfigEntries(String filename)
+        throws Exception {
+      Properties properties = new Properties();
+      try (Reader reader = Files.newBufferedReader(Paths.get(filename), StandardCharsets.UTF_8)) {
+        properties.load(reader);
+      } catch (NoSuchFileException ex) {
+        throw new ExternalConfigLoadException(filename);
+      }
+      // Properties are unordered, so they are sorted for the configs to be applied predictably.
+      return ImmutableSortedMap.copyOf(Maps.fromProperties(properties)).entrySet();
     }
   }
 }
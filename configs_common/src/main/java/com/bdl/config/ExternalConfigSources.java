@@ -0,0 +1,240 @@
+package com.bdl.config;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import com.bdl.config.ConfigException.ExternalConfigLoadException;
+import com.bdl.config.ExternalConfigLoader.ConfigSink;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The external sources of configs (files, resources, properties and so on) named by a set of
+ * arguments, and by the sources themselves.
+ *
+ * <p>Sources are loaded in rounds: every source named so far is fetched at once, each on its own
+ * thread and within its loader's timeout, so that a round takes about as long as its slowest
+ * source. The fetched configs are then applied in the order in which their sources were named, and
+ * any sources named by those configs make up the next round. So the order of precedence is: the
+ * arguments, then the sources they name, then the sources those name and so on, with a later value
+ * for a config replacing an earlier one.
+ *
+ * <p>A source named more than once is only loaded the first time, but a source that names itself,
+ * directly or through other sources, is an error.
+ *
+ * @author Ben Leitner
+ */
+final class ExternalConfigSources {
+
+  private final Map<String, ExternalConfigLoader> loaders;
+  private final Set<String> loadedKeys;
+  private List<Source> pending;
+  /** The source whose configs are being applied, or {@code null} while applying the arguments. */
+  private Source current;
+
+  ExternalConfigSources(Iterable<ExternalConfigLoader> loaders) {
+    this.loaders = Maps.newLinkedHashMap();
+    for (ExternalConfigLoader loader : loaders) {
+      this.loaders.put(loader.getExternalConfigName(), loader);
+    }
+    this.loadedKeys = Sets.newHashSet();
+    this.pending = Lists.newArrayList();
+  }
+
+  /** Returns {@code true} if the given config name names a source rather than a config. */
+  boolean isSourceName(String name) {
+    return loaders.containsKey(name);
+  }
+
+  /**
+   * Adds the sources named by the given source config, as named by the arguments or source being
+   * applied.
+   *
+   * @throws ConfigRuntimeException wrapping an {@link ExternalConfigLoadException} if one of the
+   *     sources includes itself.
+   */
+  void add(String name, String value) {
+    ExternalConfigLoader loader = loaders.get(name);
+    for (String sourceValue : loader.splitSources(value)) {
+      Source source = new Source(loader, sourceValue, current);
+      for (Source ancestor = current; ancestor != null; ancestor = ancestor.parent) {
+        if (ancestor.key.equals(source.key)) {
+          throw new ExternalConfigLoadException(
+                  String.format("Config sources include each other: %s", source.chain()))
+              .wrap();
+        }
+      }
+      pending.add(source);
+    }
+  }
+
+  /**
+   * Loads every source added so far, and every source they name in turn, applying their configs to
+   * the given sink, which should add any sources among them here.
+   *
+   * @throws ConfigRuntimeException wrapping an {@link ExternalConfigLoadException} if a source
+   *     cannot be loaded in time, or a malformed config is found and the sink throws.
+   */
+  void loadAll(ConfigSink sink) {
+    if (pending.isEmpty()) {
+      return;
+    }
+    ExecutorService executor =
+        Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("config-source-loader-%d")
+                .build());
+    try {
+      while (!pending.isEmpty()) {
+        List<Source> round = Lists.newArrayList();
+        for (Source source : pending) {
+          if (loadedKeys.add(source.key)) {
+            round.add(source);
+          }
+        }
+        pending = Lists.newArrayList();
+
+        List<Future<BufferingSink>> fetches = Lists.newArrayListWithCapacity(round.size());
+        for (Source source : round) {
+          fetches.add(executor.submit(source));
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < round.size(); i++) {
+          current = round.get(i);
+          await(current, fetches.get(i), start).replay(sink);
+        }
+        current = null;
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /** Waits for the given source's configs, for as long as its timeout allows since the start. */
+  private static BufferingSink await(Source source, Future<BufferingSink> fetch, long start) {
+    long remaining =
+        source.loader.getTimeoutMillis()
+            - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    try {
+      return fetch.get(Math.max(remaining, 0), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException ex) {
+      fetch.cancel(true);
+      throw new ExternalConfigLoadException(
+              String.format("Timed out loading configs from %s.", source.chain()))
+          .wrap();
+    } catch (ExecutionException ex) {
+      if (ex.getCause() instanceof ConfigRuntimeException) {
+        // A malformed config, which is reported as it is.
+        throw (ConfigRuntimeException) ex.getCause();
+      }
+      throw new ExternalConfigLoadException(
+              String.format("Unable to load configs from %s.", source.chain()), ex.getCause())
+          .wrap();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new ExternalConfigLoadException(
+              String.format("Interrupted loading configs from %s.", source.chain()), ex)
+          .wrap();
+    }
+  }
+
+  /** A single source, as named by the arguments or by another source. */
+  private static final class Source implements Callable<BufferingSink> {
+    private final ExternalConfigLoader loader;
+    private final String value;
+    private final Source parent;
+    /** Identifies the source, so that the same source named in different ways is recognized. */
+    private final String key;
+
+    Source(ExternalConfigLoader loader, String value, Source parent) {
+      this.loader = loader;
+      this.value = value;
+      this.parent = parent;
+      this.key = loader.getExternalConfigName() + "=" + loader.sourceKey(value);
+    }
+
+    @Override
+    public BufferingSink call() throws Exception {
+      BufferingSink buffer = new BufferingSink();
+      loader.loadConfigs(value, buffer);
+      return buffer;
+    }
+
+    /** Describes the source, and the sources that named it. */
+    String chain() {
+      List<String> names = Lists.newArrayList();
+      for (Source source = this; source != null; source = source.parent) {
+        names.add(String.format("--%s=%s", source.loader.getExternalConfigName(), source.value));
+      }
+      return Joiner.on(" <- ").join(names);
+    }
+  }
+
+  /**
+   * Holds a source's configs as they are loaded, off the thread applying them, so that they can be
+   * applied in order once every source of the round has been fetched.
+   */
+  private static final class BufferingSink implements ConfigSink {
+
+    /** One call to the sink, to be made again on the real sink. */
+    private abstract static class Entry {
+      abstract void replay(ConfigSink sink);
+    }
+
+    private final List<Entry> entries = Lists.newArrayList();
+
+    @Override
+    public void addArguments(Iterable<String> arguments) {
+      final List<String> copy = ImmutableList.copyOf(arguments);
+      entries.add(
+          new Entry() {
+            @Override
+            void replay(ConfigSink sink) {
+              sink.addArguments(copy);
+            }
+          });
+    }
+
+    @Override
+    public void addConfig(final String name, final String value) {
+      entries.add(
+          new Entry() {
+            @Override
+            void replay(ConfigSink sink) {
+              sink.addConfig(name, value);
+            }
+          });
+    }
+
+    @Override
+    public void addMalformed(final String assignment, final String position) {
+      entries.add(
+          new Entry() {
+            @Override
+            void replay(ConfigSink sink) {
+              sink.addMalformed(assignment, position);
+            }
+          });
+    }
+
+    void replay(ConfigSink sink) {
+      for (Entry entry : entries) {
+        entry.replay(sink);
+      }
+    }
+  }
+}
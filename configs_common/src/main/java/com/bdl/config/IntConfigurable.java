@@ -0,0 +1,177 @@
+package com.bdl.config;
+
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableList;
+
+import com.bdl.config.ConfigChangeListener.ListenerRegistration;
+
+/**
+ * A {@link Configurable} specialized for {@code int} values. Each state of the config also holds
+ * its value unboxed, so {@link #getInt()} can be called on hot paths without unboxing.
+ *
+ * @author Ben Leitner
+ */
+public final class IntConfigurable extends Configurable<Integer> {
+
+  /** A parser that converts strings directly into {@code int} values. */
+  public interface IntParser {
+    int parse(String input);
+  }
+
+  /** A predicate on {@code int} values. */
+  public interface IntPredicate {
+    boolean apply(int value);
+  }
+
+  /** A listener for changes to an {@link IntConfigurable}. */
+  public interface IntChangeListener {
+
+    /** Notifies the listener that a change has occurred */
+    void onConfigurationChange(int newValue);
+  }
+
+  private IntConfigurable(
+      int defaultValue,
+      Predicate<? super Integer> predicate,
+      Function<String, Integer> parser,
+      boolean readOnlyAfterRead) {
+    super(Integer.class, defaultValue, predicate, parser, readOnlyAfterRead);
+  }
+
+  /** Returns the value of this config without boxing. */
+  public int getInt() {
+    return ((IntState) readState()).intValue;
+  }
+
+  /**
+   * Sets the config to a new value.
+   *
+   * @return the prior value held by the config.
+   * @throws ConfigException if an error occurs, as for {@link #setValue(Object)}.
+   */
+  public int setInt(int value) throws ConfigException {
+    return setValue(value);
+  }
+
+  @Override
+  State<Integer> newState(Integer value, long version, boolean read) {
+    return new IntState(value, version, read);
+  }
+
+  /** Registers a listener to the configurable. */
+  public ListenerRegistration registerIntListener(IntChangeListener listener) {
+    return registerIntListener(listener, false);
+  }
+
+  /**
+   * Registers a listener to the configurable, including firing an initial event to sent the current
+   * value.
+   */
+  public ListenerRegistration registerIntListener(
+      final IntChangeListener listener, boolean listen) {
+    return registerListener(
+        new ConfigChangeListener<Integer>() {
+          @Override
+          public void onConfigurationChange(Integer newValue) {
+            listener.onConfigurationChange(newValue);
+          }
+        },
+        listen);
+  }
+
+  /** A config state that also holds the value unboxed. */
+  private static final class IntState extends State<Integer> {
+    private final int intValue;
+
+    private IntState(Integer value, long version, boolean read) {
+      super(value, version, read);
+      this.intValue = value;
+    }
+  }
+
+  /** Builder class for {@link IntConfigurable}s. */
+  public static final class Builder {
+    private int defaultValue;
+    private IntParser parser;
+    private ImmutableList.Builder<IntPredicate> predicates;
+    private boolean readOnlyAfterRead;
+
+    Builder() {
+      predicates = ImmutableList.builder();
+    }
+
+    public Builder withDefaultValue(int defaultValue) {
+      this.defaultValue = defaultValue;
+      return this;
+    }
+
+    public Builder withPredicate(IntPredicate predicate) {
+      predicates.add(Preconditions.checkNotNull(predicate, "Predicate cannot be null."));
+      return this;
+    }
+
+    public Builder withParser(IntParser parser) {
+      Preconditions.checkState(this.parser == null, "Parser already set to %s", this.parser);
+      this.parser = Preconditions.checkNotNull(parser, "Parser cannot be null.");
+      return this;
+    }
+
+    /** Indicates that the Configurable should not be writable once its value has been read. */
+    public Builder makeReadOnlyAfterRead() {
+      this.readOnlyAfterRead = true;
+      return this;
+    }
+
+    public IntConfigurable build() {
+      ImmutableList<IntPredicate> built = predicates.build();
+      Predicate<? super Integer> predicate = Predicates.alwaysTrue();
+      if (!built.isEmpty()) {
+        predicate = new AllOf(built);
+      }
+      return new IntConfigurable(
+          defaultValue,
+          predicate,
+          new BoxingParser(parser == null ? Parsers.PRIMITIVE_INT_PARSER : parser),
+          readOnlyAfterRead);
+    }
+  }
+
+  /**
+   * Adapts a list of {@link IntPredicate}s to the boxed predicate used by {@link Configurable}.
+   */
+  private static final class AllOf implements Predicate<Integer> {
+    private final ImmutableList<IntPredicate> predicates;
+
+    private AllOf(ImmutableList<IntPredicate> predicates) {
+      this.predicates = predicates;
+    }
+
+    @Override
+    public boolean apply(Integer input) {
+      int value = input;
+      for (IntPredicate predicate : predicates) {
+        if (!predicate.apply(value)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /** Adapts a {@link IntParser} to the boxed parser used by {@link Configurable}. */
+  private static final class BoxingParser implements Function<String, Integer> {
+    private final IntParser parser;
+
+    private BoxingParser(IntParser parser) {
+      this.parser = parser;
+    }
+
+    @Override
+    public Integer apply(String input) {
+      return parser.parse(input);
+    }
+  }
+}
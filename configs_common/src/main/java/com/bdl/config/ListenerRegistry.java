@@ -0,0 +1,142 @@
+package com.bdl.config;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * The set of listeners registered to a {@link Configurable}.
+ *
+ * <p>Listeners are held in an array that is replaced as a whole (by compare-and-set) whenever a
+ * listener is added or removed. Firing an event reads the array once and iterates over it, so it
+ * takes no lock and allocates nothing, and never observes a registration half-applied. Adding and
+ * removing copy the array, which is fine since listeners change far less often than they fire.
+ *
+ * @param <T> The type of value contained in the config.
+ * @author Ben Leitner
+ */
+final class ListenerRegistry<T> {
+
+  private static final ConfigChangeListener<?>[] EMPTY = new ConfigChangeListener<?>[0];
+
+  @SuppressWarnings("rawtypes") // Field updaters cannot be created for generic types.
+  private static final AtomicReferenceFieldUpdater<ListenerRegistry, ConfigChangeListener[]>
+      LISTENERS =
+          AtomicReferenceFieldUpdater.newUpdater(
+              ListenerRegistry.class, ConfigChangeListener[].class, "listeners");
+
+  private volatile ConfigChangeListener<?>[] listeners = EMPTY;
+
+  /**
+   * Adds the listener, unless an equal listener is already registered. Weak listeners whose
+   * referents have been collected are dropped at the same time.
+   */
+  void add(ConfigChangeListener<? super T> listener) {
+    while (true) {
+      ConfigChangeListener<?>[] current = listeners;
+      ConfigChangeListener<?>[] pruned = withoutClearedWeakListeners(current);
+      if (indexOf(pruned, listener) >= 0) {
+        if (pruned == current || LISTENERS.compareAndSet(this, current, pruned)) {
+          return;
+        }
+        continue;
+      }
+      ConfigChangeListener<?>[] next = Arrays.copyOf(pruned, pruned.length + 1);
+      next[pruned.length] = listener;
+      if (LISTENERS.compareAndSet(this, current, next)) {
+        return;
+      }
+    }
+  }
+
+  /** Removes the listener, if it is registered. */
+  void remove(ConfigChangeListener<?> listener) {
+    while (true) {
+      ConfigChangeListener<?>[] current = listeners;
+      int index = indexOf(current, listener);
+      if (index < 0) {
+        return;
+      }
+      ConfigChangeListener<?>[] next;
+      if (current.length == 1) {
+        next = EMPTY;
+      } else {
+        next = new ConfigChangeListener<?>[current.length - 1];
+        System.arraycopy(current, 0, next, 0, index);
+        System.arraycopy(current, index + 1, next, index, current.length - index - 1);
+      }
+      if (LISTENERS.compareAndSet(this, current, next)) {
+        return;
+      }
+    }
+  }
+
+  /** Notifies every listener registered at the time of the call of the new value. */
+  @SuppressWarnings("unchecked") // Only ConfigChangeListener<? super T> are ever added.
+  void fire(T newValue) {
+    ConfigChangeListener<?>[] current = listeners;
+    for (ConfigChangeListener<?> listener : current) {
+      ((ConfigChangeListener<? super T>) listener).onConfigurationChange(newValue);
+    }
+  }
+
+  private static int indexOf(ConfigChangeListener<?>[] array, ConfigChangeListener<?> listener) {
+    for (int i = 0; i < array.length; i++) {
+      if (array[i].equals(listener)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static ConfigChangeListener<?>[] withoutClearedWeakListeners(
+      ConfigChangeListener<?>[] array) {
+    int cleared = 0;
+    for (ConfigChangeListener<?> listener : array) {
+      if (isCleared(listener)) {
+        cleared++;
+      }
+    }
+    if (cleared == 0) {
+      return array;
+    }
+    ConfigChangeListener<?>[] pruned = new ConfigChangeListener<?>[array.length - cleared];
+    int index = 0;
+    for (ConfigChangeListener<?> listener : array) {
+      if (!isCleared(listener)) {
+        pruned[index++] = listener;
+      }
+    }
+    return pruned;
+  }
+
+  private static boolean isCleared(ConfigChangeListener<?> listener) {
+    return listener instanceof WeakListener && ((WeakListener<?>) listener).get() == null;
+  }
+
+  /**
+   * A listener that holds its delegate only weakly, so that registering it does not keep the
+   * delegate alive. Once the delegate has been collected, the listener removes itself from the
+   * registry the next time it fires (or the next time any listener is added).
+   */
+  static final class WeakListener<T> extends WeakReference<ConfigChangeListener<? super T>>
+      implements ConfigChangeListener<T> {
+
+    private final ListenerRegistry<T> registry;
+
+    WeakListener(ConfigChangeListener<? super T> delegate, ListenerRegistry<T> registry) {
+      super(delegate);
+      this.registry = registry;
+    }
+
+    @Override
+    public void onConfigurationChange(T newValue) {
+      ConfigChangeListener<? super T> delegate = get();
+      if (delegate == null) {
+        registry.remove(this);
+      } else {
+        delegate.onConfigurationChange(newValue);
+      }
+    }
+  }
+}
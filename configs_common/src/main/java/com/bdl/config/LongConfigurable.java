@@ -0,0 +1,177 @@
+package com.bdl.config;
+
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableList;
+
+import com.bdl.config.ConfigChangeListener.ListenerRegistration;
+
+/**
+ * A {@link Configurable} specialized for {@code long} values. Each state of the config also holds
+ * its value unboxed, so {@link #getLong()} can be called on hot paths without unboxing.
+ *
+ * @author Ben Leitner
+ */
+public final class LongConfigurable extends Configurable<Long> {
+
+  /** A parser that converts strings directly into {@code long} values. */
+  public interface LongParser {
+    long parse(String input);
+  }
+
+  /** A predicate on {@code long} values. */
+  public interface LongPredicate {
+    boolean apply(long value);
+  }
+
+  /** A listener for changes to a {@link LongConfigurable}. */
+  public interface LongChangeListener {
+
+    /** Notifies the listener that a change has occurred */
+    void onConfigurationChange(long newValue);
+  }
+
+  private LongConfigurable(
+      long defaultValue,
+      Predicate<? super Long> predicate,
+      Function<String, Long> parser,
+      boolean readOnlyAfterRead) {
+    super(Long.class, defaultValue, predicate, parser, readOnlyAfterRead);
+  }
+
+  /** Returns the value of this config without boxing. */
+  public long getLong() {
+    return ((LongState) readState()).longValue;
+  }
+
+  /**
+   * Sets the config to a new value.
+   *
+   * @return the prior value held by the config.
+   * @throws ConfigException if an error occurs, as for {@link #setValue(Object)}.
+   */
+  public long setLong(long value) throws ConfigException {
+    return setValue(value);
+  }
+
+  @Override
+  State<Long> newState(Long value, long version, boolean read) {
+    return new LongState(value, version, read);
+  }
+
+  /** Registers a listener to the configurable. */
+  public ListenerRegistration registerLongListener(LongChangeListener listener) {
+    return registerLongListener(listener, false);
+  }
+
+  /**
+   * Registers a listener to the configurable, including firing an initial event to sent the current
+   * value.
+   */
+  public ListenerRegistration registerLongListener(
+      final LongChangeListener listener, boolean listen) {
+    return registerListener(
+        new ConfigChangeListener<Long>() {
+          @Override
+          public void onConfigurationChange(Long newValue) {
+            listener.onConfigurationChange(newValue);
+          }
+        },
+        listen);
+  }
+
+  /** A config state that also holds the value unboxed. */
+  private static final class LongState extends State<Long> {
+    private final long longValue;
+
+    private LongState(Long value, long version, boolean read) {
+      super(value, version, read);
+      this.longValue = value;
+    }
+  }
+
+  /** Builder class for {@link LongConfigurable}s. */
+  public static final class Builder {
+    private long defaultValue;
+    private LongParser parser;
+    private ImmutableList.Builder<LongPredicate> predicates;
+    private boolean readOnlyAfterRead;
+
+    Builder() {
+      predicates = ImmutableList.builder();
+    }
+
+    public Builder withDefaultValue(long defaultValue) {
+      this.defaultValue = defaultValue;
+      return this;
+    }
+
+    public Builder withPredicate(LongPredicate predicate) {
+      predicates.add(Preconditions.checkNotNull(predicate, "Predicate cannot be null."));
+      return this;
+    }
+
+    public Builder withParser(LongParser parser) {
+      Preconditions.checkState(this.parser == null, "Parser already set to %s", this.parser);
+      this.parser = Preconditions.checkNotNull(parser, "Parser cannot be null.");
+      return this;
+    }
+
+    /** Indicates that the Configurable should not be writable once its value has been read. */
+    public Builder makeReadOnlyAfterRead() {
+      this.readOnlyAfterRead = true;
+      return this;
+    }
+
+    public LongConfigurable build() {
+      ImmutableList<LongPredicate> built = predicates.build();
+      Predicate<? super Long> predicate = Predicates.alwaysTrue();
+      if (!built.isEmpty()) {
+        predicate = new AllOf(built);
+      }
+      return new LongConfigurable(
+          defaultValue,
+          predicate,
+          new BoxingParser(parser == null ? Parsers.PRIMITIVE_LONG_PARSER : parser),
+          readOnlyAfterRead);
+    }
+  }
+
+  /**
+   * Adapts a list of {@link LongPredicate}s to the boxed predicate used by {@link Configurable}.
+   */
+  private static final class AllOf implements Predicate<Long> {
+    private final ImmutableList<LongPredicate> predicates;
+
+    private AllOf(ImmutableList<LongPredicate> predicates) {
+      this.predicates = predicates;
+    }
+
+    @Override
+    public boolean apply(Long input) {
+      long value = input;
+      for (LongPredicate predicate : predicates) {
+        if (!predicate.apply(value)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /** Adapts a {@link LongParser} to the boxed parser used by {@link Configurable}. */
+  private static final class BoxingParser implements Function<String, Long> {
+    private final LongParser parser;
+
+    private BoxingParser(LongParser parser) {
+      this.parser = parser;
+    }
+
+    @Override
+    public Long apply(String input) {
+      return parser.parse(input);
+    }
+  }
+}
@@ -20,8 +20,7 @@ class Parsers {
       new Function<String, Boolean>() {
         @Override
         public Boolean apply(String input) {
-          String lower = input.toLowerCase();
-          return lower.startsWith("t") || lower.startsWith("y") || lower.startsWith("1");
+          return parseBoolean(input);
         }
       };
 
@@ -49,6 +48,38 @@ class Parsers {
         }
       };
 
+  public static final IntConfigurable.IntParser PRIMITIVE_INT_PARSER =
+      new IntConfigurable.IntParser() {
+        @Override
+        public int parse(String input) {
+          return Integer.parseInt(input);
+        }
+      };
+
+  public static final LongConfigurable.LongParser PRIMITIVE_LONG_PARSER =
+      new LongConfigurable.LongParser() {
+        @Override
+        public long parse(String input) {
+          return Long.parseLong(input);
+        }
+      };
+
+  public static final DoubleConfigurable.DoubleParser PRIMITIVE_DOUBLE_PARSER =
+      new DoubleConfigurable.DoubleParser() {
+        @Override
+        public double parse(String input) {
+          return Double.parseDouble(input);
+        }
+      };
+
+  public static final BooleanConfigurable.BooleanParser PRIMITIVE_BOOLEAN_PARSER =
+      new BooleanConfigurable.BooleanParser() {
+        @Override
+        public boolean parse(String input) {
+          return parseBoolean(input);
+        }
+      };
+
   public static final Function<String, String> STRING_PARSER =
       new Function<String, String>() {
         @Override
@@ -70,6 +101,11 @@ class Parsers {
         }
       };
 
+  private static boolean parseBoolean(String input) {
+    String lower = input.toLowerCase();
+    return lower.startsWith("t") || lower.startsWith("y") || lower.startsWith("1");
+  }
+
   /** A parser for enum types */
   private static class EnumParser<T extends Enum> implements Function<String, T> {
     private final Class<T> clazz;
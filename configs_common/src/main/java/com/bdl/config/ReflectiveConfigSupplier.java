@@ -1,6 +1,10 @@
 package com.bdl.config;
 
+import com.google.common.collect.ImmutableMap;
+
+import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Field;
+import java.util.Map;
 
 /**
  * Implementation of {@link ConfigSupplier} that uses reflection to access the Configurable's
@@ -10,36 +14,35 @@ import java.lang.reflect.Field;
  */
 class ReflectiveConfigSupplier extends ConfigSupplier {
 
+  /**
+   * The Configurable fields declared by each class that configs have been resolved from, already
+   * made accessible. Classes commonly hold many configs, so their fields are listed and made
+   * accessible once per class rather than once per config.
+   */
+  private static final ClassValue<Map<String, Field>> CONFIGURABLE_FIELDS =
+      new ClassValue<Map<String, Field>>() {
+        @Override
+        protected Map<String, Field> computeValue(Class<?> clazz) {
+          ImmutableMap.Builder<String, Field> fields = ImmutableMap.builder();
+          for (Field field : clazz.getDeclaredFields()) {
+            if (Configurable.class.isAssignableFrom(field.getType())) {
+              fields.put(field.getName(), field);
+            }
+          }
+          Map<String, Field> built = fields.build();
+          AccessibleObject.setAccessible(
+              built.values().toArray(new AccessibleObject[built.size()]), true);
+          return built;
+        }
+      };
+
   private final ConfigDescription description;
-  private Configurable<?> config;
+  private volatile Configurable<?> config;
 
   ReflectiveConfigSupplier(ConfigDescription description) {
     this.description = description;
   }
 
-  /**
-   * Loads a class with the specified type name. This correctly handles type names representing
-   * inner classes.
-   *
-   * @param name The type name to load. Must not be null.
-   * @return The loaded class
-   * @throws ClassNotFoundException if no class is found.
-   */
-  private Class<?> loadClass(String name) throws ClassNotFoundException {
-    while (true) {
-      try {
-        return Class.forName(name);
-      } catch (ClassNotFoundException ex) {
-        int idx = name.lastIndexOf('.');
-        if (idx < 0) {
-          throw ex;
-        }
-        // Maybe it's an inner class? Replace last '.' with '$' to generate an inner class name.
-        name = String.format("%s$%s", name.substring(0, idx), name.substring(idx + 1));
-      }
-    }
-  }
-
   @Override
   ConfigDescription getDescription() {
     return description;
@@ -47,39 +50,48 @@ class ReflectiveConfigSupplier extends ConfigSupplier {
 
   @Override
   Configurable<?> getConfigurable() {
-    if (config == null) {
-      try {
-        Class<?> clazz = loadClass(description.fullyQualifiedClassName());
-        Field field = clazz.getDeclaredField(description.fieldName());
-        field.setAccessible(true);
-        config = (Configurable<?>) field.get(null);
-      } catch (ClassNotFoundException ex) {
-        throw new LinkageError(
-            String.format(
-                "Class for config field %s.%s is present in manifest but not found at runtime.",
-                description.className(), description.fieldName()));
-      } catch (NoSuchFieldException ex) {
-        throw new LinkageError(
-            String.format(
-                "Configurable field %s.%s is present in manifest but not found at runtime.",
-                description.className(), description.fieldName()));
-      } catch (IllegalAccessException ex) {
-        throw new LinkageError(
-            String.format(
-                "Unable to get Configurable field %s.%s",
-                description.className(), description.fieldName()));
-      } catch (NullPointerException ex) {
-        throw new LinkageError(
-            String.format(
-                "Cannot get config %s.%s, did you forget to make it static?",
-                description.className(), description.fieldName()));
-      } catch (ClassCastException ex) {
-        throw new LinkageError(
-            String.format(
-                "Cannot convert field %s.%s to a Configurable in order to resolve.",
-                description.className(), description.fieldName()));
-      }
+    Configurable<?> result = config;
+    if (result == null) {
+      // Racing threads resolve the same field, so whichever result is kept is correct.
+      result = resolve(description.binaryClassName(), description.fieldName());
+      config = result;
+    }
+    return result;
+  }
+
+  /**
+   * Finds the Configurable held in the given static field of the class with the given binary name
+   * (as from {@link Class#getName()}).
+   *
+   * @throws LinkageError if the class or field cannot be found or read.
+   */
+  static Configurable<?> resolve(String binaryClassName, String fieldName) {
+    Class<?> clazz;
+    try {
+      clazz = Class.forName(binaryClassName);
+    } catch (ClassNotFoundException ex) {
+      throw new LinkageError(
+          String.format(
+              "Class for config field %s.%s is present in manifest but not found at runtime.",
+              binaryClassName, fieldName));
+    }
+    Field field = CONFIGURABLE_FIELDS.get(clazz).get(fieldName);
+    if (field == null) {
+      throw new LinkageError(
+          String.format(
+              "Configurable field %s.%s is present in manifest but not found at runtime.",
+              binaryClassName, fieldName));
+    }
+    try {
+      return (Configurable<?>) field.get(null);
+    } catch (IllegalAccessException ex) {
+      throw new LinkageError(
+          String.format("Unable to get Configurable field %s.%s", binaryClassName, fieldName));
+    } catch (NullPointerException ex) {
+      throw new LinkageError(
+          String.format(
+              "Cannot get config %s.%s, did you forget to make it static?",
+              binaryClassName, fieldName));
     }
-    return config;
   }
 }
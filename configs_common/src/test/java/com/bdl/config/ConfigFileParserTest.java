@@ -0,0 +1,167 @@
+package com.bdl.config;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+import com.bdl.config.ConfigException.ExternalConfigLoadException;
+import com.bdl.config.ConfigException.InvalidConfigArgumentsException;
+import com.bdl.config.ConfigException.InvalidConfigSyntaxException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/** @author Ben Leitner */
+@RunWith(JUnit4.class)
+public class ConfigFileParserTest {
+
+  @Test
+  public void testParse() throws Exception {
+    RecordingSink sink = new RecordingSink();
+    ConfigFileParser.parse(
+        CharBuffer.wrap(
+            "--foo=bar\n"
+                + "  # A comment\n"
+                + "// Another comment\n"
+                + "\n"
+                + "\t-flag  \r\n"
+                + "---spaced= a value with spaces \r\n"
+                + "--empty=\n"
+                + "not_a_config\n"
+                + "--\n"
+                + "--ignored=true\n"),
+        "test.cfg",
+        sink);
+    assertThat(sink.entries)
+        .containsExactly("foo=bar", "flag", "spaced= a value with spaces", "empty=")
+        .inOrder();
+    assertThat(sink.malformed).isEmpty();
+  }
+
+  @Test
+  public void testParse_reportsMalformedLinesWithPositions() throws Exception {
+    RecordingSink sink = new RecordingSink();
+    ConfigFileParser.parse(
+        CharBuffer.wrap("--foo=bar\n--1abc=2\n--good\n-=x\n--bad name=3"), "test.cfg", sink);
+    assertThat(sink.entries).containsExactly("foo=bar", "good").inOrder();
+    assertThat(sink.malformed)
+        .containsExactly("test.cfg:2 --1abc=2", "test.cfg:4 -=x", "test.cfg:5 --bad name=3")
+        .inOrder();
+  }
+
+  @Test
+  public void testParseFile_mapsLargeFiles() throws Exception {
+    Path file = Files.createTempFile("configs", ".cfg");
+    try {
+      int lines = 100000;
+      try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+        for (int i = 0; i < lines; i++) {
+          writer.write(String.format("--config%d=value \u00e9 %d%n", i, i));
+        }
+      }
+      assertThat(Files.size(file) > (1 << 20)).isTrue();
+
+      RecordingSink sink = new RecordingSink();
+      new ConfigFileParser(StandardCharsets.UTF_8).parse(file, sink);
+      assertThat(sink.entries.size()).isEqualTo(lines);
+      assertThat(sink.entries.get(lines - 1)).isEqualTo("config99999=value \u00e9 99999");
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testParseFile_invalidEncoding() throws Exception {
+    Path file = Files.createTempFile("configs", ".cfg");
+    try {
+      Files.write(file, new byte[] {'-', '-', 'a', '=', (byte) 0xC3});
+      new ConfigFileParser(StandardCharsets.UTF_8).parse(file, new RecordingSink());
+      fail();
+    } catch (ExternalConfigLoadException ex) {
+      assertThat(ex.getMessage()).contains("UTF-8");
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testConfigFileArgument() throws Exception {
+    Configurable<String> foo = Configurable.value("foo");
+    Configurable<Integer> bar = Configurable.value(1);
+    Path file = Files.createTempFile("configs", ".cfg");
+    ForkJoinPool pool = new ForkJoinPool(2);
+    try {
+      Files.write(file, ImmutableList.of("--foo=from_file", "--bar=2"), StandardCharsets.UTF_8);
+      new ConfigProcessor(
+              ImmutableList.of("--config_file=" + file),
+              ImmutableSet.of(
+                  ConfigSupplier.simple(description("foo"), foo),
+                  ConfigSupplier.simple(description("bar"), bar)))
+          .getConfigMap();
+      assertThat(foo.get()).isEqualTo("from_file");
+      assertThat(bar.get()).isEqualTo(2);
+
+      Files.write(file, ImmutableList.of("--foo=again", "--bar 3"), StandardCharsets.UTF_8);
+      try {
+        new ConfigProcessor(
+                ImmutableList.of("--config_file=" + file),
+                ImmutableSet.of(
+                    ConfigSupplier.simple(description("foo"), foo),
+                    ConfigSupplier.simple(description("bar"), bar)),
+                false,
+                false,
+                null,
+                pool)
+            .getConfigMap();
+        fail();
+      } catch (ConfigRuntimeException ex) {
+        Map<String, ConfigException> failures =
+            ((InvalidConfigArgumentsException) ex.unwrap()).getFailures();
+        assertThat(failures.keySet()).containsExactly(file + ":2");
+        assertThat(failures.get(file + ":2")).isInstanceOf(InvalidConfigSyntaxException.class);
+      }
+      assertThat(foo.get()).isEqualTo("from_file");
+    } finally {
+      pool.shutdown();
+      Files.delete(file);
+    }
+  }
+
+  private static ConfigDescription description(String fieldName) {
+    return ConfigDescription.builder()
+        .packageName("com.example")
+        .className("Configs")
+        .fieldName(fieldName)
+        .type("Object")
+        .build();
+  }
+
+  /** Records each config as {@code name=value}, and each malformed line with its position. */
+  private static class RecordingSink implements ConfigFileParser.AssignmentSink {
+    private final List<String> entries = Lists.newArrayList();
+    private final List<String> malformed = Lists.newArrayList();
+
+    @Override
+    public void addConfig(String name, String value) {
+      entries.add(value == null ? name : name + "=" + value);
+    }
+
+    @Override
+    public void addMalformed(String assignment, String position) {
+      malformed.add(position + " " + assignment);
+    }
+  }
+}
@@ -0,0 +1,201 @@
+package com.bdl.config;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSet;
+
+import com.bdl.config.ConfigException.AmbiguousConfigException;
+import com.bdl.config.ConfigException.InvalidConfigValueException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/** @author Ben Leitner */
+@RunWith(JUnit4.class)
+public class ConfigFileWatcherTest {
+
+  /** Long enough for the slowest (polling) watch services to notice a change. */
+  private static final long TIMEOUT_SECONDS = 30;
+
+  private Path directory;
+  private Configurable<Integer> foo;
+  private Configurable<String> bar;
+  private Configurable<Boolean> flag;
+  private Configuration configuration;
+  private BlockingQueue<Set<String>> events;
+  private BlockingQueue<Exception> failures;
+  private ConfigFileWatcher watcher;
+
+  @Before
+  public void before() throws Exception {
+    directory = Files.createTempDirectory("conf.d");
+    foo = Configurable.value(1);
+    bar = Configurable.value("bar");
+    flag = Configurable.value(false);
+    configuration =
+        new Configuration(
+            new ConfigMap(
+                ImmutableMap.<String, Configurable<?>>of(
+                    "a.foo", foo, "a.bar", bar, "a.flag", flag),
+                ImmutableMultimap.of("foo", "a.foo", "bar", "a.bar", "flag", "a.flag")));
+    configuration.snapshot();
+    events = new LinkedBlockingQueue<>();
+    failures = new LinkedBlockingQueue<>();
+    configuration.registerListener(
+        new ConfigurationChangeListener() {
+          @Override
+          public void onConfigurationChange(Set<String> changedNames, ConfigSnapshot snapshot) {
+            events.add(changedNames);
+          }
+        });
+  }
+
+  @After
+  public void after() throws Exception {
+    if (watcher != null) {
+      watcher.close();
+    }
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+      for (Path file : files) {
+        Files.delete(file);
+      }
+    }
+    Files.delete(directory);
+  }
+
+  @Test
+  public void testReload_appliesOnlyChangedConfigs() throws Exception {
+    Path file = directory.resolve("configs.cfg");
+    write(file, "--foo=2", "--bar=from file");
+    watcher = start(file);
+    assertThat(foo.get()).isEqualTo(2);
+    assertThat(bar.get()).isEqualTo("from file");
+    assertThat(events.poll()).isEqualTo(ImmutableSet.of("a.foo", "a.bar"));
+
+    final int[] barChanges = {0};
+    bar.registerListener(
+        new ConfigChangeListener<String>() {
+          @Override
+          public void onConfigurationChange(String newValue) {
+            barChanges[0]++;
+          }
+        });
+    write(file, "--foo=3", "# Reformatted, but the same", "--bar=from file");
+
+    assertThat(events.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isEqualTo(ImmutableSet.of("a.foo"));
+    assertThat(foo.get()).isEqualTo(3);
+    assertThat(barChanges[0]).isEqualTo(0);
+  }
+
+  @Test
+  public void testReload_directory() throws Exception {
+    write(directory.resolve("10-base.cfg"), "--foo=2");
+    watcher = start(directory);
+    assertThat(foo.get()).isEqualTo(2);
+    events.clear();
+
+    write(directory.resolve("20-override.cfg"), "--foo=3", "--flag");
+    assertThat(events.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS))
+        .isEqualTo(ImmutableSet.of("a.foo", "a.flag"));
+    assertThat(foo.get()).isEqualTo(3);
+    assertThat(flag.get()).isTrue();
+
+    // Without the override, the base file's value applies again, and the flag is reset.
+    Files.delete(directory.resolve("20-override.cfg"));
+    assertThat(events.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS))
+        .isEqualTo(ImmutableSet.of("a.foo", "a.flag"));
+    assertThat(foo.get()).isEqualTo(2);
+    assertThat(flag.get()).isEqualTo(false);
+  }
+
+  @Test
+  public void testReload_subdirectoryIsIgnored() throws Exception {
+    write(directory.resolve("10-base.cfg"), "--foo=2");
+    watcher = start(directory);
+    events.clear();
+
+    Files.createDirectory(directory.resolve("20-subdirectory"));
+    write(directory.resolve("30-override.cfg"), "--foo=3");
+    assertThat(events.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isEqualTo(ImmutableSet.of("a.foo"));
+    assertThat(foo.get()).isEqualTo(3);
+    assertThat(failures).isEmpty();
+  }
+
+  @Test
+  public void testReload_invalidChangeIsRejected() throws Exception {
+    Path file = directory.resolve("configs.cfg");
+    write(file, "--foo=2");
+    watcher = start(file);
+    events.clear();
+
+    write(file, "--foo=not a number", "--bar=baz");
+    Exception failure = failures.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    assertThat(failure).isInstanceOf(InvalidConfigValueException.class);
+    assertThat(foo.get()).isEqualTo(2);
+    assertThat(bar.get()).isEqualTo("bar");
+
+    write(file, "--foo=2", "--bar=baz");
+    assertThat(events.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isEqualTo(ImmutableSet.of("a.bar"));
+    assertThat(failures).isEmpty();
+  }
+
+  @Test
+  public void testReload_ambiguousNameIsReported() throws Exception {
+    Configurable<Integer> y = Configurable.value(1);
+    configuration =
+        new Configuration(
+            new ConfigMap(
+                ImmutableMap.<String, Configurable<?>>of(
+                    "a.x", Configurable.value(2), "b.x", Configurable.value(3), "a.y", y),
+                ImmutableMultimap.of("x", "a.x", "x", "b.x", "y", "a.y")));
+    Path file = directory.resolve("configs.cfg");
+    write(file, "--y=6");
+    watcher = start(file);
+    assertThat(y.get()).isEqualTo(6);
+
+    write(file, "--x=7");
+    Exception failure = failures.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    assertThat(failure).isInstanceOf(AmbiguousConfigException.class);
+
+    // The watcher carries on after the failure.
+    write(file, "--y=8");
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+    while (y.get() != 8 && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(y.get()).isEqualTo(8);
+  }
+
+  private ConfigFileWatcher start(Path path) throws Exception {
+    return ConfigFileWatcher.builder(configuration)
+        .watch(path)
+        .debounce(50, TimeUnit.MILLISECONDS)
+        .onFailure(
+            new ConfigFileWatcher.FailureHandler() {
+              @Override
+              public void onReloadFailure(Set<Path> changedFiles, Exception failure) {
+                failures.add(failure);
+              }
+            })
+        .start();
+  }
+
+  private static void write(Path file, String... lines) throws Exception {
+    Files.write(file, ImmutableList.copyOf(lines), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,207 @@
+package com.bdl.config;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+import com.bdl.config.ConfigException.ExternalConfigLoadException;
+import com.bdl.config.ConfigException.InvalidConfigValueException;
+import com.bdl.config.ConfigException.TypeMismatchException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/** @author Ben Leitner */
+@RunWith(JUnit4.class)
+public class ConfigImageTest {
+
+  private enum Color {
+    RED,
+    GREEN
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    Configs exported = new Configs();
+    exported.flag.setValue(true);
+    exported.count.setValue(7);
+    exported.size.setValue(1L << 40);
+    exported.ratio.setValue(0.25);
+    exported.name.setValue("na\u00efve");
+    exported.color.setValue(Color.GREEN);
+    exported.type.setValue(Integer.class);
+    exported.list.setValue(ImmutableList.of("x", "y, z"));
+    exported.uri.setValue(URI.create("http://example.com/a"));
+    ConfigImage.Writer writer = ConfigImage.writer();
+    configuration(exported).writeWithFullNamesTo(writer);
+
+    Configs imported = new Configs();
+    ConfigImage image = ConfigImage.of("test", ByteBuffer.wrap(writer.toByteArray()));
+    assertThat(image.size()).isEqualTo(9);
+    image.applyLazily(configMap(imported));
+    assertThat(imported.flag.get()).isTrue();
+    assertThat(imported.count.get()).isEqualTo(7);
+    assertThat(imported.size.get()).isEqualTo(1L << 40);
+    assertThat(imported.ratio.get()).isEqualTo(0.25);
+    assertThat(imported.name.get()).isEqualTo("na\u00efve");
+    assertThat(imported.color.get()).isEqualTo(Color.GREEN);
+    assertThat(imported.type.get()).isEqualTo(Integer.class);
+    assertThat(imported.list.get()).containsExactly("x", "y, z").inOrder();
+    assertThat(imported.uri.get()).isEqualTo(URI.create("http://example.com/a"));
+  }
+
+  @Test
+  public void testValuesDecodedWhenFirstUsed() throws Exception {
+    ConfigImage.Writer writer = ConfigImage.writer();
+    writer.write("count", "not an int");
+    writer.write("name", "too long");
+    Configs configs = new Configs();
+    ConfigImage.of("test", ByteBuffer.wrap(writer.toByteArray())).applyLazily(configMap(configs));
+
+    try {
+      configs.count.get();
+      fail();
+    } catch (ConfigRuntimeException ex) {
+      assertThat(ex.unwrap()).isInstanceOf(TypeMismatchException.class);
+    }
+    try {
+      configs.name.get();
+      fail();
+    } catch (ConfigRuntimeException ex) {
+      assertThat(ex.unwrap()).isInstanceOf(InvalidConfigValueException.class);
+    }
+    assertThat(configs.flag.get()).isEqualTo(false);
+  }
+
+  @Test
+  public void testFileAndImport() throws Exception {
+    Configs exported = new Configs();
+    exported.count.setValue(3);
+    exported.name.setValue("short");
+    Path file = Files.createTempFile("configs", ".img");
+    try {
+      ConfigImage.write(configuration(exported), file);
+      ConfigImage image = ConfigImage.open(file);
+      assertThat(image.names()).contains("a.count");
+
+      Configs imported = new Configs();
+      imported.count.setValue(2);
+      Configuration configuration = configuration(imported);
+      configuration.snapshot();
+      final List<Set<String>> events = Lists.newArrayList();
+      configuration.registerListener(
+          new ConfigurationChangeListener() {
+            @Override
+            public void onConfigurationChange(Set<String> changedNames, ConfigSnapshot snapshot) {
+              events.add(changedNames);
+            }
+          });
+      image.applyTo(configuration);
+      assertThat(imported.count.get()).isEqualTo(3);
+      assertThat(imported.name.get()).isEqualTo("short");
+      assertThat(events).containsExactly(ImmutableSet.of("a.count", "a.name"));
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testInvalidImage() throws Exception {
+    byte[] image = ConfigImage.writer().toByteArray();
+    image[0] = 'X';
+    try {
+      ConfigImage.of("test", ByteBuffer.wrap(image));
+      fail();
+    } catch (ExternalConfigLoadException ex) {
+      assertThat(ex.getMessage()).contains("not a config image");
+    }
+
+    ConfigImage.Writer writer = ConfigImage.writer();
+    writer.write("count", 1);
+    image = writer.toByteArray();
+    try {
+      ConfigImage.of("test", ByteBuffer.wrap(image, 0, image.length - 1).slice());
+      fail();
+    } catch (ExternalConfigLoadException ex) {
+      assertThat(ex.getMessage()).contains("corrupt");
+    }
+  }
+
+  private static Configuration configuration(Configs configs) {
+    return new Configuration(configMap(configs));
+  }
+
+  private static ConfigMap configMap(Configs configs) {
+    ImmutableMap.Builder<String, Configurable<?>> configurables = ImmutableMap.builder();
+    ImmutableMultimap.Builder<String, String> names = ImmutableMultimap.builder();
+    for (Map.Entry<String, Configurable<?>> entry : configs.byName().entrySet()) {
+      configurables.put("a." + entry.getKey(), entry.getValue());
+      names.put(entry.getKey(), "a." + entry.getKey());
+    }
+    return new ConfigMap(configurables.build(), names.build());
+  }
+
+  /** One config of each kind of value. */
+  private static class Configs {
+    private final Configurable<Boolean> flag = Configurable.value(false);
+    private final Configurable<Integer> count = Configurable.intValue(1);
+    private final Configurable<Long> size = Configurable.value(1L);
+    private final Configurable<Double> ratio = Configurable.value(0.5);
+    private final Configurable<String> name =
+        Configurable.<String>builder()
+            .withDefaultValue("name")
+            .withPredicate(
+                new Predicate<String>() {
+                  @Override
+                  public boolean apply(String input) {
+                    return input.length() < 6;
+                  }
+                })
+            .build();
+    private final Configurable<Color> color = Configurable.value(Color.RED);
+    private final Configurable<Class<?>> type =
+        Configurable.<Class<?>>builder().withDefaultValue(String.class).build();
+    private final Configurable<List<String>> list = Configurable.stringList("a", "b");
+    private final Configurable<URI> uri =
+        Configurable.<URI>builder()
+            .withDefaultValue(URI.create("http://example.com"))
+            .withParser(
+                new Function<String, URI>() {
+                  @Override
+                  public URI apply(String input) {
+                    return URI.create(input);
+                  }
+                })
+            .build();
+
+    Map<String, Configurable<?>> byName() {
+      return ImmutableMap.<String, Configurable<?>>builder()
+          .put("flag", flag)
+          .put("count", count)
+          .put("size", size)
+          .put("ratio", ratio)
+          .put("name", name)
+          .put("color", color)
+          .put("type", type)
+          .put("list", list)
+          .put("uri", uri)
+          .build();
+    }
+  }
+}
@@ -0,0 +1,129 @@
+package com.bdl.config;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.List;
+
+/**
+ * Tests for the {@link ConfigNameIndex} class.
+ *
+ * @author Ben Leitner
+ */
+@RunWith(JUnit4.class)
+public class ConfigNameIndexTest {
+
+  private static final ImmutableList<ConfigDescription> DESCRIPTIONS =
+      ImmutableList.of(
+          description("com.example", "Foo", "unique"),
+          description("com.example", "Foo", "shared"),
+          description("com.example.other", "Bar", "shared"),
+          description("com.example.other", "Bar.Nested", "renamed", "special"));
+
+  @Test
+  public void testLookup() throws Exception {
+    ConfigNameIndex index = ConfigNameIndex.of(DESCRIPTIONS);
+    assertThat(index.size()).isEqualTo(4);
+    assertThat(index.slotOf("unique")).isEqualTo(0);
+    assertThat(index.slotOf("com.example.Foo.unique")).isEqualTo(0);
+    assertThat(index.slotOf("com.example.Foo.shared")).isEqualTo(1);
+    assertThat(index.slotOf("com.example.other.Bar.shared")).isEqualTo(2);
+    assertThat(index.slotOf("special")).isEqualTo(3);
+    assertThat(index.slotOf("com.example.other.Bar.Nested.renamed")).isEqualTo(3);
+    assertThat(index.slotOf("renamed")).isEqualTo(ConfigNameIndex.NO_SLOT);
+    assertThat(index.slotOf("missing")).isEqualTo(ConfigNameIndex.NO_SLOT);
+    assertThat(index.fullNameAt(2)).isEqualTo("com.example.other.Bar.shared");
+  }
+
+  @Test
+  public void testLookup_ambiguous() throws Exception {
+    ConfigNameIndex index = ConfigNameIndex.of(DESCRIPTIONS);
+    try {
+      index.slotOf("shared");
+      fail();
+    } catch (ConfigRuntimeException ex) {
+      assertThat(ex.getMessage()).contains("com.example.Foo.shared");
+      assertThat(ex.getMessage()).contains("com.example.other.Bar.shared");
+    }
+  }
+
+  @Test
+  public void testPreferredNames() throws Exception {
+    assertThat(ConfigNameIndex.of(DESCRIPTIONS).preferredNames())
+        .containsExactly(
+            "unique", "com.example.Foo.shared", "com.example.other.Bar.shared", "special")
+        .inOrder();
+  }
+
+  @Test
+  public void testRebuiltFromArrays() throws Exception {
+    ConfigNameIndex built = ConfigNameIndex.of(DESCRIPTIONS);
+    ConfigNameIndex index =
+        new ConfigNameIndex(
+            built.keys(),
+            built.displacements(),
+            built.values(),
+            built.ambiguousSlots(),
+            built.fullNameKeys());
+    assertThat(index.slotOf("special")).isEqualTo(3);
+    assertThat(index.preferredNames()).isEqualTo(built.preferredNames());
+  }
+
+  @Test
+  public void testManyNames() throws Exception {
+    List<ConfigDescription> descriptions = Lists.newArrayList();
+    for (int i = 0; i < 10000; i++) {
+      descriptions.add(description("com.example", "Holder" + (i / 100), "config" + i));
+    }
+    ConfigNameIndex index = ConfigNameIndex.of(descriptions);
+    for (int i = 0; i < 10000; i++) {
+      assertThat(index.slotOf("config" + i)).isEqualTo(i);
+      assertThat(index.slotOf(descriptions.get(i).fullyQualifiedFieldName())).isEqualTo(i);
+    }
+  }
+
+  @Test
+  public void testEmpty() throws Exception {
+    ConfigNameIndex index = ConfigNameIndex.of(ImmutableList.<ConfigDescription>of());
+    assertThat(index.size()).isEqualTo(0);
+    assertThat(index.slotOf("anything")).isEqualTo(ConfigNameIndex.NO_SLOT);
+  }
+
+  @Test
+  public void testRepeatedFullName() throws Exception {
+    try {
+      ConfigNameIndex.of(ImmutableList.of(DESCRIPTIONS.get(0), DESCRIPTIONS.get(0)));
+      fail();
+    } catch (IllegalArgumentException ex) {
+      assertThat(ex.getMessage()).contains("com.example.Foo.unique");
+    }
+  }
+
+  private static ConfigDescription description(
+      String packageName, String className, String fieldName) {
+    return ConfigDescription.builder()
+        .packageName(packageName)
+        .className(className)
+        .fieldName(fieldName)
+        .type("String")
+        .build();
+  }
+
+  private static ConfigDescription description(
+      String packageName, String className, String fieldName, String specifiedName) {
+    return ConfigDescription.builder()
+        .packageName(packageName)
+        .className(className)
+        .fieldName(fieldName)
+        .type("String")
+        .specifiedName(specifiedName)
+        .build();
+  }
+}
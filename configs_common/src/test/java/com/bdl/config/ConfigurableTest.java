@@ -5,6 +5,7 @@ import static org.junit.Assert.fail;
 
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
+import com.google.common.collect.Lists;
 
 import com.bdl.config.ConfigException.IllegalConfigStateException;
 import com.bdl.config.ConfigException.InvalidConfigValueException;
@@ -15,6 +16,15 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /** @author Benjamin Leitner */
 @RunWith(JUnit4.class)
 public class ConfigurableTest {
@@ -27,6 +37,14 @@ public class ConfigurableTest {
         }
       };
 
+  private static final Function<Integer, Integer> INCREMENT =
+      new Function<Integer, Integer>() {
+        @Override
+        public Integer apply(Integer input) {
+          return input + 1;
+        }
+      };
+
   private enum TestEnum {
     FIRST,
     SECOND,
@@ -86,6 +104,25 @@ public class ConfigurableTest {
     assertThat(configurable.get()).isEqualTo("bar");
   }
 
+  @Test
+  public void testFlagMultipleSetsBeforeGet() throws Exception {
+    Configurable<String> configurable = Configurable.flag("foo");
+    configurable.setFromString("bar");
+    configurable.setFromString("baz");
+    assertThat(configurable.isReadOnly()).isFalse();
+    assertThat(configurable.get()).isEqualTo("baz");
+    assertThat(configurable.isReadOnly()).isTrue();
+  }
+
+  @Test
+  public void testValueNeverReadOnly() throws Exception {
+    Configurable<String> configurable = Configurable.value("foo");
+    assertThat(configurable.get()).isEqualTo("foo");
+    assertThat(configurable.isReadOnly()).isFalse();
+    configurable.setFromString("bar");
+    assertThat(configurable.get()).isEqualTo("bar");
+  }
+
   @Test
   public void testNullDefaultFlag() throws Exception {
     Configurable<String> configurable = Configurable.noDefaultFlag(String.class);
@@ -166,6 +203,191 @@ public class ConfigurableTest {
     assertThat(configurable.get()).isEqualTo(1);
   }
 
+  @Test
+  public void testCompareAndSet() throws Exception {
+    Configurable<String> configurable = Configurable.value("foo");
+    assertThat(configurable.getVersion()).isEqualTo(0L);
+    assertThat(configurable.compareAndSet("bar", "baz")).isFalse();
+    assertThat(configurable.get()).isEqualTo("foo");
+    assertThat(configurable.compareAndSet("foo", "baz")).isTrue();
+    assertThat(configurable.get()).isEqualTo("baz");
+    assertThat(configurable.getVersion()).isEqualTo(1L);
+  }
+
+  @Test
+  public void testCompareAndSet_readFlag() throws Exception {
+    Configurable<String> configurable = Configurable.flag("foo");
+    configurable.get();
+    try {
+      configurable.compareAndSet("foo", "bar");
+      fail();
+    } catch (IllegalConfigStateException ex) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testUpdateAndGet_predicateChecked() throws Exception {
+    Configurable<Integer> configurable =
+        Configurable.<Integer>builder().withDefaultValue(2).withPredicate(POSITIVE_INTEGER).build();
+    assertThat(configurable.updateAndGet(INCREMENT)).isEqualTo(3);
+    try {
+      configurable.updateAndGet(
+          new Function<Integer, Integer>() {
+            @Override
+            public Integer apply(Integer input) {
+              return -input;
+            }
+          });
+      fail();
+    } catch (InvalidConfigValueException ex) {
+      // expected
+    }
+    assertThat(configurable.get()).isEqualTo(3);
+    assertThat(configurable.getVersion()).isEqualTo(1L);
+  }
+
+  @Test
+  public void testUpdateAndGet_concurrentUpdatesNotLost() throws Exception {
+    final Configurable<Integer> configurable = Configurable.value(0);
+    final int threadCount = 8;
+    final int updatesPerThread = 1000;
+    final CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    List<Future<Void>> futures = Lists.newArrayList();
+    for (int i = 0; i < threadCount; i++) {
+      futures.add(
+          executor.submit(
+              new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                  start.await();
+                  for (int j = 0; j < updatesPerThread; j++) {
+                    configurable.updateAndGet(INCREMENT);
+                  }
+                  return null;
+                }
+              }));
+    }
+    start.countDown();
+    for (Future<Void> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+    assertThat(configurable.get()).isEqualTo(threadCount * updatesPerThread);
+    assertThat(configurable.getVersion()).isEqualTo((long) threadCount * updatesPerThread);
+  }
+
+  @Test
+  public void testSetEqualValue_noNotification() throws Exception {
+    Configurable<String> configurable = Configurable.value("foo");
+    List<String> heard = Lists.newArrayList();
+    configurable.registerListener(recordingListener(heard));
+    assertThat(configurable.setValue("foo")).isEqualTo("foo");
+    assertThat(configurable.getVersion()).isEqualTo(0L);
+    configurable.setValue("bar");
+    configurable.setValue(new String("bar"));
+    assertThat(heard).containsExactly("bar");
+    assertThat(configurable.getVersion()).isEqualTo(1L);
+  }
+
+  @Test
+  public void testExecutorListener_coalescesPendingChanges() throws Exception {
+    Configurable<String> configurable = Configurable.value("foo");
+    List<String> heard = Lists.newArrayList();
+    QueueingExecutor executor = new QueueingExecutor();
+    configurable.registerListener(recordingListener(heard), executor);
+    configurable.setValue("bar");
+    configurable.setValue("baz");
+    configurable.setValue("qux");
+    assertThat(heard).isEmpty();
+    assertThat(executor.tasks).hasSize(1);
+    executor.runAll();
+    assertThat(heard).containsExactly("qux");
+
+    configurable.setValue("quux");
+    assertThat(executor.tasks).hasSize(1);
+    executor.runAll();
+    assertThat(heard).containsExactly("qux", "quux").inOrder();
+  }
+
+  @Test
+  public void testExecutorListener_unregisterDropsPendingChange() throws Exception {
+    Configurable<String> configurable = Configurable.value("foo");
+    List<String> heard = Lists.newArrayList();
+    QueueingExecutor executor = new QueueingExecutor();
+    ConfigChangeListener.ListenerRegistration registration =
+        configurable.registerListener(recordingListener(heard), true, executor);
+    executor.runAll();
+    assertThat(heard).containsExactly("foo");
+    configurable.setValue("bar");
+    registration.unregister();
+    executor.runAll();
+    configurable.setValue("baz");
+    assertThat(executor.tasks).isEmpty();
+    assertThat(heard).containsExactly("foo");
+  }
+
+  @Test
+  public void testConcurrentRegistration_noListenersLost() throws Exception {
+    final Configurable<String> configurable = Configurable.value("foo");
+    final int threadCount = 8;
+    final int listenersPerThread = 200;
+    final AtomicInteger heard = new AtomicInteger();
+    final ConfigChangeListener<String> noOp =
+        new ConfigChangeListener<String>() {
+          @Override
+          public void onConfigurationChange(String newValue) {}
+        };
+    final CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    List<Future<Void>> futures = Lists.newArrayList();
+    for (int i = 0; i < threadCount; i++) {
+      futures.add(
+          executor.submit(
+              new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                  start.await();
+                  for (int j = 0; j < listenersPerThread; j++) {
+                    // Registered and then removed again, while other threads fire events.
+                    configurable.registerListener(noOp).unregister();
+                    configurable.registerListener(
+                        new ConfigChangeListener<String>() {
+                          @Override
+                          public void onConfigurationChange(String newValue) {
+                            heard.incrementAndGet();
+                          }
+                        });
+                    configurable.setValue(Thread.currentThread().getName() + j);
+                  }
+                  return null;
+                }
+              }));
+    }
+    start.countDown();
+    for (Future<Void> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+    heard.set(0);
+    configurable.setValue("done");
+    assertThat(heard.get()).isEqualTo(threadCount * listenersPerThread);
+  }
+
+  @Test
+  public void testWeakListener() throws Exception {
+    Configurable<String> configurable = Configurable.value("foo");
+    List<String> heard = Lists.newArrayList();
+    ConfigChangeListener<String> listener = recordingListener(heard);
+    ConfigChangeListener.ListenerRegistration registration =
+        configurable.registerWeakListener(listener, true);
+    configurable.setValue("bar");
+    registration.unregister();
+    configurable.setValue("baz");
+    assertThat(heard).containsExactly("foo", "bar").inOrder();
+  }
+
   @Test
   public void testPredicates_badDefault() throws Exception {
     try {
@@ -175,4 +397,102 @@ public class ConfigurableTest {
       assertThat(ex.unwrap()).isInstanceOf(InvalidConfigValueException.class);
     }
   }
+
+  @Test
+  public void testSetFromStringLazily_parsesOnceOnFirstRead() throws Exception {
+    final AtomicInteger parses = new AtomicInteger();
+    final Configurable<Integer> configurable =
+        Configurable.<Integer>builder()
+            .withDefaultValue(1)
+            .withParser(
+                new Function<String, Integer>() {
+                  @Override
+                  public Integer apply(String input) {
+                    parses.incrementAndGet();
+                    return Integer.valueOf(input);
+                  }
+                })
+            .build();
+    configurable.setFromStringLazily("5");
+    assertThat(parses.get()).isEqualTo(0);
+
+    final int threadCount = 8;
+    final CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    List<Future<Integer>> futures = Lists.newArrayList();
+    for (int i = 0; i < threadCount; i++) {
+      futures.add(
+          executor.submit(
+              new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                  start.await();
+                  return configurable.get();
+                }
+              }));
+    }
+    start.countDown();
+    for (Future<Integer> future : futures) {
+      assertThat(future.get()).isEqualTo(5);
+    }
+    executor.shutdown();
+    assertThat(parses.get()).isEqualTo(1);
+    // The argument stands in for the default, so reading it is not a change.
+    assertThat(configurable.getVersion()).isEqualTo(0L);
+  }
+
+  @Test
+  public void testSetFromStringLazily_invalidValueFailsReads() throws Exception {
+    Configurable<Integer> configurable =
+        Configurable.<Integer>builder().withDefaultValue(1).withPredicate(POSITIVE_INTEGER).build();
+    configurable.setFromStringLazily("-5");
+    assertThat(configurable.validate()).isInstanceOf(InvalidConfigValueException.class);
+    try {
+      configurable.get();
+      fail();
+    } catch (ConfigRuntimeException ex) {
+      assertThat(ex.unwrap()).isInstanceOf(InvalidConfigValueException.class);
+    }
+
+    // Setting a value directly replaces the invalid argument.
+    configurable.setValue(3);
+    assertThat(configurable.validate()).isNull();
+    assertThat(configurable.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void testSetFromStringLazily_appliedBeforeWrite() throws Exception {
+    Configurable<String> configurable = Configurable.value("foo");
+    List<String> heard = Lists.newArrayList();
+    configurable.registerListener(recordingListener(heard));
+    configurable.setFromStringLazily("bar");
+    assertThat(configurable.setValue("baz")).isEqualTo("bar");
+    assertThat(configurable.get()).isEqualTo("baz");
+    assertThat(heard).containsExactly("baz");
+  }
+
+  private static ConfigChangeListener<String> recordingListener(final List<String> heard) {
+    return new ConfigChangeListener<String>() {
+      @Override
+      public void onConfigurationChange(String newValue) {
+        heard.add(newValue);
+      }
+    };
+  }
+
+  /** An executor that holds tasks until they are explicitly run. */
+  private static class QueueingExecutor implements Executor {
+    private final List<Runnable> tasks = Lists.newArrayList();
+
+    @Override
+    public void execute(Runnable task) {
+      tasks.add(task);
+    }
+
+    void runAll() {
+      while (!tasks.isEmpty()) {
+        tasks.remove(0).run();
+      }
+    }
+  }
 }
@@ -3,17 +3,39 @@ package com.bdl.config;
 import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.fail;
 
+import com.google.common.base.Function;
 import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.MoreExecutors;
 
+import com.bdl.config.ConfigException.IllegalConfigStateException;
+import com.bdl.config.ConfigException.InvalidConfigArgumentsException;
+import com.bdl.config.ConfigException.InvalidConfigSyntaxException;
 import com.bdl.config.ConfigException.InvalidConfigValueException;
+import com.bdl.config.ConfigException.TypeMismatchException;
+import com.bdl.config.ConfigException.UnrecognizedConfigException;
 
 import org.junit.After;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 /** @author Benjamin Leitner */
 @RunWith(JUnit4.class)
 public class ConfigurationTest {
@@ -126,6 +148,543 @@ public class ConfigurationTest {
     assertThat(listener.value).isEqualTo("foo");
   }
 
+  @Test
+  public void testSnapshot_isolatedFromLaterChanges() throws Exception {
+    Configurable<String> foo = Configurable.value("foo");
+    Configurable<Integer> bar = Configurable.value(1);
+    Configuration configuration =
+        new Configuration(
+            new ConfigMap(
+                ImmutableMap.<String, Configurable<?>>of("a.foo", foo, "a.bar", bar),
+                ImmutableMultimap.of("foo", "a.foo", "bar", "a.bar")));
+
+    ConfigSnapshot before = configuration.snapshot();
+    assertThat(configuration.snapshot()).isSameAs(before);
+    foo.setValue("baz");
+    configuration.update("bar", 2);
+    ConfigSnapshot after = configuration.snapshot();
+
+    assertThat(before.get("foo")).isEqualTo("foo");
+    assertThat(before.getInt("bar")).isEqualTo(1);
+    assertThat(after.get("a.foo")).isEqualTo("baz");
+    assertThat(after.get("bar", Integer.class)).isEqualTo(2);
+    assertThat(after.getVersion()).isGreaterThan(before.getVersion());
+  }
+
+  @Test
+  public void testSnapshot_manyConfigs() throws Exception {
+    ImmutableMap.Builder<String, Configurable<?>> configs = ImmutableMap.builder();
+    for (int i = 0; i < 100; i++) {
+      configs.put("config" + i, Configurable.value(i));
+    }
+    Configuration configuration =
+        new Configuration(new ConfigMap(configs.build(), ImmutableMultimap.<String, String>of()));
+    ConfigSnapshot before = configuration.snapshot();
+    configuration.update("config70", 700);
+    ConfigSnapshot after = configuration.snapshot();
+    for (int i = 0; i < 100; i++) {
+      assertThat(before.getInt("config" + i)).isEqualTo(i);
+      assertThat(after.getInt("config" + i)).isEqualTo(i == 70 ? 700 : i);
+    }
+  }
+
+  @Test
+  public void testSnapshot_firstTakenDuringBatch() throws Exception {
+    final CountDownLatch reading = new CountDownLatch(1);
+    final CountDownLatch updated = new CountDownLatch(1);
+    // Parsing b's deferred argument pauses the first snapshot after it has read a, but before it
+    // has read c, for as long as the batch takes (or until the batch is seen to be held off).
+    Configurable<Integer> b =
+        Configurable.<Integer>builder()
+            .withDefaultValue(0)
+            .withParser(
+                new Function<String, Integer>() {
+                  @Override
+                  public Integer apply(String input) {
+                    reading.countDown();
+                    try {
+                      updated.await(500, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException ex) {
+                      Thread.currentThread().interrupt();
+                    }
+                    return Integer.valueOf(input);
+                  }
+                })
+            .build();
+    b.setFromStringLazily("0");
+    final Configuration configuration =
+        new Configuration(
+            new ConfigMap(
+                ImmutableMap.<String, Configurable<?>>of(
+                    "a", Configurable.value(0), "b", b, "c", Configurable.value(0)),
+                ImmutableMultimap.<String, String>of()));
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<?> update =
+          executor.submit(
+              new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                  reading.await();
+                  configuration.updateAll(ImmutableMap.<String, Object>of("a", 1, "c", 1));
+                  updated.countDown();
+                  return null;
+                }
+              });
+      ConfigSnapshot first = configuration.snapshot();
+      update.get();
+
+      // The first snapshot holds all of the batch or none of it, and the batch is published.
+      assertThat(first.getInt("c")).isEqualTo(first.getInt("a"));
+      assertThat(configuration.snapshot().getInt("a")).isEqualTo(1);
+      assertThat(configuration.snapshot().getInt("c")).isEqualTo(1);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testSnapshot_typeMismatch() throws Exception {
+    Configuration configuration =
+        new Configuration(
+            new ConfigMap(
+                ImmutableMap.<String, Configurable<?>>of("foo", Configurable.value("foo")),
+                ImmutableMultimap.<String, String>of()));
+    try {
+      configuration.snapshot().getInt("foo");
+      fail();
+    } catch (TypeMismatchException ex) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testUpdateAll() throws Exception {
+    Configurable<String> foo = Configurable.value("foo");
+    Configurable<Integer> bar = Configurable.value(1);
+    Configurable<Integer> baz = Configurable.value(2);
+    Configuration configuration =
+        new Configuration(
+            new ConfigMap(
+                ImmutableMap.<String, Configurable<?>>of("a.foo", foo, "a.bar", bar, "a.baz", baz),
+                ImmutableMultimap.of("foo", "a.foo", "bar", "a.bar", "baz", "a.baz")));
+    RecordingListener<String> fooListener = new RecordingListener<>();
+    foo.registerListener(fooListener);
+    final List<Set<String>> events = Lists.newArrayList();
+    configuration.registerListener(
+        new ConfigurationChangeListener() {
+          @Override
+          public void onConfigurationChange(Set<String> changedNames, ConfigSnapshot snapshot) {
+            events.add(changedNames);
+          }
+        });
+    long version = configuration.snapshot().getVersion();
+
+    configuration.updateAll(ImmutableMap.of("foo", "bar", "a.bar", 10, "baz", 2));
+
+    assertThat(foo.get()).isEqualTo("bar");
+    assertThat(bar.get()).isEqualTo(10);
+    assertThat(fooListener.value).isEqualTo("bar");
+    assertThat(events).containsExactly(ImmutableSet.of("a.foo", "a.bar"));
+    assertThat(configuration.snapshot().getVersion()).isEqualTo(version + 1);
+    assertThat(configuration.snapshot().get("foo")).isEqualTo("bar");
+    assertThat(configuration.snapshot().getInt("bar")).isEqualTo(10);
+
+    configuration.updateAllAsStrings(ImmutableMap.of("foo", "baz", "bar", "11"));
+    assertThat(foo.get()).isEqualTo("baz");
+    assertThat(bar.get()).isEqualTo(11);
+    assertThat(events).hasSize(2);
+  }
+
+  @Test
+  public void testUpdateAll_invalidValueChangesNothing() throws Exception {
+    Configurable<String> foo = Configurable.value("foo");
+    Configurable<Integer> bar =
+        Configurable.<Integer>builder()
+            .withDefaultValue(1)
+            .withPredicate(
+                new Predicate<Integer>() {
+                  @Override
+                  public boolean apply(Integer input) {
+                    return input > 0;
+                  }
+                })
+            .build();
+    Configuration configuration =
+        new Configuration(
+            new ConfigMap(
+                ImmutableMap.<String, Configurable<?>>of("foo", foo, "bar", bar),
+                ImmutableMultimap.<String, String>of()));
+    RecordingListener<String> fooListener = new RecordingListener<>();
+    foo.registerListener(fooListener);
+    ConfigSnapshot before = configuration.snapshot();
+
+    try {
+      configuration.updateAll(ImmutableMap.of("foo", "bar", "bar", -1));
+      fail();
+    } catch (InvalidConfigValueException ex) {
+      assertThat(ex.getMessage()).contains("bar");
+    }
+    try {
+      configuration.updateAllAsStrings(ImmutableMap.of("foo", "bar", "bar", "not a number"));
+      fail();
+    } catch (InvalidConfigValueException ex) {
+      // expected
+    }
+
+    assertThat(foo.get()).isEqualTo("foo");
+    assertThat(bar.get()).isEqualTo(1);
+    assertThat(fooListener.value).isNull();
+    assertThat(configuration.snapshot()).isSameAs(before);
+  }
+
+  @Test
+  public void testUpdateAll_readFlagChangesNothing() throws Exception {
+    Configurable<String> foo = Configurable.value("foo");
+    Configurable<String> flag = Configurable.flag("flag");
+    Configuration configuration =
+        new Configuration(
+            new ConfigMap(
+                ImmutableMap.<String, Configurable<?>>of("foo", foo, "flag", flag),
+                ImmutableMultimap.<String, String>of()));
+    flag.get();
+    try {
+      configuration.updateAll(ImmutableMap.of("foo", "bar", "flag", "baz"));
+      fail();
+    } catch (IllegalConfigStateException ex) {
+      assertThat(ex.getMessage()).contains("flag");
+    }
+    assertThat(foo.get()).isEqualTo("foo");
+  }
+
+  @Test
+  public void testKey() throws Exception {
+    Configurable<Integer> foo = Configurable.value(1);
+    Configuration configuration =
+        new Configuration(
+            new ConfigMap(
+                ImmutableMap.<String, Configurable<?>>of("a.foo", foo),
+                ImmutableMultimap.of("foo", "a.foo")));
+    ConfigKey<Integer> key = configuration.key("foo", Integer.class);
+    assertThat(key.get()).isEqualTo(1);
+    ConfigSnapshot before = configuration.snapshot();
+    foo.setValue(2);
+    assertThat(key.get()).isEqualTo(2);
+    assertThat(before.get(key)).isEqualTo(1);
+    assertThat(configuration.snapshot().get(key)).isEqualTo(2);
+  }
+
+  @Test
+  public void testKey_supertype() throws Exception {
+    Configurable<Integer> foo = Configurable.value(1);
+    Configuration configuration =
+        new Configuration(
+            new ConfigMap(
+                ImmutableMap.<String, Configurable<?>>of("a.foo", foo),
+                ImmutableMultimap.of("foo", "a.foo")));
+    ConfigKey<Number> number = configuration.key("foo", Number.class);
+    ConfigKey<Object> object = configuration.key("foo", Object.class);
+    foo.setValue(2);
+    assertThat(number.get()).isEqualTo(2);
+    assertThat(object.get()).isEqualTo(2);
+    assertThat(configuration.snapshot().get(number)).isEqualTo(2);
+    assertThat(configuration.snapshot().get("foo", Number.class)).isEqualTo(2);
+  }
+
+  @Test
+  public void testKey_typeMismatchOnCreation() throws Exception {
+    Configuration configuration =
+        new Configuration(
+            new ConfigMap(
+                ImmutableMap.<String, Configurable<?>>of("foo", Configurable.value(1)),
+                ImmutableMultimap.<String, String>of()));
+    try {
+      configuration.key("foo", String.class);
+      fail();
+    } catch (TypeMismatchException ex) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testLazyResolution() throws Exception {
+    CountingConfigSupplier foo = new CountingConfigSupplier("foo", Configurable.value("foo"));
+    CountingConfigSupplier bar = new CountingConfigSupplier("bar", Configurable.value(1));
+    Configuration configuration =
+        new Configuration(
+            ConfigMap.builder().resolveLazily().addConfigurable(foo).addConfigurable(bar).build());
+    assertThat(foo.resolutions).isEqualTo(0);
+    assertThat(bar.resolutions).isEqualTo(0);
+
+    assertThat(configuration.get("foo")).isEqualTo("foo");
+    configuration.update("foo", "baz");
+    assertThat(foo.resolutions).isEqualTo(1);
+    assertThat(bar.resolutions).isEqualTo(0);
+
+    ConfigSnapshot snapshot = configuration.snapshot();
+    assertThat(bar.resolutions).isEqualTo(1);
+    assertThat(snapshot.get("foo")).isEqualTo("baz");
+    configuration.update("bar", 2);
+    assertThat(configuration.snapshot().getInt("bar")).isEqualTo(2);
+    assertThat(foo.resolutions).isEqualTo(1);
+  }
+
+  @Test
+  public void testWarmUp() throws Exception {
+    CountingConfigSupplier foo = new CountingConfigSupplier("foo", Configurable.value("foo"));
+    CountingConfigSupplier bar = new CountingConfigSupplier("bar", Configurable.value(1));
+    Configuration configuration =
+        new Configuration(
+            ConfigMap.builder().resolveLazily().addConfigurable(foo).addConfigurable(bar).build());
+    configuration.get("foo");
+
+    configuration.warmUp(MoreExecutors.directExecutor()).get();
+    assertThat(foo.resolutions).isEqualTo(1);
+    assertThat(bar.resolutions).isEqualTo(1);
+  }
+
+  @Test
+  public void testEagerResolution() throws Exception {
+    CountingConfigSupplier foo = new CountingConfigSupplier("foo", Configurable.value("foo"));
+    ConfigMap.builder().addConfigurable(foo).build();
+    assertThat(foo.resolutions).isEqualTo(1);
+  }
+
+  @Test
+  public void testReflectiveSupplier_privateNestedField() throws Exception {
+    ConfigSupplier supplier =
+        ConfigSupplier.reflective(
+            ConfigDescription.builder()
+                .packageName("com.bdl.config")
+                .className("ConfigurationTest.PrivateConfigs")
+                .fieldName("privateConfig")
+                .type("String")
+                .build());
+    ConfigAccessor<Configurable<String>> accessor =
+        ConfigAccessor.forField(
+            "com.bdl.config.ConfigurationTest$PrivateConfigs", "privateConfig");
+
+    assertThat(supplier.getConfigurable().get()).isEqualTo("private");
+    assertThat(supplier.getConfigurable()).isSameAs(accessor.configurable());
+
+    try {
+      ConfigAccessor.forField("com.bdl.config.ConfigurationTest$PrivateConfigs", "missing")
+          .configurable();
+      fail();
+    } catch (LinkageError ex) {
+      assertThat(ex.getMessage()).contains("missing");
+    }
+  }
+
+  @Test
+  public void testDeferredParsing() throws Exception {
+    Configurable<Integer> foo = Configurable.value(1);
+    Configurable<Integer> bar = Configurable.value(2);
+    Configurable<String> baz = Configurable.value("baz");
+    Configuration configuration =
+        new Configuration(
+            new ConfigProcessor(
+                    ImmutableList.of("--foo=3", "--bar=notAnInt"),
+                    ImmutableSet.<ConfigSupplier>of(
+                        new CountingConfigSupplier("foo", foo),
+                        new CountingConfigSupplier("bar", bar),
+                        new CountingConfigSupplier("baz", baz)),
+                    false,
+                    true,
+                    null)
+                .getConfigMap());
+    assertThat(configuration.get("foo")).isEqualTo(3);
+    try {
+      configuration.get("bar");
+      fail();
+    } catch (ConfigRuntimeException ex) {
+      assertThat(ex.unwrap()).isInstanceOf(InvalidConfigValueException.class);
+    }
+
+    Map<String, ConfigException> failures = configuration.validateAll();
+    assertThat(failures.keySet()).containsExactly("com.example.Configs.bar");
+    assertThat(failures.get("com.example.Configs.bar").getMessage())
+        .contains("com.example.Configs.bar");
+    assertThat(configuration.validateAll(MoreExecutors.directExecutor()).get().keySet())
+        .containsExactly("com.example.Configs.bar");
+  }
+
+  @Test
+  public void testDeferredParsing_unrecognizedConfigFailsAtOnce() throws Exception {
+    try {
+      new ConfigProcessor(
+              ImmutableList.of("--missing=3"),
+              ImmutableSet.<ConfigSupplier>of(
+                  new CountingConfigSupplier("foo", Configurable.value(1))),
+              false,
+              true,
+              null)
+          .getConfigMap();
+      fail();
+    } catch (ConfigRuntimeException ex) {
+      assertThat(ex.unwrap()).isInstanceOf(UnrecognizedConfigException.class);
+    }
+  }
+
+  @Test
+  public void testParallelStartup() throws Exception {
+    Set<ConfigSupplier> suppliers = Sets.newLinkedHashSet();
+    List<String> arguments = Lists.newArrayList();
+    for (int i = 0; i < 100; i++) {
+      suppliers.add(new CountingConfigSupplier("config" + i, Configurable.value(0)));
+      arguments.add(String.format("--config%d=%d", i, i));
+    }
+    Configurable<Boolean> flag = Configurable.value(false);
+    suppliers.add(new CountingConfigSupplier("flag", flag));
+    arguments.add("--flag");
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      Configuration configuration =
+          new Configuration(
+              new ConfigProcessor(arguments, suppliers, false, false, null, pool).getConfigMap());
+      assertThat(configuration.getInt("config0")).isEqualTo(0);
+      assertThat(configuration.getInt("config99")).isEqualTo(99);
+      assertThat(configuration.getBoolean("flag")).isTrue();
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testParallelStartup_reportsEveryFailure() throws Exception {
+    Configurable<Integer> foo =
+        Configurable.<Integer>builder()
+            .withDefaultValue(1)
+            .withPredicate(
+                new Predicate<Integer>() {
+                  @Override
+                  public boolean apply(Integer input) {
+                    return input > 0;
+                  }
+                })
+            .build();
+    Configurable<Integer> bar = Configurable.value(2);
+    Configurable<String> baz = Configurable.value("baz");
+    ForkJoinPool pool = new ForkJoinPool(2);
+    try {
+      new ConfigProcessor(
+              ImmutableList.of("--foo=-1", "--bar=notAnInt", "--baz=ok", "--missing=3", "-=bad"),
+              ImmutableSet.<ConfigSupplier>of(
+                  new CountingConfigSupplier("foo", foo),
+                  new CountingConfigSupplier("bar", bar),
+                  new CountingConfigSupplier("baz", baz)),
+              false,
+              false,
+              null,
+              pool)
+          .getConfigMap();
+      fail();
+    } catch (ConfigRuntimeException ex) {
+      Map<String, ConfigException> failures =
+          ((InvalidConfigArgumentsException) ex.unwrap()).getFailures();
+      assertThat(failures.keySet()).containsExactly("-=bad", "foo", "bar", "missing").inOrder();
+      assertThat(failures.get("-=bad")).isInstanceOf(InvalidConfigSyntaxException.class);
+      assertThat(failures.get("foo")).isInstanceOf(InvalidConfigValueException.class);
+      assertThat(failures.get("bar")).isInstanceOf(InvalidConfigValueException.class);
+      assertThat(failures.get("missing")).isInstanceOf(UnrecognizedConfigException.class);
+    } finally {
+      pool.shutdown();
+    }
+    // No argument is applied if any fails.
+    assertThat(baz.get()).isEqualTo("baz");
+  }
+
+  @Test
+  public void testParallelStartup_lastArgumentForConfigWins() throws Exception {
+    Configurable<Boolean> flag = Configurable.value(false);
+    final List<Boolean> heard = Lists.newArrayList();
+    flag.registerListener(
+        new ConfigChangeListener<Boolean>() {
+          @Override
+          public void onConfigurationChange(Boolean newValue) {
+            heard.add(newValue);
+          }
+        });
+    ForkJoinPool pool = new ForkJoinPool(2);
+    try {
+      // Both arguments name the flag.
+      new ConfigProcessor(
+              ImmutableList.of("--noflag", "--flag"),
+              ImmutableSet.<ConfigSupplier>of(new CountingConfigSupplier("flag", flag)),
+              false,
+              false,
+              null,
+              pool)
+          .getConfigMap();
+    } finally {
+      pool.shutdown();
+    }
+    assertThat(flag.get()).isTrue();
+    assertThat(heard).containsExactly(true);
+  }
+
+  @Test
+  public void testFromRegistry() throws Exception {
+    Configuration configuration = Configuration.fromRegistry("--registry_config=bar");
+    assertThat(configuration.get("registry_config")).isEqualTo("bar");
+    assertThat(configuration.get("com.example.Registered.registry_config")).isEqualTo("bar");
+  }
+
+  /** Registered in META-INF/services, as a generated registry would be. */
+  public static class TestConfigRegistry implements ConfigRegistry {
+
+    private static final ConfigDescription DESCRIPTION =
+        ConfigDescription.builder()
+            .packageName("com.example")
+            .className("Registered")
+            .fieldName("registry_config")
+            .type("String")
+            .build();
+
+    @Override
+    public List<ConfigSupplier> configSuppliers() {
+      return Lists.newArrayList(ConfigSupplier.simple(DESCRIPTION, Configurable.value("foo")));
+    }
+
+    @Override
+    public ConfigNameIndex nameIndex() {
+      return ConfigNameIndex.of(ImmutableList.of(DESCRIPTION));
+    }
+  }
+
+  private static class PrivateConfigs {
+    private static final Configurable<String> privateConfig = Configurable.value("private");
+  }
+
+  private static class CountingConfigSupplier extends ConfigSupplier {
+
+    private final ConfigDescription description;
+    private final Configurable<?> configurable;
+    private int resolutions;
+
+    CountingConfigSupplier(String fieldName, Configurable<?> configurable) {
+      this.description =
+          ConfigDescription.builder()
+              .packageName("com.example")
+              .className("Configs")
+              .fieldName(fieldName)
+              .type(configurable.getType().getSimpleName())
+              .build();
+      this.configurable = configurable;
+    }
+
+    @Override
+    ConfigDescription getDescription() {
+      return description;
+    }
+
+    @Override
+    Configurable<?> getConfigurable() {
+      resolutions++;
+      return configurable;
+    }
+  }
+
   private static class RecordingListener<T> implements ConfigChangeListener<T> {
 
     private T value;
@@ -0,0 +1,182 @@
+package com.bdl.config;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import com.bdl.config.ConfigException.ExternalConfigLoadException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/** @author Ben Leitner */
+@RunWith(JUnit4.class)
+public class ExternalConfigLoaderTest {
+
+  @Test
+  public void testSystemProperties() throws Exception {
+    Configurable<String> foo = Configurable.value("foo");
+    Configurable<Integer> bar = Configurable.value(1);
+    System.setProperty("external_loader_test_foo", "from property");
+    try {
+      process(
+          ImmutableList.of(
+              "--system_configs=external_loader_test_foo,external_loader_test_unset"),
+          foo,
+          bar);
+      assertThat(foo.get()).isEqualTo("from property");
+      assertThat(bar.get()).isEqualTo(1);
+    } finally {
+      System.clearProperty("external_loader_test_foo");
+    }
+  }
+
+  @Test
+  public void testSystemProperties_configArgs() throws Exception {
+    System.setProperty("external_loader_test_foo", "from property");
+    try {
+      assertThat(
+              ExternalConfigLoader.fromSystemProperties()
+                  .getConfigArgs("external_loader_test_foo,external_loader_test_unset"))
+          .containsExactly("--external_loader_test_foo=from property");
+    } finally {
+      System.clearProperty("external_loader_test_foo");
+    }
+  }
+
+  @Test
+  public void testPropertiesFile() throws Exception {
+    Configurable<String> foo = Configurable.value("foo");
+    Configurable<Integer> bar = Configurable.value(1);
+    Path file = Files.createTempFile("configs", ".properties");
+    try {
+      Files.write(
+          file,
+          ImmutableList.of(
+              "# A comment", "external_loader_test_foo = a value", "external_loader_test_bar:2"),
+          StandardCharsets.UTF_8);
+      process(ImmutableList.of("--properties_file=" + file), foo, bar);
+      assertThat(foo.get()).isEqualTo("a value");
+      assertThat(bar.get()).isEqualTo(2);
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testMultipleFiles() throws Exception {
+    Configurable<String> foo = Configurable.value("foo");
+    Configurable<Integer> bar = Configurable.value(1);
+    Path first = Files.createTempFile("configs", ".cfg");
+    Path second = Files.createTempFile("configs", ".cfg");
+    Path third = Files.createTempFile("configs", ".cfg");
+    try {
+      write(first, "--external_loader_test_foo=first", "--external_loader_test_bar=1");
+      write(second, "--external_loader_test_bar=2");
+      write(third, "--external_loader_test_foo=third");
+      process(
+          ImmutableList.of(
+              "--config_file=" + first + ", " + second, "--config_file=" + third),
+          foo,
+          bar);
+      assertThat(foo.get()).isEqualTo("third");
+      assertThat(bar.get()).isEqualTo(2);
+    } finally {
+      Files.delete(first);
+      Files.delete(second);
+      Files.delete(third);
+    }
+  }
+
+  @Test
+  public void testIncludedFilesTakePrecedence() throws Exception {
+    Configurable<String> foo = Configurable.value("foo");
+    Configurable<Integer> bar = Configurable.value(1);
+    Path outer = Files.createTempFile("configs", ".cfg");
+    Path inner = Files.createTempFile("configs", ".cfg");
+    try {
+      write(outer, "--config_file=" + inner, "--external_loader_test_foo=outer");
+      write(inner, "--external_loader_test_foo=inner", "--external_loader_test_bar=3");
+      process(
+          ImmutableList.of("--external_loader_test_bar=2", "--config_file=" + outer), foo, bar);
+      assertThat(foo.get()).isEqualTo("inner");
+      assertThat(bar.get()).isEqualTo(3);
+    } finally {
+      Files.delete(outer);
+      Files.delete(inner);
+    }
+  }
+
+  @Test
+  public void testRepeatedFileLoadedOnce() throws Exception {
+    Configurable<String> foo = Configurable.value("foo");
+    Configurable<Integer> bar = Configurable.value(1);
+    Path shared = Files.createTempFile("configs", ".cfg");
+    Path other = Files.createTempFile("configs", ".cfg");
+    try {
+      write(shared, "--external_loader_test_foo=shared");
+      write(other, "--config_file=" + shared, "--external_loader_test_foo=other");
+      // The second naming of the shared file is skipped, so the other file's value stands.
+      process(
+          ImmutableList.of(
+              "--config_file=" + shared + "," + other,
+              "--config_file=" + shared.getParent().resolve(".").resolve(shared.getFileName())),
+          foo,
+          bar);
+      assertThat(foo.get()).isEqualTo("other");
+    } finally {
+      Files.delete(shared);
+      Files.delete(other);
+    }
+  }
+
+  @Test
+  public void testCycleIsAnError() throws Exception {
+    Configurable<String> foo = Configurable.value("foo");
+    Configurable<Integer> bar = Configurable.value(1);
+    Path first = Files.createTempFile("configs", ".cfg");
+    Path second = Files.createTempFile("configs", ".cfg");
+    try {
+      write(first, "--config_file=" + second);
+      write(second, "--config_file=" + first);
+      process(ImmutableList.of("--config_file=" + first), foo, bar);
+      fail();
+    } catch (ConfigRuntimeException ex) {
+      assertThat(ex.unwrap()).isInstanceOf(ExternalConfigLoadException.class);
+      assertThat(ex.getMessage()).contains("include each other");
+    } finally {
+      Files.delete(first);
+      Files.delete(second);
+    }
+  }
+
+  private static void write(Path file, String... lines) throws Exception {
+    Files.write(file, ImmutableList.copyOf(lines), StandardCharsets.UTF_8);
+  }
+
+  private static void process(
+      ImmutableList<String> arguments, Configurable<String> foo, Configurable<Integer> bar) {
+    new ConfigProcessor(
+            arguments,
+            ImmutableSet.of(
+                ConfigSupplier.simple(description("external_loader_test_foo"), foo),
+                ConfigSupplier.simple(description("external_loader_test_bar"), bar)))
+        .getConfigMap();
+  }
+
+  private static ConfigDescription description(String fieldName) {
+    return ConfigDescription.builder()
+        .packageName("com.example")
+        .className("Configs")
+        .fieldName(fieldName)
+        .type("Object")
+        .build();
+  }
+}
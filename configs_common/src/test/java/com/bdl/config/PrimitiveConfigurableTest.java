@@ -0,0 +1,172 @@
+package com.bdl.config;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+
+import com.bdl.config.ConfigException.IllegalConfigStateException;
+import com.bdl.config.ConfigException.InvalidConfigValueException;
+import com.bdl.config.ConfigException.TypeMismatchException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for the primitive-specialized Configurables.
+ *
+ * @author Ben Leitner
+ */
+@RunWith(JUnit4.class)
+public class PrimitiveConfigurableTest {
+
+  private static final IntConfigurable.IntPredicate POSITIVE =
+      new IntConfigurable.IntPredicate() {
+        @Override
+        public boolean apply(int value) {
+          return value > 0;
+        }
+      };
+
+  @Before
+  public void before() throws Exception {
+    Configuration.enableConfigSetCheck();
+  }
+
+  @After
+  public void after() throws Exception {
+    Configuration.enableConfigSetCheck();
+  }
+
+  @Test
+  public void testIntSetAndGet() throws Exception {
+    IntConfigurable configurable = Configurable.intValue(1);
+    assertThat(configurable.getInt()).isEqualTo(1);
+    assertThat(configurable.setInt(2)).isEqualTo(1);
+    assertThat(configurable.getInt()).isEqualTo(2);
+    configurable.setFromString("3");
+    assertThat(configurable.getInt()).isEqualTo(3);
+    assertThat(configurable.get()).isEqualTo(3);
+    configurable.reset();
+    assertThat(configurable.getInt()).isEqualTo(1);
+  }
+
+  @Test
+  public void testLongDoubleAndBoolean() throws Exception {
+    LongConfigurable longConfig = Configurable.longValue(1L);
+    longConfig.setFromString("12345678901");
+    assertThat(longConfig.getLong()).isEqualTo(12345678901L);
+
+    DoubleConfigurable doubleConfig = Configurable.doubleValue(0.5);
+    doubleConfig.setFromString("2.25");
+    assertThat(doubleConfig.getDouble()).isEqualTo(2.25);
+
+    BooleanConfigurable booleanConfig = Configurable.booleanValue(false);
+    booleanConfig.setFromString("yes");
+    assertThat(booleanConfig.getBoolean()).isTrue();
+    booleanConfig.setBoolean(false);
+    assertThat(booleanConfig.getBoolean()).isFalse();
+  }
+
+  @Test
+  public void testIntFlagReadOnlyAfterGetInt() throws Exception {
+    IntConfigurable configurable = Configurable.intFlag(1);
+    configurable.setInt(2);
+    assertThat(configurable.getInt()).isEqualTo(2);
+    try {
+      configurable.setInt(3);
+      fail();
+    } catch (IllegalConfigStateException ex) {
+      // expected
+    }
+    assertThat(configurable.getInt()).isEqualTo(2);
+  }
+
+  @Test
+  public void testIntPredicatesAndParser() throws Exception {
+    IntConfigurable configurable =
+        Configurable.intBuilder()
+            .withDefaultValue(4)
+            .withPredicate(POSITIVE)
+            .withParser(
+                new IntConfigurable.IntParser() {
+                  @Override
+                  public int parse(String input) {
+                    return Integer.parseInt(input, 16);
+                  }
+                })
+            .build();
+    configurable.setFromString("ff");
+    assertThat(configurable.getInt()).isEqualTo(255);
+    try {
+      configurable.setInt(-1);
+      fail();
+    } catch (InvalidConfigValueException ex) {
+      // expected
+    }
+    try {
+      configurable.setFromString("not hex");
+      fail();
+    } catch (InvalidConfigValueException ex) {
+      // expected
+    }
+    assertThat(configurable.getInt()).isEqualTo(255);
+  }
+
+  @Test
+  public void testIntPredicates_badDefault() throws Exception {
+    try {
+      Configurable.intBuilder().withDefaultValue(-10).withPredicate(POSITIVE).build();
+      fail();
+    } catch (ConfigRuntimeException ex) {
+      assertThat(ex.unwrap()).isInstanceOf(InvalidConfigValueException.class);
+    }
+  }
+
+  @Test
+  public void testIntListener() throws Exception {
+    IntConfigurable configurable = Configurable.intValue(1);
+    final int[] heard = new int[1];
+    ConfigChangeListener.ListenerRegistration registration =
+        configurable.registerIntListener(
+            new IntConfigurable.IntChangeListener() {
+              @Override
+              public void onConfigurationChange(int newValue) {
+                heard[0] = newValue;
+              }
+            },
+            true);
+    assertThat(heard[0]).isEqualTo(1);
+    configurable.setInt(7);
+    assertThat(heard[0]).isEqualTo(7);
+    registration.unregister();
+    configurable.setInt(8);
+    assertThat(heard[0]).isEqualTo(7);
+  }
+
+  @Test
+  public void testConfigurationPrimitiveGetters() throws Exception {
+    Configuration configuration =
+        new Configuration(
+            new ConfigMap(
+                ImmutableMap.<String, Configurable<?>>of(
+                    "int", Configurable.intValue(3),
+                    "boxed", Configurable.value(4),
+                    "bool", Configurable.booleanValue(true),
+                    "string", Configurable.value("foo")),
+                ImmutableMultimap.<String, String>of()));
+    assertThat(configuration.getInt("int")).isEqualTo(3);
+    assertThat(configuration.getInt("boxed")).isEqualTo(4);
+    assertThat(configuration.getBoolean("bool")).isTrue();
+    try {
+      configuration.getInt("string");
+      fail();
+    } catch (TypeMismatchException ex) {
+      // expected
+    }
+  }
+}
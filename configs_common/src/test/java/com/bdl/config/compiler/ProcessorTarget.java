@@ -3,6 +3,8 @@ package com.bdl.config.compiler;
 import com.bdl.config.Config;
 import com.bdl.config.Configurable;
 
+import javax.annotation.Nullable;
+
 /**
  * Dummy target class to create modules for the configs within.
  *
@@ -14,6 +16,7 @@ public class ProcessorTarget {
   public static final Configurable<String> HERE_IS_A_CONFIGURABLE = Configurable.value("foo");
 
   @Config(name = "here_is_a_null_config", desc = "A dummy config for the annotation processor")
+  @Nullable
   public static final Configurable<String> HERE_IS_A_NULL_CONFIGURABLE =
       Configurable.noDefault(String.class);
 }
@@ -12,6 +12,7 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.inject.Qualifier;
 import javax.inject.Singleton;
@@ -30,9 +31,19 @@ public class MainConfigDaggerModule {
   @interface ForConfigArguments {}
 
   private final List<String> arguments;
+  private final boolean resolveLazily;
+  private final boolean deferParsing;
+  private final ForkJoinPool parsePool;
 
-  private MainConfigDaggerModule(List<String> arguments) {
+  private MainConfigDaggerModule(
+      List<String> arguments,
+      boolean resolveLazily,
+      boolean deferParsing,
+      ForkJoinPool parsePool) {
     this.arguments = arguments;
+    this.resolveLazily = resolveLazily;
+    this.deferParsing = deferParsing;
+    this.parsePool = parsePool;
   }
 
   /** Creates a new {@link MainConfigDaggerModule}. */
@@ -47,7 +58,36 @@ public class MainConfigDaggerModule {
 
   /** Creates a new {@link MainConfigDaggerModule} using the given strings as inputs. */
   public static MainConfigDaggerModule forArguments(Iterable<String> arguments) {
-    return new MainConfigDaggerModule(ImmutableList.copyOf(arguments));
+    return new MainConfigDaggerModule(ImmutableList.copyOf(arguments), false, false, null);
+  }
+
+  /**
+   * Returns a copy of this module that resolves each config only when it is first looked up (or set
+   * by an argument), so that the classes holding configs are not all loaded and initialized at
+   * startup. Use {@link Configuration#warmUp(java.util.concurrent.Executor)} to resolve the rest in
+   * the background.
+   */
+  public MainConfigDaggerModule withLazyResolution() {
+    return new MainConfigDaggerModule(arguments, true, deferParsing, parsePool);
+  }
+
+  /**
+   * Returns a copy of this module that parses each argument's value only when its config is first
+   * used, so that parsers are never run for configs the process does not use. Use {@link
+   * Configuration#validateAll()} to check every argument's value ahead of time.
+   */
+  public MainConfigDaggerModule withDeferredParsing() {
+    return new MainConfigDaggerModule(arguments, resolveLazily, true, parsePool);
+  }
+
+  /**
+   * Returns a copy of this module that parses and checks the arguments' values in parallel in the
+   * given pool, then applies them all together. If any argument is malformed, names no config or
+   * gives an invalid value, none is applied, and every such argument is reported in a single {@link
+   * ConfigException.InvalidConfigArgumentsException}.
+   */
+  public MainConfigDaggerModule withParallelStartup(ForkJoinPool parsePool) {
+    return new MainConfigDaggerModule(arguments, resolveLazily, deferParsing, parsePool);
   }
 
   @Provides
@@ -63,9 +103,9 @@ public class MainConfigDaggerModule {
   }
 
   @Provides
-  static ConfigProcessor provideConfigProcessor(
+  ConfigProcessor provideConfigProcessor(
       @ForConfigArguments List<String> arguments, Set<ConfigSupplier> suppliers) {
-    return new ConfigProcessor(arguments, suppliers);
+    return new ConfigProcessor(arguments, suppliers, resolveLazily, deferParsing, null, parsePool);
   }
 
   @Module
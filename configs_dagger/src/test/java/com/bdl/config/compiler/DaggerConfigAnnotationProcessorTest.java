@@ -34,6 +34,7 @@ public class DaggerConfigAnnotationProcessorTest {
     InjectionTarget target = configComponent.getTarget();
     assertThat(target.configValue).isEqualTo("foo");
     assertThat(target.nullConfig).isNull();
+    assertThat(target.intConfig).isEqualTo(5);
   }
 
   @Test
@@ -51,13 +52,16 @@ public class DaggerConfigAnnotationProcessorTest {
   static class InjectionTarget {
     private final String configValue;
     private final String nullConfig;
+    private final int intConfig;
 
     @Inject
     InjectionTarget(
         @ConfigValue("here_is_a_config") String configValue,
-        @Nullable @ConfigValue("here_is_a_null_config") String nullConfig) {
+        @Nullable @ConfigValue("here_is_a_null_config") String nullConfig,
+        @ConfigValue("here_is_an_int_config") int intConfig) {
       this.configValue = configValue;
       this.nullConfig = nullConfig;
+      this.intConfig = intConfig;
     }
   }
 
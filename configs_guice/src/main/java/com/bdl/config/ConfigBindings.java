@@ -0,0 +1,111 @@
+package com.bdl.config;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.inject.Binder;
+import com.google.inject.Key;
+import com.google.inject.Provider;
+import com.google.inject.TypeLiteral;
+import com.google.inject.util.Types;
+
+import java.lang.annotation.Annotation;
+
+import javax.inject.Inject;
+
+/**
+ * Binds configs for generated Guice modules with provider instances, rather than with
+ * {@code @Provides} methods, so that Guice need not scan the generated modules reflectively when
+ * the injector is created.
+ *
+ * @author Ben Leitner
+ */
+public final class ConfigBindings {
+
+  private ConfigBindings() {
+    // No instantiation
+  }
+
+  /**
+   * Binds the config's value, a Supplier of its current value and the Configurable itself, each
+   * with the given annotation (such as one from {@link Configs#configValue(String)}).
+   */
+  public static <T> void bindConfig(
+      Binder binder, Annotation annotation, TypeLiteral<T> type, Configurable<T> configurable) {
+    bindConfig(binder, annotation, type, Suppliers.ofInstance(configurable));
+  }
+
+  /**
+   * Binds a private config as for {@link #bindConfig(Binder, Annotation, TypeLiteral,
+   * Configurable)}, resolving the field through the accessor on first use.
+   */
+  public static <T> void bindConfig(
+      Binder binder,
+      Annotation annotation,
+      TypeLiteral<T> type,
+      final ConfigAccessor<? extends Configurable<T>> accessor) {
+    bindConfig(
+        binder,
+        annotation,
+        type,
+        new Supplier<Configurable<T>>() {
+          @Override
+          public Configurable<T> get() {
+            return accessor.configurable();
+          }
+        });
+  }
+
+  @SuppressWarnings("unchecked") // The keys' types are built from the config's type.
+  private static <T> void bindConfig(
+      Binder binder,
+      Annotation annotation,
+      TypeLiteral<T> type,
+      Supplier<? extends Configurable<T>> configurable) {
+    ConfigurableProvider<T> configurableProvider = new ConfigurableProvider<>(configurable);
+    binder.bind(Key.get(type, annotation)).toProvider(new ValueProvider<>(configurableProvider));
+    binder
+        .bind(
+            (Key<Supplier<T>>)
+                Key.get(Types.newParameterizedType(Supplier.class, type.getType()), annotation))
+        .toProvider(configurableProvider);
+    binder
+        .bind(
+            (Key<Configurable<T>>)
+                Key.get(Types.newParameterizedType(Configurable.class, type.getType()), annotation))
+        .toProvider(configurableProvider);
+  }
+
+  /** Provides the Configurable, once the {@link Configuration} has been built. */
+  private static final class ConfigurableProvider<T> implements Provider<Configurable<T>> {
+
+    private final Supplier<? extends Configurable<T>> configurable;
+    @Inject private Provider<Configuration> configuration;
+
+    private ConfigurableProvider(Supplier<? extends Configurable<T>> configurable) {
+      this.configurable = configurable;
+    }
+
+    @Override
+    public Configurable<T> get() {
+      // The Configuration is unused, but getting it ensures that it has been built (and so any
+      // arguments applied) before the config is first read.
+      configuration.get();
+      return configurable.get();
+    }
+  }
+
+  /** Provides the current value of the config. */
+  private static final class ValueProvider<T> implements Provider<T> {
+
+    private final ConfigurableProvider<T> configurable;
+
+    private ValueProvider(ConfigurableProvider<T> configurable) {
+      this.configurable = configurable;
+    }
+
+    @Override
+    public T get() {
+      return configurable.get().get();
+    }
+  }
+}
@@ -12,6 +12,7 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.inject.Singleton;
 
@@ -28,9 +29,19 @@ public class MainConfigGuiceModule extends AbstractModule {
   @interface ForConfigArguments {}
 
   private final List<String> arguments;
+  private final boolean resolveLazily;
+  private final boolean deferParsing;
+  private final ForkJoinPool parsePool;
 
-  private MainConfigGuiceModule(List<String> arguments) {
+  private MainConfigGuiceModule(
+      List<String> arguments,
+      boolean resolveLazily,
+      boolean deferParsing,
+      ForkJoinPool parsePool) {
     this.arguments = arguments;
+    this.resolveLazily = resolveLazily;
+    this.deferParsing = deferParsing;
+    this.parsePool = parsePool;
   }
 
   @Override
@@ -50,7 +61,36 @@ public class MainConfigGuiceModule extends AbstractModule {
 
   /** Creates a new {@link MainConfigGuiceModule} using the given strings as inputs. */
   public static MainConfigGuiceModule forArguments(Iterable<String> arguments) {
-    return new MainConfigGuiceModule(ImmutableList.copyOf(arguments));
+    return new MainConfigGuiceModule(ImmutableList.copyOf(arguments), false, false, null);
+  }
+
+  /**
+   * Returns a copy of this module that resolves each config only when it is first looked up (or set
+   * by an argument), so that the classes holding configs are not all loaded and initialized at
+   * startup. Use {@link Configuration#warmUp(java.util.concurrent.Executor)} to resolve the rest in
+   * the background.
+   */
+  public MainConfigGuiceModule withLazyResolution() {
+    return new MainConfigGuiceModule(arguments, true, deferParsing, parsePool);
+  }
+
+  /**
+   * Returns a copy of this module that parses each argument's value only when its config is first
+   * used, so that parsers are never run for configs the process does not use. Use {@link
+   * Configuration#validateAll()} to check every argument's value ahead of time.
+   */
+  public MainConfigGuiceModule withDeferredParsing() {
+    return new MainConfigGuiceModule(arguments, resolveLazily, true, parsePool);
+  }
+
+  /**
+   * Returns a copy of this module that parses and checks the arguments' values in parallel in the
+   * given pool, then applies them all together. If any argument is malformed, names no config or
+   * gives an invalid value, none is applied, and every such argument is reported in a single {@link
+   * ConfigException.InvalidConfigArgumentsException}.
+   */
+  public MainConfigGuiceModule withParallelStartup(ForkJoinPool parsePool) {
+    return new MainConfigGuiceModule(arguments, resolveLazily, deferParsing, parsePool);
   }
 
   @Provides
@@ -68,6 +108,6 @@ public class MainConfigGuiceModule extends AbstractModule {
   @Provides
   ConfigProcessor provideConfigProcessor(
       @ForConfigArguments List<String> arguments, Set<ConfigSupplier> suppliers) {
-    return new ConfigProcessor(arguments, suppliers);
+    return new ConfigProcessor(arguments, suppliers, resolveLazily, deferParsing, null, parsePool);
   }
 }
@@ -2,10 +2,12 @@ package com.bdl.config.compiler;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import com.google.common.base.Supplier;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 
 import com.bdl.config.ConfigValue;
+import com.bdl.config.Configurable;
 import com.bdl.config.Configuration;
 import com.bdl.config.MainConfigGuiceModule;
 
@@ -34,6 +36,7 @@ public class GuiceConfigAnnotationProcessorTest {
     InjectionTarget target = injector.getInstance(InjectionTarget.class);
     assertThat(target.configValue).isEqualTo("foo");
     assertThat(target.nullConfig).isNull();
+    assertThat(target.intConfig).isEqualTo(5);
   }
 
   @Test
@@ -47,16 +50,82 @@ public class GuiceConfigAnnotationProcessorTest {
     assertThat(configs.get("deep_nested_public")).isEqualTo("foo");
   }
 
+  @Test
+  public void testPrivateConfigInjection_guice() throws Exception {
+    Injector injector =
+        Guice.createInjector(
+            MainConfigGuiceModule.forArguments("--deep_nested_private=bar"),
+            new ConfigGuiceModule());
+    try {
+      NestedInjectionTarget target = injector.getInstance(NestedInjectionTarget.class);
+      assertThat(target.privateValue).isEqualTo("bar");
+      assertThat(target.publicValue).isEqualTo("foo");
+    } finally {
+      injector.getInstance(Configuration.class).reset("deep_nested_private");
+    }
+  }
+
+  @Test
+  public void testLiveValueInjection_guice() throws Exception {
+    Injector injector =
+        Guice.createInjector(
+            MainConfigGuiceModule.forArguments("--deep_nested_public=bar"),
+            new ConfigGuiceModule());
+    Configuration configs = injector.getInstance(Configuration.class);
+    try {
+      LiveInjectionTarget target = injector.getInstance(LiveInjectionTarget.class);
+      assertThat(target.publicValue.get()).isEqualTo("bar");
+      assertThat(target.privateValue.get()).isEqualTo("foo");
+
+      configs.update("deep_nested_public", "baz");
+      configs.update("deep_nested_private", "qux");
+      assertThat(target.publicValue.get()).isEqualTo("baz");
+      assertThat(target.privateValue.get()).isEqualTo("qux");
+    } finally {
+      configs.reset("deep_nested_public");
+      configs.reset("deep_nested_private");
+    }
+  }
+
   static class InjectionTarget {
     private final String configValue;
     private final String nullConfig;
+    private final int intConfig;
 
     @Inject
     InjectionTarget(
         @ConfigValue("here_is_a_config") String configValue,
-        @Nullable @ConfigValue("here_is_a_null_config") String nullConfig) {
+        @Nullable @ConfigValue("here_is_a_null_config") String nullConfig,
+        @ConfigValue("here_is_an_int_config") int intConfig) {
       this.configValue = configValue;
       this.nullConfig = nullConfig;
+      this.intConfig = intConfig;
+    }
+  }
+
+  static class NestedInjectionTarget {
+    private final String privateValue;
+    private final String publicValue;
+
+    @Inject
+    NestedInjectionTarget(
+        @ConfigValue("deep_nested_private") String privateValue,
+        @ConfigValue("deep_nested_public") String publicValue) {
+      this.privateValue = privateValue;
+      this.publicValue = publicValue;
+    }
+  }
+
+  static class LiveInjectionTarget {
+    private final Supplier<String> publicValue;
+    private final Configurable<String> privateValue;
+
+    @Inject
+    LiveInjectionTarget(
+        @ConfigValue("deep_nested_public") Supplier<String> publicValue,
+        @ConfigValue("deep_nested_private") Configurable<String> privateValue) {
+      this.publicValue = publicValue;
+      this.privateValue = privateValue;
     }
   }
 }
@@ -2,6 +2,9 @@ package com.bdl.config.compiler;
 
 import com.bdl.config.Config;
 import com.bdl.config.Configurable;
+import com.bdl.config.IntConfigurable;
+
+import javax.annotation.Nullable;
 
 /**
  * Dummy target class to create modules for the configs within.
@@ -14,6 +17,10 @@ public class GuiceProcessorTarget {
   public static final Configurable<String> HERE_IS_A_CONFIGURABLE = Configurable.value("foo");
 
   @Config(name = "here_is_a_null_config", desc = "A dummy config for the annotation processor")
+  @Nullable
   public static final Configurable<String> HERE_IS_A_NULL_CONFIGURABLE =
       Configurable.noDefault(String.class);
+
+  @Config(name = "here_is_an_int_config", desc = "A dummy primitive config for the processor")
+  public static final IntConfigurable HERE_IS_AN_INT_CONFIGURABLE = Configurable.intValue(5);
 }